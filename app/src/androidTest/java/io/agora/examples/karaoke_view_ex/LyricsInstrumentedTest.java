@@ -8,6 +8,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import android.content.Context;
+import android.os.Debug;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -21,28 +22,46 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import io.agora.examples.utils.Utils;
 import io.agora.karaoke_view_ex.KaraokeView;
+import io.agora.karaoke_view_ex.LyricsParseCallback;
+import io.agora.karaoke_view_ex.LyricsParseTask;
 import io.agora.karaoke_view_ex.constants.Constants;
 import io.agora.karaoke_view_ex.constants.DownloadError;
 import io.agora.karaoke_view_ex.downloader.LyricsFileDownloader;
 import io.agora.karaoke_view_ex.downloader.LyricsFileDownloaderCallback;
+import io.agora.karaoke_view_ex.internal.LyricMachine;
 import io.agora.karaoke_view_ex.internal.ScoringMachine;
 import io.agora.karaoke_view_ex.internal.ai.AIAlgorithmScoreNative;
 import io.agora.karaoke_view_ex.internal.constants.LyricType;
+import io.agora.karaoke_view_ex.internal.lyric.parse.LyricParser;
 import io.agora.karaoke_view_ex.internal.lyric.parse.LyricPitchParser;
+import io.agora.karaoke_view_ex.internal.model.CompactLyricModel;
+import io.agora.karaoke_view_ex.internal.model.LineScoreTree;
 import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
+import io.agora.karaoke_view_ex.internal.model.LyricsPitchLineModel;
+import io.agora.karaoke_view_ex.internal.model.LyricsTimeIndex;
+import io.agora.karaoke_view_ex.internal.model.PitchData;
+import io.agora.karaoke_view_ex.internal.model.PitchScoreBuffer;
+import io.agora.karaoke_view_ex.internal.model.PitchTrack;
+import io.agora.karaoke_view_ex.internal.scoring.DefaultScoringAlgorithm;
 import io.agora.karaoke_view_ex.internal.utils.LogUtils;
 import io.agora.karaoke_view_ex.model.LyricModel;
+import io.agora.karaoke_view_ex.utils.LineScoreRecorder;
+import io.agora.karaoke_view_ex.utils.LyricsCutter;
 
 /**
  * Instrumented test, which will execute on an Android device.
@@ -1180,6 +1199,46 @@ public class LyricsInstrumentedTest {
         assertNull(model.pitchDataList);
     }
 
+    @Test
+    public void testParseLargeKRCFile() throws Exception {
+        String fileNameOfSong = "4875936889260991133.krc";
+
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        LyricModel original = parseLyricData(appContext, fileNameOfSong);
+        assertNotNull(original);
+
+        // Repeat all timed lines of the song 20 times to build a long KRC file
+        String[] lines = Utils.loadAsString(appContext, fileNameOfSong).split("\\n|\\r\\n");
+        int repeat = 20;
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < repeat; i++) {
+            long shift = i * original.duration;
+            for (String line : lines) {
+                int comma = line.indexOf(',');
+                if (!line.startsWith("[") || !line.contains("<") || comma == -1) {
+                    continue;
+                }
+                long startTime = Long.parseLong(line.substring(1, comma));
+                builder.append('[').append(startTime + shift).append(line.substring(comma)).append('\n');
+            }
+        }
+        byte[] data = builder.toString().getBytes("UTF-8");
+
+        long startTsOfTest = System.currentTimeMillis();
+        LyricModel model = LyricParser.doParseKrc(data, 0);
+        Log.d(TAG, "testParseLargeKRCFile " + data.length + " bytes, taken " + (System.currentTimeMillis() - startTsOfTest) + " ms");
+
+        assertEquals(original.lines.size() * repeat, model.lines.size());
+        assertEquals(original.duration * repeat, model.duration);
+        LyricsLineModel lastLine = model.lines.get(model.lines.size() - 1);
+        LyricsLineModel lastLineOfOriginal = original.lines.get(original.lines.size() - 1);
+        assertEquals(lastLineOfOriginal.tones.size(), lastLine.tones.size());
+        for (int i = 0; i < lastLine.tones.size(); i++) {
+            assertEquals(lastLineOfOriginal.tones.get(i).word, lastLine.tones.get(i).word);
+            assertEquals(lastLineOfOriginal.tones.get(i).getDuration(), lastLine.tones.get(i).getDuration());
+        }
+    }
+
     @Test
     public void testParseLyricDataFormat() {
         enableLyricViewExLog();
@@ -1502,4 +1561,1148 @@ public class LyricsInstrumentedTest {
         assertFalse(model.lines.get(0).tones.isEmpty());
         assertNotEquals(0, model.lines.get(0).tones.get(0).pitch);
     }
+
+    @Test
+    public void testParseXmlFileStreaming() {
+        enableLyricViewExLog();
+        String fileNameOfSong = "793566.xml";
+
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        File lyrics = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfSong);
+        byte[] lyricsData = io.agora.karaoke_view_ex.internal.utils.Utils.getFileBytes(lyrics);
+
+        long startTime = System.currentTimeMillis();
+        LyricModel fromFile = LyricPitchParser.parseFile(lyrics, null, true, 0);
+        Log.d(TAG, "testParseXmlFileStreaming parseFile cost: " + (System.currentTimeMillis() - startTime) + "ms");
+
+        startTime = System.currentTimeMillis();
+        LyricModel fromData = LyricPitchParser.parseLyricData(lyricsData, null, true, 0);
+        Log.d(TAG, "testParseXmlFileStreaming parseLyricData cost: " + (System.currentTimeMillis() - startTime) + "ms");
+
+        assertNotNull(fromFile);
+        assertNotNull(fromData);
+        assertEquals(LyricType.XML, fromFile.type);
+        // Streaming from disk gives the same result as parsing the content in memory
+        assertEquals(fromData.toString(), fromFile.toString());
+    }
+
+    @Test
+    public void testCompiledLyricsCache() {
+        enableLyricViewExLog();
+        String fileNameOfSong = "4875936889260991133.krc";
+        String fileNameOfPitch = "4875936889260991133.pitch";
+
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        File lyrics = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfSong);
+        File pitches = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfPitch);
+        LyricModel parsed = KaraokeView.parseLyricData(lyrics, pitches, false, 0);
+        assertNotNull(parsed);
+
+        KaraokeView.setLyricsCacheDir(new File(appContext.getCacheDir(), "compiled_lyrics"));
+        try {
+            KaraokeView.clearLyricsCache();
+
+            long startTime = System.currentTimeMillis();
+            LyricModel compiled = KaraokeView.parseLyricData(lyrics, pitches, false, 0);
+            Log.d(TAG, "testCompiledLyricsCache parse and compile cost: " + (System.currentTimeMillis() - startTime) + "ms");
+
+            startTime = System.currentTimeMillis();
+            LyricModel cached = KaraokeView.parseLyricData(lyrics, pitches, false, 0);
+            Log.d(TAG, "testCompiledLyricsCache load compiled cost: " + (System.currentTimeMillis() - startTime) + "ms");
+
+            assertNotNull(compiled);
+            assertNotNull(cached);
+            assertEquals(parsed.toString(), compiled.toString());
+            assertEquals(parsed.toString(), cached.toString());
+            assertEquals(parsed.copyrightSentenceLineCount, cached.copyrightSentenceLineCount);
+            // Every load gets its own model objects
+            assertNotEquals(System.identityHashCode(compiled.lines.get(0)), System.identityHashCode(cached.lines.get(0)));
+
+            // Other arguments are compiled separately
+            LyricModel withCopyright = KaraokeView.parseLyricData(lyrics, pitches, true, 0);
+            assertNotEquals(cached.lines.size(), withCopyright.lines.size());
+        } finally {
+            KaraokeView.clearLyricsCache();
+            KaraokeView.setLyricsCacheDir(null);
+        }
+    }
+
+    @Test
+    public void testParseLyricDataAsync() throws Exception {
+        enableLyricViewExLog();
+        String fileNameOfSong = "4875936889260991133.krc";
+        String fileNameOfPitch = "4875936889260991133.pitch";
+
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        File lyrics = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfSong);
+        File pitches = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfPitch);
+        LyricModel parsed = KaraokeView.parseLyricData(lyrics, pitches, true, 0);
+        assertNotNull(parsed);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<LyricModel> results = Collections.synchronizedList(new ArrayList<LyricModel>());
+        final LyricsParseCallback callback = new LyricsParseCallback() {
+            @Override
+            public void onLyricsParsed(LyricsParseTask task, LyricModel model) {
+                results.add(model);
+                latch.countDown();
+            }
+        };
+
+        long startTime = System.currentTimeMillis();
+        LyricsParseTask first = mKaraokeView.parseLyricDataAsync(lyrics, pitches, true, 0, Executors.newSingleThreadExecutor(), callback);
+        // A newer request cancels the previous one
+        LyricsParseTask second = mKaraokeView.parseLyricDataAsync(lyrics, pitches, true, 0, Executors.newSingleThreadExecutor(), callback);
+        assertTrue(first.isCancelled());
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Log.d(TAG, "testParseLyricDataAsync cost: " + (System.currentTimeMillis() - startTime) + "ms");
+        assertTrue(second.isDone());
+        assertFalse(second.cancel());
+        assertEquals(1, results.size());
+        assertEquals(parsed.toString(), results.get(0).toString());
+    }
+
+    @Test
+    public void testCancelledParsing() throws Exception {
+        enableLyricViewExLog();
+        String fileNameOfSong = "4875936889260991133.krc";
+        String fileNameOfPitch = "4875936889260991133.pitch";
+
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        byte[] pitchData = Utils.loadAsString(appContext, fileNameOfPitch).getBytes("UTF-8");
+
+        // Repeat the song 50 times to build a long KRC file
+        String song = Utils.loadAsString(appContext, fileNameOfSong);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            builder.append(song).append('\n');
+        }
+        byte[] lyricData = builder.toString().getBytes("UTF-8");
+        int numberOfLines = builder.toString().split("\n").length;
+
+        for (boolean parallel : new boolean[]{false, true}) {
+            final int cancelAfter = 100;
+            final AtomicInteger polls = new AtomicInteger();
+            LyricPitchParser.CancellationCheck cancellation = new LyricPitchParser.CancellationCheck() {
+                @Override
+                public boolean isCancelled() {
+                    return polls.incrementAndGet() > cancelAfter;
+                }
+            };
+
+            long startTime = System.currentTimeMillis();
+            boolean cancelled = false;
+            try {
+                LyricPitchParser.parseLyricData(lyricData, pitchData, true, 0, parallel, cancellation);
+            } catch (CancellationException e) {
+                cancelled = true;
+            }
+            Log.d(TAG, "testCancelledParsing parallel: " + parallel + ", polls: " + polls.get() + " of " + numberOfLines + " lines, cost: " + (System.currentTimeMillis() - startTime) + "ms");
+            assertTrue(cancelled);
+            // The parsing stops at the first poll after the cancellation, the pitch decoding at its next poll
+            assertTrue(polls.get() <= cancelAfter + 3);
+            assertTrue(polls.get() < numberOfLines);
+        }
+
+        // A cancelled task stops its parsing and never calls back
+        final CountDownLatch latch = new CountDownLatch(1);
+        LyricsParseTask task = mKaraokeView.parseLyricDataAsync(lyricData, pitchData, true, 0, Executors.newSingleThreadExecutor(), new LyricsParseCallback() {
+            @Override
+            public void onLyricsParsed(LyricsParseTask task, LyricModel model) {
+                latch.countDown();
+            }
+        });
+        assertTrue(task.cancel());
+        assertFalse(latch.await(500, TimeUnit.MILLISECONDS));
+        assertFalse(task.isDone());
+    }
+
+    @Test
+    public void testParallelParsing() {
+        enableLyricViewExLog();
+        String[][] songs = {
+                {"4875936889260991133.krc", "4875936889260991133.pitch"},
+                {"6246262727282260.lrc", "6246262727282260.bin"},
+        };
+        int rounds = 20;
+
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        for (String[] song : songs) {
+            File lyrics = Utils.copyAssetsToCreateNewFile(appContext, song[0]);
+            File pitches = Utils.copyAssetsToCreateNewFile(appContext, song[1]);
+
+            LyricModel sequential = KaraokeView.parseLyricData(lyrics, pitches, false, 0, false);
+            long startTime = System.currentTimeMillis();
+            for (int i = 0; i < rounds; i++) {
+                KaraokeView.parseLyricData(lyrics, pitches, false, 0, false);
+            }
+            long sequentialCost = System.currentTimeMillis() - startTime;
+
+            LyricModel parallel = KaraokeView.parseLyricData(lyrics, pitches, false, 0, true);
+            startTime = System.currentTimeMillis();
+            for (int i = 0; i < rounds; i++) {
+                KaraokeView.parseLyricData(lyrics, pitches, false, 0, true);
+            }
+            long parallelCost = System.currentTimeMillis() - startTime;
+
+            Log.d(TAG, "testParallelParsing " + song[0] + " sequential cost: " + sequentialCost + "ms, parallel cost: " + parallelCost + "ms for " + rounds + " rounds");
+            assertNotNull(sequential);
+            assertNotNull(parallel);
+            assertEquals(sequential.toString(), parallel.toString());
+            assertEquals(sequential.copyrightSentenceLineCount, parallel.copyrightSentenceLineCount);
+        }
+    }
+
+    @Test
+    public void testProgressiveParsing() {
+        enableLyricViewExLog();
+        String fileNameOfSong = "660078.xml";
+        final int numberOfFirstLines = 10;
+
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        File lyrics = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfSong);
+        LyricModel parsed = LyricPitchParser.parseFile(lyrics, null, true, 0);
+        assertNotNull(parsed);
+
+        final List<LyricModel> partialModels = new ArrayList<>();
+        final long[] costOfFirstLines = new long[]{-1};
+        final long startTime = System.currentTimeMillis();
+        LyricModel model = LyricPitchParser.parseFileProgressively(lyrics, null, true, 0, numberOfFirstLines, new LyricPitchParser.OnLyricsProgressListener() {
+            @Override
+            public void onLinesParsed(LyricModel model) {
+                if (costOfFirstLines[0] < 0) {
+                    costOfFirstLines[0] = System.currentTimeMillis() - startTime;
+                }
+                partialModels.add(model);
+            }
+        });
+        Log.d(TAG, "testProgressiveParsing first lines cost: " + costOfFirstLines[0] + "ms, all lines cost: " + (System.currentTimeMillis() - startTime) + "ms");
+
+        assertNotNull(model);
+        assertEquals(parsed.toString(), model.toString());
+        assertFalse(partialModels.isEmpty());
+        assertEquals(numberOfFirstLines, partialModels.get(0).lines.size());
+        int numberOfLines = 0;
+        for (LyricModel partialModel : partialModels) {
+            assertTrue(partialModel.lines.size() > numberOfLines);
+            assertTrue(partialModel.lines.size() < model.lines.size());
+            numberOfLines = partialModel.lines.size();
+            assertEquals(model.name, partialModel.name);
+            assertEquals(model.preludeEndPosition, partialModel.preludeEndPosition);
+            // Partial models hold the first lines of the final one
+            for (int i = 0; i < numberOfLines; i++) {
+                assertEquals(model.lines.get(i), partialModel.lines.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testCompactLyricModel() {
+        enableLyricViewExLog();
+        String fileNameOfSong = "4875936889260991133.krc";
+        String fileNameOfPitch = "4875936889260991133.pitch";
+
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        File lyrics = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfSong);
+        File pitches = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfPitch);
+        LyricModel model = LyricPitchParser.parseFile(lyrics, pitches, true, 0);
+        assertNotNull(model);
+
+        long startTime = System.currentTimeMillis();
+        CompactLyricModel compact = CompactLyricModel.of(model);
+        Log.d(TAG, "testCompactLyricModel build cost: " + (System.currentTimeMillis() - startTime) + "ms, " + compact);
+
+        assertEquals(model.lines.size(), compact.getLineCount());
+        int toneIndex = 0;
+        for (int i = 0; i < model.lines.size(); i++) {
+            LyricsLineModel line = model.lines.get(i);
+            assertEquals(line.getStartTime(), compact.getLineStartTime(i));
+            assertEquals(line.getEndTime(), compact.getLineEndTime(i));
+            assertEquals(toneIndex, compact.getFirstToneIndex(i));
+            assertEquals(line.tones.size(), compact.getToneCount(i));
+            StringBuilder text = new StringBuilder();
+            for (LyricsLineModel.Tone tone : line.tones) {
+                assertEquals(tone.begin, compact.getToneBegin(toneIndex));
+                assertEquals(tone.end, compact.getToneEnd(toneIndex));
+                assertEquals(tone.pitch, compact.getTonePitch(toneIndex));
+                assertEquals(tone.word, compact.getWord(toneIndex));
+                text.append(tone.word);
+                toneIndex++;
+            }
+            assertEquals(text.toString(), compact.getLineText(i));
+        }
+        assertEquals(model.pitchDataList.size(), compact.getPitchTrack().size());
+
+        // The LyricModel adapter gives back the same lyrics
+        assertEquals(model.toString(), compact.toLyricModel().toString());
+    }
+
+    @Test
+    public void testFrozenLyricModel() {
+        enableLyricViewExLog();
+        String fileNameOfSong = "4875936889260991133.krc";
+        String fileNameOfPitch = "4875936889260991133.pitch";
+
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        File lyrics = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfSong);
+        File pitches = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfPitch);
+        LyricModel model = LyricPitchParser.parseFile(lyrics, pitches, true, 0);
+        assertNotNull(model);
+
+        // Parsed models are frozen, later calls share the same state
+        assertTrue(model.isFrozen());
+        long startTime = System.currentTimeMillis();
+        CompactLyricModel frozen = model.freeze();
+        Log.d(TAG, "testFrozenLyricModel freeze cost: " + (System.currentTimeMillis() - startTime) + "ms, " + frozen);
+        assertTrue(frozen == model.freeze());
+
+        float minimumPitch = Float.MAX_VALUE;
+        float maximumPitch = -Float.MAX_VALUE;
+        for (PitchData data : model.pitchDataList) {
+            minimumPitch = Math.min(minimumPitch, data.pitch);
+            maximumPitch = Math.max(maximumPitch, data.pitch);
+        }
+        assertTrue(frozen.hasPitchValues());
+        assertEquals(minimumPitch, frozen.getMinimumPitch(), 0f);
+        assertEquals(maximumPitch, frozen.getMaximumPitch(), 0f);
+        for (int i = 0; i < model.lines.size(); i++) {
+            assertEquals(model.lines.get(i).getStartTime(), frozen.getLineStartTime(i));
+            assertEquals(model.lines.get(i).getEndTime(), frozen.getLineEndTime(i));
+            assertEquals(model.lines.get(i).duration, frozen.getLineDuration(i));
+        }
+
+        // Removing lines is detected
+        model.lines.remove(model.lines.size() - 1);
+        assertFalse(model.isFrozen());
+        assertEquals(model.lines.size(), model.freeze().getLineCount());
+        assertTrue(model.isFrozen());
+
+        // Changing tones in place needs an explicit invalidation
+        LyricsLineModel.Tone tone = model.lines.get(0).tones.get(0);
+        tone.begin = tone.begin - 10;
+        assertTrue(model.isFrozen());
+        model.invalidate();
+        assertFalse(model.isFrozen());
+        assertEquals(tone.begin, model.freeze().getLineStartTime(0));
+
+        // Cutting the lyrics replaces the lines and refreezes on next use
+        long cutStart = model.lines.get(2).getStartTime();
+        long cutEnd = model.lines.get(5).getEndTime();
+        LyricsCutter.cut(model, (int) cutStart, (int) cutEnd);
+        assertFalse(model.isFrozen());
+        assertEquals(4, model.freeze().getLineCount());
+        assertEquals(cutStart, model.freeze().getLineStartTime(0));
+        assertEquals(cutEnd, model.freeze().getLineEndTime(3));
+    }
+
+    @Test
+    public void testNormalizedLyrics() {
+        enableLyricViewExLog();
+        String fileNameOfSong = "826125.xml";
+
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        File lyrics = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfSong);
+        LyricModel model = LyricPitchParser.parseFile(lyrics, null, true, 0);
+        assertNotNull(model);
+        String parsed = model.toString();
+
+        long startTime = System.currentTimeMillis();
+        CompactLyricModel normalized = model.freeze().normalized();
+        Log.d(TAG, "testNormalizedLyrics normalize cost: " + (System.currentTimeMillis() - startTime) + "ms, " + normalized);
+
+        // Some lines of this song overlap the previous one
+        int numberOfAdjustedTones = 0;
+        for (int i = 0; i < normalized.getToneCount(); i++) {
+            if (normalized.isAdjusted(i)) {
+                numberOfAdjustedTones++;
+            }
+        }
+        assertTrue(numberOfAdjustedTones > 0);
+        for (int i = 1; i < normalized.getLineCount(); i++) {
+            assertTrue(normalized.getLineStartTime(i) >= normalized.getLineEndTime(i - 1));
+        }
+        assertTrue(normalized == normalized.normalized());
+
+        // Both machines share the same view and leave the parsed model unchanged
+        ScoringMachine scoringMachine = new ScoringMachine(null);
+        scoringMachine.prepare(model, false);
+        LyricMachine lyricMachine = new LyricMachine(null);
+        lyricMachine.prepare(model);
+        assertTrue(normalized == scoringMachine.getCompactLyrics());
+        assertTrue(normalized == lyricMachine.getCompactLyrics());
+        assertEquals(parsed, model.toString());
+        assertTrue(model.isFrozen());
+    }
+
+    @Test
+    public void testPitchTrack() {
+        String fileNameOfSong = "4875936889260991133.krc";
+        String fileNameOfPitch = "4875936889260991133.pitch";
+
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File lyricFile = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfSong);
+        File pitches = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfPitch);
+        LyricModel model = LyricPitchParser.parseFile(lyricFile, pitches, true, 0);
+        assertNotNull(model);
+
+        // The frozen state holds the parsed list in a track
+        PitchTrack track = model.getPitchTrack();
+        assertNotNull(track);
+        assertTrue(track == model.getPitchTrack());
+        assertEquals(model.pitchDataList.size(), track.size());
+        // The list of the parsed model is a view of that track, copies of the model share it until it is read
+        assertTrue(track == PitchTrack.of(model.pitchDataList));
+        assertTrue(track == model.copy().getPitchTrack());
+        assertEquals(track.getStartTime(0), model.preludeEndPosition);
+
+        List<PitchData> pitchDataList = new ArrayList<>(model.pitchDataList);
+        float minimumPitch = Float.MAX_VALUE;
+        float maximumPitch = -Float.MAX_VALUE;
+        for (PitchData data : pitchDataList) {
+            minimumPitch = Math.min(minimumPitch, data.pitch);
+            maximumPitch = Math.max(maximumPitch, data.pitch);
+        }
+        assertEquals(minimumPitch, track.getMinimumPitch(), 0f);
+        assertEquals(maximumPitch, track.getMaximumPitch(), 0f);
+
+        // Binary search finds the same segment as a linear scan
+        long endTime = track.getEndTime(track.size() - 1) + 100;
+        for (long time = 0; time < endTime; time += 7) {
+            float expected = 0;
+            for (PitchData data : pitchDataList) {
+                if (data.startTime <= time && data.startTime + data.duration >= time) {
+                    expected = data.pitch;
+                    break;
+                }
+            }
+            int index = track.indexAt(time);
+            assertEquals(expected, index >= 0 ? track.getPitch(index) : 0, 0f);
+        }
+
+        // Segments added out of order are kept sorted by start time
+        PitchTrack unsorted = new PitchTrack();
+        unsorted.add(3, 300, 50);
+        unsorted.add(1, 100, 50);
+        unsorted.add(2, 200, 150);
+        assertEquals(100, unsorted.getStartTime(0));
+        assertEquals(200, unsorted.getStartTime(1));
+        assertEquals(300, unsorted.getStartTime(2));
+        assertEquals(1, unsorted.lowerBound(150));
+        assertEquals(3, unsorted.lowerBound(301));
+        assertEquals(-1, unsorted.indexAt(175));
+        assertEquals(1, unsorted.indexAt(320));
+        assertEquals(1f, unsorted.getMinimumPitch(), 0f);
+        assertEquals(3f, unsorted.getMaximumPitch(), 0f);
+
+        // Lists in any order are sorted by start time, keeping the list order of equal start times
+        List<PitchData> reversed = new ArrayList<>(pitchDataList);
+        Collections.reverse(reversed);
+        reversed.add(newPitchData(7, -100, 10));
+        reversed.add(newPitchData(8, -100, 20));
+        PitchTrack sorted = PitchTrack.of(reversed);
+        assertEquals(reversed.size(), sorted.size());
+        assertEquals(7f, sorted.getPitch(0), 0f);
+        assertEquals(8f, sorted.getPitch(1), 0f);
+        for (int i = 1; i < sorted.size(); i++) {
+            assertTrue(sorted.getStartTime(i - 1) <= sorted.getStartTime(i));
+        }
+
+        // The parsed list can be changed like any list, the track follows once the model is invalidated
+        PitchData first = model.pitchDataList.get(0);
+        assertTrue(first == model.pitchDataList.get(0));
+        first.pitch = maximumPitch + 1;
+        model.pitchDataList.set(1, newPitchData(maximumPitch + 2, first.startTime, first.duration));
+        model.invalidate();
+        assertEquals(maximumPitch + 2, model.getPitchTrack().getMaximumPitch(), 0f);
+        assertEquals(maximumPitch + 1, model.getPitchTrack().getPitch(0), 0f);
+    }
+
+    private static PitchData newPitchData(float pitch, int startTime, int duration) {
+        PitchData data = new PitchData();
+        data.pitch = pitch;
+        data.startTime = startTime;
+        data.duration = duration;
+        return data;
+    }
+
+    @Test
+    public void testLyricsTimeIndex() {
+        enableLyricViewExLog();
+        String fileNameOfSong = "826125.xml";
+
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        File lyrics = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfSong);
+        LyricModel model = LyricPitchParser.parseFile(lyrics, null, true, 0);
+        assertNotNull(model);
+
+        // Lines of this song overlap before they are normalized, the index must match a linear scan on both
+        CompactLyricModel[] views = new CompactLyricModel[]{model.freeze(), model.freeze().normalized()};
+        for (CompactLyricModel view : views) {
+            LyricsTimeIndex index = view.getTimeIndex();
+            assertTrue(index == view.getTimeIndex());
+            long endTime = view.getLineEndTime(view.getLineCount() - 1) + 1000;
+            for (long time = -100; time < endTime; time += 5) {
+                int expectedLine = -1;
+                for (int i = 0; i < view.getLineCount(); i++) {
+                    if (view.getLineStartTime(i) <= time && time <= view.getLineEndTime(i)) {
+                        expectedLine = i;
+                        break;
+                    }
+                }
+                assertEquals(expectedLine, index.lineAt(time));
+
+                int expectedTone = -1;
+                for (int i = 0; i < view.getToneCount(); i++) {
+                    if (view.getToneBegin(i) <= time && time <= view.getToneEnd(i)) {
+                        expectedTone = i;
+                        break;
+                    }
+                }
+                assertEquals(expectedTone, index.toneAt(time));
+
+                int expectedNextLine = view.getLineCount();
+                for (int i = 0; i < view.getLineCount(); i++) {
+                    if (view.getLineStartTime(i) > time) {
+                        expectedNextLine = i;
+                        break;
+                    }
+                }
+                assertEquals(expectedNextLine, index.firstLineStartingAfter(time));
+
+                // Every line overlapping [time, time + 3000] is in the range given by the index
+                LyricsTimeIndex.LineRange range = index.linesOverlapping(time, time + 3000);
+                for (int i = 0; i < view.getLineCount(); i++) {
+                    if (view.getLineStartTime(i) <= time + 3000 && view.getLineEndTime(i) >= time) {
+                        assertTrue(range.contains(i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLyricsTimeIndexLinesOverlapping() {
+        enableLyricViewExLog();
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        LyricModel model = LyricPitchParser.parseFile(Utils.copyAssetsToCreateNewFile(appContext, "826125.xml"), null, true, 0);
+        assertNotNull(model);
+        // Same song with a line without tones, starting at 0, so that the lines are out of order
+        LyricModel outOfOrder = model.copy();
+        outOfOrder.lines.set(outOfOrder.lines.size() - 2, new LyricsLineModel());
+
+        CompactLyricModel[] views = new CompactLyricModel[]{model.freeze(), model.freeze().normalized(), outOfOrder.freeze().normalized()};
+        assertFalse(views[2].getTimeIndex().isSorted());
+        for (CompactLyricModel view : views) {
+            LyricsTimeIndex index = view.getTimeIndex();
+            long endTime = view.getLineEndTime(view.getLineCount() - 1) + 1000;
+            for (long from = -1000; from < endTime; from += 50) {
+                for (long length = 0; length <= 8000; length += 2000) {
+                    long to = from + length;
+                    LyricsTimeIndex.LineRange range = index.linesOverlapping(from, to);
+                    int first = -1;
+                    int last = -1;
+                    for (int i = 0; i < view.getLineCount(); i++) {
+                        boolean overlapping = view.getLineStartTime(i) <= to && view.getLineEndTime(i) >= from;
+                        if (overlapping) {
+                            assertTrue(range.contains(i));
+                            first = first < 0 ? i : first;
+                            last = i;
+                        }
+                    }
+                    if (first < 0) {
+                        assertTrue(range.isEmpty());
+                    } else {
+                        // The range starts at the first overlapping line
+                        assertEquals(first, range.getFirst());
+                        assertTrue(range.getLast() > last);
+                    }
+                }
+            }
+            // An empty time range has no line
+            assertTrue(index.linesOverlapping(1000, 999).isEmpty());
+        }
+    }
+
+    @Test
+    public void testLyricsTimeIndexCursor() {
+        enableLyricViewExLog();
+        String fileNameOfSong = "826125.xml";
+
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        File lyrics = Utils.copyAssetsToCreateNewFile(appContext, fileNameOfSong);
+        LyricModel model = LyricPitchParser.parseFile(lyrics, null, true, 0);
+        assertNotNull(model);
+
+        CompactLyricModel view = model.freeze().normalized();
+        LyricsTimeIndex index = view.getTimeIndex();
+        LyricsTimeIndex.Cursor cursor = index.newCursor();
+        long endTime = view.getLineEndTime(view.getLineCount() - 1) + 1000;
+
+        // Playback, then drags backwards and jumps forwards, give the same results as the searches
+        long[] drags = new long[]{endTime / 2, endTime / 3, 0, endTime - 5000};
+        long time = -100;
+        for (int i = 0; i <= drags.length; i++) {
+            for (; time < endTime; time += 17) {
+                int line = index.lineAt(time);
+                assertEquals(line, cursor.moveTo(time));
+                assertEquals(line, cursor.getLine());
+                assertEquals(line >= 0 ? index.toneAt(line, time) : -1, cursor.getTone());
+                if (i < drags.length && time >= endTime * 2 / 3) {
+                    break;
+                }
+            }
+            if (i < drags.length) {
+                time = drags[i];
+            }
+        }
+    }
+
+    @Test
+    public void testRefPitchLookup() {
+        enableLyricViewExLog();
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        // Tone pitches from the lyrics, then pitch data from a separate pitch file
+        LyricModel xmlModel = LyricPitchParser.parseFile(Utils.copyAssetsToCreateNewFile(appContext, "826125.xml"), null, true, 0);
+        LyricModel krcModel = LyricPitchParser.parseFile(Utils.copyAssetsToCreateNewFile(appContext, "4875936889260991133.krc"),
+                Utils.copyAssetsToCreateNewFile(appContext, "4875936889260991133.pitch"), true, 0);
+        for (LyricModel model : new LyricModel[]{xmlModel, krcModel}) {
+            assertNotNull(model);
+            ScoringMachine scoringMachine = new ScoringMachine(null);
+            scoringMachine.prepare(model, false);
+            CompactLyricModel lyrics = scoringMachine.getCompactLyrics();
+            List<PitchData> pitchDataList = model.pitchDataList != null ? new ArrayList<>(model.pitchDataList) : null;
+
+            long endTime = lyrics.getLineEndTime(lyrics.getLineCount() - 1) + 1000;
+            // Forwards at the pitch callback rate, then backwards as after a drag
+            for (int step : new int[]{10, -37}) {
+                for (int time = step > 0 ? 0 : (int) endTime; time >= 0 && time <= endTime; time += step) {
+                    float expected = 0;
+                    if (!model.hasPitch) {
+                        expected = 0;
+                    } else if (pitchDataList != null) {
+                        for (PitchData data : pitchDataList) {
+                            if (data.startTime <= time && data.startTime + data.duration >= time) {
+                                expected = data.pitch;
+                                break;
+                            }
+                        }
+                    } else {
+                        for (int tone = 0; tone < lyrics.getToneCount(); tone++) {
+                            if (lyrics.getToneBegin(tone) <= time && lyrics.getToneEnd(tone) >= time) {
+                                expected = lyrics.getTonePitch(tone);
+                                break;
+                            }
+                        }
+                    }
+                    assertEquals(expected, scoringMachine.getRefPitch(time), 0f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPitchLinesFromPitchData() {
+        enableLyricViewExLog();
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        LyricModel model = LyricPitchParser.parseFile(Utils.copyAssetsToCreateNewFile(appContext, "4875936889260991133.krc"),
+                Utils.copyAssetsToCreateNewFile(appContext, "4875936889260991133.pitch"), true, 0);
+        assertNotNull(model);
+
+        ScoringMachine scoringMachine = new ScoringMachine(null);
+        long startTime = System.currentTimeMillis();
+        scoringMachine.prepare(model, false);
+        Log.d(TAG, "testPitchLinesFromPitchData prepare cost: " + (System.currentTimeMillis() - startTime) + "ms");
+
+        // Each line holds the pitch segments starting within it, in order
+        CompactLyricModel lyrics = scoringMachine.getCompactLyrics();
+        List<LyricsPitchLineModel> pitchLines = scoringMachine.getPitchLines();
+        assertEquals(lyrics.getLineCount(), pitchLines.size());
+        for (int i = 0; i < lyrics.getLineCount(); i++) {
+            List<LyricsPitchLineModel.Pitch> pitches = pitchLines.get(i).pitches;
+            int count = 0;
+            for (PitchData data : model.pitchDataList) {
+                if (data.startTime >= lyrics.getLineStartTime(i) && data.startTime < lyrics.getLineEndTime(i)) {
+                    LyricsPitchLineModel.Pitch pitch = pitches.get(count++);
+                    assertEquals(data.startTime, pitch.begin);
+                    assertEquals(data.startTime + data.duration, pitch.end);
+                    assertEquals((int) data.pitch, pitch.pitch);
+                }
+            }
+            assertEquals(count, pitches.size());
+        }
+    }
+
+    @Test
+    public void testPitchScoreBuffer() {
+        enableLyricViewExLog();
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        LyricModel model = LyricPitchParser.parseFile(Utils.copyAssetsToCreateNewFile(appContext, "826125.xml"), null, true, 0);
+        assertNotNull(model);
+        CompactLyricModel lyrics = model.freeze();
+
+        // Same line scores from the buffer as from the map, the buffer being reused for every line
+        DefaultScoringAlgorithm algorithm = new DefaultScoringAlgorithm();
+        PitchScoreBuffer buffer = new PitchScoreBuffer();
+        LinkedHashMap<Long, Float> pitches = new LinkedHashMap<>();
+        for (int i = 0; i < lyrics.getLineCount(); i++) {
+            for (long timestamp = lyrics.getLineStartTime(i); timestamp <= lyrics.getLineEndTime(i); timestamp += 20) {
+                float score = timestamp % 100 == 0 ? -1f : (float) (timestamp / 20 % 100);
+                pitches.put(timestamp, score);
+                buffer.put(timestamp, score);
+            }
+            assertEquals(algorithm.getLineScore(pitches, i, lyrics), algorithm.getLineScore(buffer, i, lyrics));
+            assertTrue(buffer.isEmpty());
+        }
+
+        // A repeated timestamp replaces its score and keeps its position, as in a LinkedHashMap
+        buffer.put(100, 10f);
+        buffer.put(120, 20f);
+        buffer.put(100, 30f);
+        assertEquals(2, buffer.size());
+        assertEquals(100, buffer.getTimestamp(0));
+        assertEquals(30f, buffer.getScore(0), 0f);
+        buffer.removeFirst(1);
+        assertEquals(120, buffer.getTimestamp(0));
+
+        // Growing past the initial capacity keeps the order
+        buffer.clear();
+        for (long timestamp = 0; timestamp < 1000; timestamp++) {
+            buffer.put(timestamp, timestamp);
+        }
+        assertEquals(1000, buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            assertEquals(i, buffer.getTimestamp(i));
+        }
+    }
+
+    @Test
+    public void testLineScoreTree() {
+        enableLyricViewExLog();
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        LyricModel model = LyricPitchParser.parseFile(Utils.copyAssetsToCreateNewFile(appContext, "826125.xml"), null, true, 0);
+        assertNotNull(model);
+        CompactLyricModel lyrics = model.freeze().normalized();
+        int lineCount = model.copyrightSentenceLineCount + lyrics.getLineCount();
+
+        // Scores set line by line then dropped by seeks, checked against a plain array
+        LineScoreRecorder recorder = new LineScoreRecorder();
+        recorder.setLyricData(model);
+        float[] expected = new float[lineCount];
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            for (int index = 1; index <= lineCount; index++) {
+                float score = random.nextInt(101);
+                expected[index - 1] = score;
+                float sum = 0;
+                for (float value : expected) {
+                    sum += value;
+                }
+                assertEquals(sum, recorder.setLineScore(index, score), 0.001f);
+            }
+            long position = 1 + random.nextInt((int) lyrics.getLineEndTime(lyrics.getLineCount() - 1));
+            for (int line = 0; line < lyrics.getLineCount(); line++) {
+                if (lyrics.getLineStartTime(line) >= position) {
+                    expected[model.copyrightSentenceLineCount + line] = 0;
+                }
+            }
+            float sum = 0;
+            for (float value : expected) {
+                sum += value;
+            }
+            assertEquals(sum, recorder.seek(position), 0.001f);
+            float[] scores = recorder.getLineScores();
+            for (int i = 0; i < lineCount; i++) {
+                assertEquals(expected[i], scores[i], 0f);
+            }
+        }
+        assertEquals(-1, recorder.setLineScore(lineCount + 1, 100), 0f);
+
+        // Prefix sums and dropped scores of the tree itself
+        LineScoreTree tree = new LineScoreTree(4);
+        tree.setScore(0, 10);
+        tree.setScore(2, 30);
+        assertEquals(10, tree.getPrefixSum(2), 0f);
+        assertEquals(40, tree.getSum(), 0f);
+        tree.removeScoresFrom(1);
+        assertFalse(tree.isScored(2));
+        assertEquals(10, tree.getSum(), 0f);
+        tree.setScore(3, 40);
+        assertEquals(0, tree.getScore(2), 0f);
+        assertEquals(50, tree.getPrefixSum(4), 0f);
+        tree.setScore(9, 5);
+        assertEquals(10, tree.getLineCount());
+        assertEquals(55, tree.getSum(), 0f);
+    }
+
+    @Test
+    public void testLineScoresWithLinesOutOfOrder() {
+        enableLyricViewExLog();
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        LyricModel parsed = LyricPitchParser.parseFile(Utils.copyAssetsToCreateNewFile(appContext, "826125.xml"), null, true, 0);
+        assertNotNull(parsed);
+        // A line without tones starts at 0, after lines starting later
+        LyricModel model = parsed.copy();
+        int emptyLine = model.lines.size() - 2;
+        model.lines.set(emptyLine, new LyricsLineModel());
+        CompactLyricModel lyrics = model.freeze().normalized();
+        assertFalse(lyrics.getTimeIndex().isSorted());
+        long position = lyrics.getLineStartTime(2);
+
+        // Only the lines starting at or after the position lose their score, not the lines after them
+        LineScoreRecorder recorder = new LineScoreRecorder();
+        recorder.setLyricData(model);
+        int lineCount = model.copyrightSentenceLineCount + lyrics.getLineCount();
+        for (int index = 1; index <= lineCount; index++) {
+            recorder.setLineScore(index, 10);
+        }
+        float sum = 0;
+        for (int i = 0; i < lineCount; i++) {
+            int line = i - model.copyrightSentenceLineCount;
+            if (line < 0 || lyrics.getLineStartTime(line) < position) {
+                sum += 10;
+            }
+        }
+        assertEquals(sum, recorder.seek(position), 0.001f);
+        assertEquals(10, recorder.getLineScores()[model.copyrightSentenceLineCount + emptyLine], 0f);
+
+        // Same for the scores of the scoring machine when dragging back
+        ScoringMachine scoringMachine = new ScoringMachine(null);
+        scoringMachine.prepare(model, true);
+        int endTime = (int) lyrics.getLineEndTime(lyrics.getLineCount() - 1) + 1000;
+        for (int progress = 10; progress <= endTime; progress += 10) {
+            scoringMachine.setLyricProgress(progress);
+            scoringMachine.setPitch(60 + progress % 7, 0, progress);
+        }
+        int[] scoresBefore = scoringMachine.getScoreForEachLine();
+        scoringMachine.whenDraggingHappen(position);
+        int[] scoresAfter = scoringMachine.getScoreForEachLine();
+        for (int line = 0; line < scoresAfter.length; line++) {
+            assertEquals(lyrics.getLineStartTime(line) >= position ? -1 : scoresBefore[line], scoresAfter[line]);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testSetPitchWithoutAllocation() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        LyricModel model = LyricPitchParser.parseFile(Utils.copyAssetsToCreateNewFile(appContext, "826125.xml"), null, true, 0);
+        assertNotNull(model);
+        // Messages built only for logging are skipped without a logger
+        LogUtils.destroy();
+
+        ScoringMachine scoringMachine = new ScoringMachine(null);
+        int endTime = (int) model.lines.get(model.lines.size() - 1).getEndTime() + 1000;
+        long lastCount = -1;
+        for (int round = 0; round < 3; round++) {
+            scoringMachine.prepare(model, true);
+            Debug.startAllocCounting();
+            Debug.resetThreadAllocCount();
+            // Pitch every 10ms, with silences long enough to reset the pitch indicator
+            for (int progress = 10; progress <= endTime; progress += 10) {
+                scoringMachine.setLyricProgress(progress);
+                scoringMachine.setPitch(progress % 3000 < 200 ? 0 : 60 + progress % 7, 0, progress);
+            }
+            lastCount = Debug.getThreadAllocCount();
+            Debug.stopAllocCounting();
+            Log.d(TAG, "testSetPitchWithoutAllocation round " + round + " allocations: " + lastCount);
+        }
+        // The first round grows the reused buffers and caches, the following ones allocate nothing
+        assertEquals(0, lastCount);
+        int scoredLines = 0;
+        for (int score : scoringMachine.getScoreForEachLine()) {
+            if (score >= 0) {
+                scoredLines++;
+            }
+        }
+        assertTrue(scoredLines > 0);
+    }
+
+    @Test
+    public void testSetPitchBatch() {
+        enableLyricViewExLog();
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        LyricModel model = LyricPitchParser.parseFile(Utils.copyAssetsToCreateNewFile(appContext, "826125.xml"), null, true, 0);
+        assertNotNull(model);
+        int endTime = (int) model.lines.get(model.lines.size() - 1).getEndTime() + 1000;
+
+        for (boolean usingInternalScoring : new boolean[]{true, false}) {
+            // Same callbacks from pitches set one by one and from bursts of up to 6 pitches, with one refresh per burst
+            final StringBuilder singleEvents = new StringBuilder();
+            final StringBuilder batchEvents = new StringBuilder();
+            final int[] refreshes = new int[2];
+            ScoringMachine singleMachine = new ScoringMachine(newRecordingScoringListener(singleEvents, refreshes, 0));
+            ScoringMachine batchMachine = new ScoringMachine(newRecordingScoringListener(batchEvents, refreshes, 1));
+            singleMachine.prepare(model, usingInternalScoring);
+            batchMachine.prepare(model, usingInternalScoring);
+
+            Random random = new Random(5);
+            float[] pitches = new float[6];
+            float[] scores = new float[6];
+            int[] progresses = new int[6];
+            int batches = 0;
+            for (int progress = 10; progress <= endTime; ) {
+                int count = 1 + random.nextInt(pitches.length);
+                for (int i = 0; i < count; i++) {
+                    progresses[i] = progress + i * 10;
+                    pitches[i] = progresses[i] % 3000 < 200 ? 0 : 50 + random.nextInt(30);
+                    scores[i] = random.nextInt(3) == 0 ? random.nextInt(100) : 0;
+                    singleMachine.setLyricProgress(progresses[i]);
+                    singleMachine.setPitch(pitches[i], scores[i], progresses[i]);
+                }
+                batchMachine.setLyricProgress(progresses[count - 1]);
+                batchMachine.setPitchBatch(pitches, scores, progresses, count);
+                batches++;
+                progress += count * 10;
+            }
+            assertEquals(singleEvents.toString(), batchEvents.toString());
+            assertTrue(refreshes[1] <= batches);
+            assertTrue(refreshes[1] < refreshes[0] || refreshes[0] == 0);
+            if (usingInternalScoring) {
+                assertTrue(batchEvents.indexOf("line") >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void testScoringMachineThreadSafety() throws InterruptedException {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        final LyricModel model = LyricPitchParser.parseFile(Utils.copyAssetsToCreateNewFile(appContext, "826125.xml"), null, true, 0);
+        assertNotNull(model);
+        LogUtils.destroy();
+        final int endTime = (int) model.lines.get(model.lines.size() - 1).getEndTime() + 1000;
+
+        // Score and line after each pitch, scored on a single thread
+        final Map<Long, String> expected = new ConcurrentHashMap<>();
+        ScoringMachine.Progress progress = new ScoringMachine.Progress();
+        ScoringMachine referenceMachine = new ScoringMachine(null);
+        referenceMachine.prepare(model, true);
+        expected.put(0L, "0.0/0");
+        for (int time = 10; time <= endTime; time += 10) {
+            referenceMachine.setLyricProgress(time);
+            referenceMachine.setPitch(60 + time % 7, 0, time);
+            referenceMachine.getProgress(progress);
+            expected.put(progress.pitchProgress, progress.cumulativeScore + "/" + progress.indexOfCurrentLine);
+        }
+        assertTrue(progress.cumulativeScore > 0);
+
+        // The same pitches set on a scoring thread, read at the same time as the views do
+        final ScoringMachine scoringMachine = new ScoringMachine(null);
+        scoringMachine.prepare(model, true);
+        final Throwable[] error = new Throwable[1];
+        Thread scoringThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int round = 0; round < 3; round++) {
+                        for (int time = 10; time <= endTime; time += 10) {
+                            scoringMachine.setLyricProgress(time);
+                            scoringMachine.setPitch(60 + time % 7, 0, time);
+                        }
+                    }
+                } catch (Throwable e) {
+                    error[0] = e;
+                }
+            }
+        });
+        scoringThread.start();
+        int reads = 0;
+        while (scoringThread.isAlive()) {
+            scoringMachine.getProgress(progress);
+            assertTrue(progress.song.getLyricsModel() == model);
+            assertEquals(expected.get(progress.pitchProgress), progress.cumulativeScore + "/" + progress.indexOfCurrentLine);
+            reads++;
+        }
+        scoringThread.join();
+        assertNull(error[0]);
+        Log.d(TAG, "testScoringMachineThreadSafety reads: " + reads);
+
+        // A new song is published at once and its scoring starts over, the next pitch scores it
+        scoringMachine.prepare(model, true);
+        ScoringMachine.Song song = scoringMachine.getSong();
+        assertTrue(song.getLyricsModel() == model);
+        assertEquals(model.lines.size(), song.getPitchLines().size());
+        scoringMachine.getProgress(progress);
+        assertTrue(progress.song == song);
+        assertEquals(0, progress.pitchProgress);
+        assertEquals(0, progress.cumulativeScore, 0);
+        assertEquals(0, progress.indexOfCurrentLine);
+        scoringThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                scoringMachine.setLyricProgress(endTime);
+                scoringMachine.setPitch(60, 0, endTime);
+            }
+        });
+        scoringThread.start();
+        scoringThread.join();
+        assertEquals(endTime, scoringMachine.getCurrentPitchProgress());
+        assertEquals(0, scoringMachine.getCumulativeScore(), 0);
+    }
+
+    @Test
+    public void testScoringMachineFirstPitchRace() throws InterruptedException {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        final LyricModel model = LyricPitchParser.parseFile(Utils.copyAssetsToCreateNewFile(appContext, "826125.xml"), null, true, 0);
+        assertNotNull(model);
+        LogUtils.destroy();
+        final LyricModel firstLines = model.copy();
+        firstLines.lines = new ArrayList<>(model.lines.subList(0, 3));
+        final int time = (int) model.lines.get(4).getStartTime();
+
+        // Songs prepared on one thread while the first pitches are set on another, the scoring state is never mixed
+        for (int round = 0; round < 200; round++) {
+            final ScoringMachine scoringMachine = new ScoringMachine(null);
+            scoringMachine.prepare(firstLines, true);
+            final CountDownLatch start = new CountDownLatch(1);
+            final Throwable[] error = new Throwable[2];
+            Thread preparingThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        // Switching songs until the scoring thread owns the state, the last one is the whole song
+                        for (int i = 0; i <= 50; i++) {
+                            scoringMachine.prepare(i % 2 == 0 ? model : firstLines, true);
+                        }
+                    } catch (Throwable e) {
+                        error[0] = e;
+                    }
+                }
+            });
+            Thread scoringThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 20; i++) {
+                            scoringMachine.setLyricProgress(time + i * 10);
+                            scoringMachine.setPitch(60, 0, time + i * 10);
+                        }
+                    } catch (Throwable e) {
+                        error[1] = e;
+                    }
+                }
+            });
+            preparingThread.start();
+            scoringThread.start();
+            start.countDown();
+            preparingThread.join();
+            scoringThread.join();
+            assertNull(error[0]);
+            assertNull(error[1]);
+
+            // The next pitch scores the song prepared last
+            scoringMachine.setLyricProgress(time + 200);
+            scoringMachine.setPitch(60, 0, time + 200);
+            ScoringMachine.Progress progress = new ScoringMachine.Progress();
+            scoringMachine.getProgress(progress);
+            assertTrue(progress.song == scoringMachine.getSong());
+            assertTrue(progress.song.getLyricsModel() == model);
+            assertEquals(time + 200, progress.pitchProgress);
+        }
+    }
+
+    @Test
+    public void testScoringMachineOwnershipHandoff() throws InterruptedException {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        final LyricModel model = LyricPitchParser.parseFile(Utils.copyAssetsToCreateNewFile(appContext, "826125.xml"), null, true, 0);
+        assertNotNull(model);
+        LogUtils.destroy();
+        final int time = (int) model.lines.get(2).getStartTime();
+
+        // The first pitch holds the scoring state until it is released from its callback
+        final CountDownLatch inCallback = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final StringBuffer progresses = new StringBuffer();
+        final ScoringMachine scoringMachine = new ScoringMachine(new ScoringMachine.OnScoringListener() {
+            @Override
+            public void resetUi() {
+            }
+
+            @Override
+            public void requestRefreshUi() {
+            }
+
+            @Override
+            public void onPitchAndScoreUpdate(float speakerPitch, double scoreAfterNormalization, long progress) {
+                progresses.append(progress).append(';');
+                if (progress == time) {
+                    inCallback.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void onLineFinished(LyricsLineModel line, int score, int cumulativeScore, int index, int lineCount) {
+            }
+        });
+        scoringMachine.prepare(model, false);
+        Thread scoringThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                scoringMachine.setPitch(60, 50, time);
+            }
+        });
+        scoringThread.start();
+        assertTrue(inCallback.await(5, TimeUnit.SECONDS));
+
+        // Pitches and changes coming meanwhile are handed off without waiting, the owner applies them before returning
+        scoringMachine.setPitch(61, 50, time + 10);
+        scoringMachine.setPitch(62, 50, time + 20);
+        scoringMachine.setInitialScore(5);
+        assertEquals(0, scoringMachine.getCumulativeScore(), 0);
+        release.countDown();
+        scoringThread.join();
+        assertEquals(time + ";" + (time + 10) + ";" + (time + 20) + ";", progresses.toString());
+        assertEquals(time + 20, scoringMachine.getCurrentPitchProgress());
+        assertEquals(5, scoringMachine.getCumulativeScore(), 0);
+
+        // Once the pitches stop, changes are applied at once by the calling thread
+        scoringMachine.whenDraggingHappen(0);
+        assertEquals(0, scoringMachine.getCurrentPitchProgress());
+        scoringMachine.reset();
+        assertNull(scoringMachine.getSong().getLyricsModel());
+        // Only the initial score is left
+        assertEquals(5, scoringMachine.getCumulativeScore(), 0);
+    }
+
+    private static ScoringMachine.OnScoringListener newRecordingScoringListener(final StringBuilder events, final int[] refreshes, final int counter) {
+        return new ScoringMachine.OnScoringListener() {
+            @Override
+            public void resetUi() {
+                events.append("reset;");
+            }
+
+            @Override
+            public void requestRefreshUi() {
+                refreshes[counter]++;
+            }
+
+            @Override
+            public void onPitchAndScoreUpdate(float speakerPitch, double scoreAfterNormalization, long progress) {
+                events.append(progress).append(':').append(speakerPitch).append('/').append(scoreAfterNormalization).append(';');
+            }
+
+            @Override
+            public void onLineFinished(LyricsLineModel line, int score, int cumulativeScore, int index, int lineCount) {
+                events.append("line").append(index).append(':').append(score).append('/').append(cumulativeScore).append(';');
+            }
+        };
+    }
 }
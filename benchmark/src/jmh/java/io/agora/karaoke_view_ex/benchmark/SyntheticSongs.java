@@ -0,0 +1,177 @@
+package io.agora.karaoke_view_ex.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * Generator of synthetic songs for the benchmarks
+ * <p>
+ * A song starts with a 10 seconds prelude, then has one line every 4 seconds made of 8 tones of 500ms each.
+ * The same song is available in each lyrics format (KRC, LRC, XML) and each pitch format
+ * (KRC pitch JSON and binary pitch file sampled every 10ms), so their parsing costs can be compared.
+ */
+public final class SyntheticSongs {
+    public static final int PRELUDE_DURATION = 10_000;
+    public static final int LINE_DURATION = 4_000;
+    public static final int TONES_PER_LINE = 8;
+    public static final int TONE_DURATION = LINE_DURATION / TONES_PER_LINE;
+    public static final int PITCH_INTERVAL = 10;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private SyntheticSongs() {
+    }
+
+    /**
+     * @param minutes Length of the song in minutes
+     * @return Number of lines of the song
+     */
+    public static int numberOfLines(int minutes) {
+        return (minutes * 60_000 - PRELUDE_DURATION) / LINE_DURATION;
+    }
+
+    /**
+     * @param minutes Length of the song in minutes
+     * @return Duration of the song in milliseconds, up to the end of the last line
+     */
+    public static int duration(int minutes) {
+        return PRELUDE_DURATION + numberOfLines(minutes) * LINE_DURATION;
+    }
+
+    public static int lineStart(int line) {
+        return PRELUDE_DURATION + line * LINE_DURATION;
+    }
+
+    public static int toneStart(int line, int tone) {
+        return lineStart(line) + tone * TONE_DURATION;
+    }
+
+    public static int pitchOf(int line, int tone) {
+        return 150 + (line * 7 + tone * 13) % 150;
+    }
+
+    /**
+     * @return A CJK character, like most songs of the catalog
+     */
+    public static char wordOf(int line, int tone) {
+        return (char) (0x4E00 + (line * 31 + tone) % 2000);
+    }
+
+    /**
+     * @return KRC lyrics: `[start,duration]<offset,duration,0>word...`
+     */
+    public static byte[] krc(int minutes) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("[id:$00000000]\n[ar:Benchmark]\n[ti:Synthetic ").append(minutes).append(" minutes]\n[offset:0]\n");
+        for (int line = 0; line < numberOfLines(minutes); line++) {
+            builder.append('[').append(lineStart(line)).append(',').append(LINE_DURATION).append(']');
+            for (int tone = 0; tone < TONES_PER_LINE; tone++) {
+                builder.append('<').append(tone * TONE_DURATION).append(',').append(TONE_DURATION).append(",0>")
+                        .append(wordOf(line, tone));
+            }
+            builder.append('\n');
+        }
+        return builder.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * @return LRC lyrics: `[mm:ss.xx]words`
+     */
+    public static byte[] lrc(int minutes) {
+        StringBuilder builder = new StringBuilder();
+        for (int line = 0; line < numberOfLines(minutes); line++) {
+            int start = lineStart(line);
+            builder.append('[');
+            appendPadded(builder, start / 60_000, 2);
+            builder.append(':');
+            appendPadded(builder, start / 1000 % 60, 2);
+            builder.append('.');
+            appendPadded(builder, start % 1000 / 10, 2);
+            builder.append(']');
+            for (int tone = 0; tone < TONES_PER_LINE; tone++) {
+                builder.append(wordOf(line, tone));
+            }
+            builder.append('\n');
+        }
+        return builder.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * @return XML lyrics with one sentence for each line and the tone pitches
+     */
+    public static byte[] xml(int minutes) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("<?xml version='1.0' encoding='utf-8'?>\n<song>\n\t<general>\n\t\t<name>Synthetic ").append(minutes)
+                .append(" minutes</name>\n\t\t<singer>Benchmark</singer>\n\t\t<type>1</type>\n\t</general>\n\t<midi_lrc>\n\t\t<paragraph>\n");
+        for (int line = 0; line < numberOfLines(minutes); line++) {
+            builder.append("\t\t\t<sentence>\n");
+            for (int tone = 0; tone < TONES_PER_LINE; tone++) {
+                int start = toneStart(line, tone);
+                builder.append("\t\t\t\t<tone begin=\"");
+                appendSeconds(builder, start);
+                builder.append("\" end=\"");
+                appendSeconds(builder, start + TONE_DURATION);
+                builder.append("\" lang=\"1\" pitch=\"").append(pitchOf(line, tone)).append("\" pronounce=\"\">\n\t\t\t\t\t<word>")
+                        .append(wordOf(line, tone)).append("</word>\n\t\t\t\t</tone>\n");
+            }
+            builder.append("\t\t\t</sentence>\n");
+        }
+        builder.append("\t\t</paragraph>\n\t</midi_lrc>\n</song>\n");
+        return builder.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * @return Binary pitch file: version, interval and reserved as int32, then one little-endian double every 10ms
+     */
+    public static byte[] xmlPitch(int minutes) {
+        int numberOfPitches = duration(minutes) / PITCH_INTERVAL;
+        ByteBuffer buffer = ByteBuffer.allocate(12 + numberOfPitches * 8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(1).putInt(PITCH_INTERVAL).putInt(0);
+        for (int i = 0; i < numberOfPitches; i++) {
+            int time = i * PITCH_INTERVAL;
+            double pitch = 0;
+            if (time >= PRELUDE_DURATION) {
+                int line = (time - PRELUDE_DURATION) / LINE_DURATION;
+                int tone = (time - lineStart(line)) / TONE_DURATION;
+                // Not rounded, like the output of a pitch tracker
+                pitch = pitchOf(line, tone) + (i % 7) * 0.1234567;
+            }
+            buffer.putDouble(pitch);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @return KRC pitch JSON with one entry for each tone
+     */
+    public static byte[] krcPitch(int minutes) {
+        StringBuilder builder = new StringBuilder("{\n  \"pitchDatas\" : [\n");
+        for (int line = 0; line < numberOfLines(minutes); line++) {
+            for (int tone = 0; tone < TONES_PER_LINE; tone++) {
+                if (line > 0 || tone > 0) {
+                    builder.append(",\n");
+                }
+                builder.append("    {\n      \"pitch\" : ").append(pitchOf(line, tone))
+                        .append(",\n      \"startTime\" : ").append(toneStart(line, tone))
+                        .append(",\n      \"duration\" : ").append(TONE_DURATION)
+                        .append("\n    }");
+            }
+        }
+        builder.append("\n  ]\n}\n");
+        return builder.toString().getBytes(UTF_8);
+    }
+
+    private static void appendSeconds(StringBuilder builder, int milliseconds) {
+        builder.append(milliseconds / 1000).append('.');
+        appendPadded(builder, milliseconds % 1000, 3);
+    }
+
+    private static void appendPadded(StringBuilder builder, int value, int digits) {
+        String text = Integer.toString(value);
+        for (int i = text.length(); i < digits; i++) {
+            builder.append('0');
+        }
+        builder.append(text);
+    }
+}
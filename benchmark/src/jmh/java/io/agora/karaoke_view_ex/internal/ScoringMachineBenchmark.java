@@ -0,0 +1,172 @@
+package io.agora.karaoke_view_ex.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+import io.agora.karaoke_view_ex.benchmark.SyntheticSongs;
+import io.agora.karaoke_view_ex.internal.lyric.parse.LyricPitchParser;
+import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
+import io.agora.karaoke_view_ex.internal.model.LyricsPitchLineModel;
+import io.agora.karaoke_view_ex.model.LyricModel;
+
+/**
+ * Preparation of the scoring machine for a song, and the pitch updates of a whole song
+ * <p>
+ * Pitches are scored with the external scoring mode, as the internal one calls the native library
+ * which is not available on the JVM.
+ */
+@State(Scope.Benchmark)
+public class ScoringMachineBenchmark {
+    /**
+     * Length of the synthetic song in minutes
+     */
+    @Param({"3", "15", "60"})
+    public int minutes;
+
+    private LyricModel xmlModel;
+    private LyricModel krcModel;
+    private ScoringMachine preparingMachine;
+    private ScoringMachine singingMachine;
+    private ScoringMachine tonePitchMachine;
+    private ScoringMachine publishingMachine;
+    private final ScoringMachine.Progress drawingProgress = new ScoringMachine.Progress();
+    private int publishedProgress;
+
+    private static final int BATCH_SIZE = 5;
+    private final float[] batchPitches = {200f, 200f, 200f, 200f, 200f};
+    private final float[] batchScores = new float[BATCH_SIZE];
+    private final int[] batchProgresses = new int[BATCH_SIZE];
+
+    @Setup
+    public void setUp() {
+        // Tone pitches from the lyrics
+        xmlModel = LyricPitchParser.parseLyricData(SyntheticSongs.xml(minutes), null, true, 0);
+        // Pitch data from a separate pitch file
+        krcModel = LyricPitchParser.parseLyricData(SyntheticSongs.krc(minutes), SyntheticSongs.krcPitch(minutes), true, 0);
+
+        preparingMachine = new ScoringMachine(new NoOpScoringListener());
+        singingMachine = new ScoringMachine(new NoOpScoringListener());
+        singingMachine.prepare(krcModel, false);
+        tonePitchMachine = new ScoringMachine(new NoOpScoringListener());
+        tonePitchMachine.prepare(xmlModel, false);
+        publishingMachine = new ScoringMachine(new NoOpScoringListener());
+        publishingMachine.prepare(krcModel, false);
+    }
+
+    @Benchmark
+    public List<LyricsPitchLineModel> prepareWithTonePitches() {
+        preparingMachine.prepare(xmlModel, false);
+        return preparingMachine.getPitchLines();
+    }
+
+    @Benchmark
+    public List<LyricsPitchLineModel> prepareWithPitchData() {
+        preparingMachine.prepare(krcModel, false);
+        return preparingMachine.getPitchLines();
+    }
+
+    /**
+     * One pitch every 20ms from the start to the end of the song, like the pitch callbacks of a real performance
+     */
+    @Benchmark
+    public long setPitch() {
+        int duration = SyntheticSongs.duration(minutes);
+        for (int progress = 20; progress <= duration; progress += 20) {
+            singingMachine.setPitch(200f, 0f, progress);
+        }
+        return singingMachine.getCurrentPitchProgress();
+    }
+
+    /**
+     * The same pitches in bursts of 5 frames, as delivered by one audio callback
+     */
+    @Benchmark
+    public long setPitchBatch() {
+        int duration = SyntheticSongs.duration(minutes);
+        for (int progress = 20; progress + 80 <= duration; progress += 100) {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                batchProgresses[i] = progress + i * 20;
+            }
+            singingMachine.setPitchBatch(batchPitches, batchScores, batchProgresses, BATCH_SIZE);
+        }
+        return singingMachine.getCurrentPitchProgress();
+    }
+
+    /**
+     * Scrubbing from the end to the start of the song, one drag event every 100ms of the song
+     */
+    @Benchmark
+    public long scrub() {
+        for (int progress = SyntheticSongs.duration(minutes); progress > 0; progress -= 100) {
+            singingMachine.whenDraggingHappen(progress);
+        }
+        return singingMachine.getCurrentPitchProgress();
+    }
+
+    /**
+     * One pitch per call on the scoring thread while another thread reads the progress, as the view does for each frame
+     */
+    @Benchmark
+    @Group("publication")
+    @GroupThreads(1)
+    public long publishPitch() {
+        publishedProgress = publishedProgress + 20 > SyntheticSongs.duration(minutes) ? 20 : publishedProgress + 20;
+        publishingMachine.setPitch(200f, 0f, publishedProgress);
+        return publishedProgress;
+    }
+
+    @Benchmark
+    @Group("publication")
+    @GroupThreads(1)
+    public long readProgress() {
+        publishingMachine.getProgress(drawingProgress);
+        return drawingProgress.pitchProgress + (long) drawingProgress.cumulativeScore;
+    }
+
+    /**
+     * Reference pitch every 10ms from the start to the end of the song, as looked up by the external scoring
+     */
+    @Benchmark
+    public float getRefPitchFromPitchData() {
+        return sumOfRefPitches(singingMachine);
+    }
+
+    @Benchmark
+    public float getRefPitchFromTonePitches() {
+        return sumOfRefPitches(tonePitchMachine);
+    }
+
+    private float sumOfRefPitches(ScoringMachine machine) {
+        float sum = 0;
+        int duration = SyntheticSongs.duration(minutes);
+        for (int progress = 10; progress <= duration; progress += 10) {
+            sum += machine.getRefPitch(progress);
+        }
+        return sum;
+    }
+
+    private static class NoOpScoringListener implements ScoringMachine.OnScoringListener {
+        @Override
+        public void resetUi() {
+        }
+
+        @Override
+        public void requestRefreshUi() {
+        }
+
+        @Override
+        public void onPitchAndScoreUpdate(float speakerPitch, double scoreAfterNormalization, long progress) {
+        }
+
+        @Override
+        public void onLineFinished(LyricsLineModel line, int score, int cumulativeScore, int index, int lineCount) {
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package io.agora.karaoke_view_ex.internal.lyric.parse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import io.agora.karaoke_view_ex.benchmark.SyntheticSongs;
+import io.agora.karaoke_view_ex.model.LyricModel;
+
+/**
+ * Parsing of lyrics together with their pitch data, with the pitch data decoded
+ * after the lyrics (sequential) or at the same time in the background (parallel)
+ */
+@State(Scope.Benchmark)
+public class LyricPitchParserBenchmark {
+    /**
+     * Length of the synthetic song in minutes, long songs come with large pitch files
+     */
+    @Param({"3", "15", "60"})
+    public int minutes;
+
+    /**
+     * Whether the pitch data is decoded in parallel with the lyrics
+     */
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private byte[] krc;
+    private byte[] krcPitch;
+    private byte[] lrc;
+    private byte[] xml;
+    private byte[] xmlPitch;
+
+    @Setup
+    public void setUp() {
+        krc = SyntheticSongs.krc(minutes);
+        krcPitch = SyntheticSongs.krcPitch(minutes);
+        lrc = SyntheticSongs.lrc(minutes);
+        xml = SyntheticSongs.xml(minutes);
+        xmlPitch = SyntheticSongs.xmlPitch(minutes);
+    }
+
+    @Benchmark
+    public LyricModel parseKrcWithPitch() {
+        return LyricPitchParser.parseLyricData(krc, krcPitch, true, 0, parallel, null);
+    }
+
+    @Benchmark
+    public LyricModel parseLrcWithPitch() {
+        return LyricPitchParser.parseLyricData(lrc, xmlPitch, true, 0, parallel, null);
+    }
+
+    @Benchmark
+    public LyricModel parseXmlWithPitch() {
+        return LyricPitchParser.parseLyricData(xml, xmlPitch, true, 0, parallel, null);
+    }
+}
@@ -0,0 +1,48 @@
+package io.agora.karaoke_view_ex.internal.lyric.parse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import io.agora.karaoke_view_ex.benchmark.SyntheticSongs;
+import io.agora.karaoke_view_ex.model.LyricModel;
+
+/**
+ * Parsing of whole lyrics files, in each format
+ */
+@State(Scope.Benchmark)
+public class LyricsParserBenchmark {
+    /**
+     * Length of the synthetic song in minutes
+     */
+    @Param({"3", "15", "60"})
+    public int minutes;
+
+    private byte[] krc;
+    private byte[] lrc;
+    private byte[] xml;
+
+    @Setup
+    public void setUp() {
+        krc = SyntheticSongs.krc(minutes);
+        lrc = SyntheticSongs.lrc(minutes);
+        xml = SyntheticSongs.xml(minutes);
+    }
+
+    @Benchmark
+    public LyricModel doParseKrc() {
+        return LyricParser.doParseKrc(krc, 0);
+    }
+
+    @Benchmark
+    public LyricModel doParseLrc() {
+        return LyricParser.doParseLrc(lrc);
+    }
+
+    @Benchmark
+    public LyricModel parseXml() {
+        return LyricsParserXml.parseXml(xml);
+    }
+}
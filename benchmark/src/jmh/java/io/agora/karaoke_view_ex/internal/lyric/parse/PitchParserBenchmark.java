@@ -0,0 +1,44 @@
+package io.agora.karaoke_view_ex.internal.lyric.parse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+import io.agora.karaoke_view_ex.benchmark.SyntheticSongs;
+import io.agora.karaoke_view_ex.internal.model.PitchData;
+import io.agora.karaoke_view_ex.internal.model.XmlPitchData;
+
+/**
+ * Decoding of whole pitch files, binary ones sampled every 10ms and KRC pitch JSON
+ */
+@State(Scope.Benchmark)
+public class PitchParserBenchmark {
+    /**
+     * Length of the synthetic song in minutes
+     */
+    @Param({"3", "15", "60"})
+    public int minutes;
+
+    private byte[] xmlPitch;
+    private byte[] krcPitch;
+
+    @Setup
+    public void setUp() {
+        xmlPitch = SyntheticSongs.xmlPitch(minutes);
+        krcPitch = SyntheticSongs.krcPitch(minutes);
+    }
+
+    @Benchmark
+    public XmlPitchData doParseXml() {
+        return PitchParser.doParseXml(xmlPitch);
+    }
+
+    @Benchmark
+    public List<PitchData> doParseKrc() {
+        return PitchParser.doParseKrc(krcPitch);
+    }
+}
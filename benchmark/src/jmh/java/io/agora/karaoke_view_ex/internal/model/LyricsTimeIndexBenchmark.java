@@ -0,0 +1,83 @@
+package io.agora.karaoke_view_ex.internal.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import io.agora.karaoke_view_ex.benchmark.SyntheticSongs;
+import io.agora.karaoke_view_ex.internal.lyric.parse.LyricPitchParser;
+
+/**
+ * Line and tone lookups every 20ms from the start to the end of a song, like the pitch callbacks of the internal scoring
+ */
+@State(Scope.Benchmark)
+public class LyricsTimeIndexBenchmark {
+    /**
+     * Length of the synthetic song in minutes
+     */
+    @Param({"3", "15", "60"})
+    public int minutes;
+
+    private CompactLyricModel lyrics;
+    private LyricsTimeIndex index;
+    private LyricsTimeIndex.Cursor cursor;
+
+    @Setup
+    public void setUp() {
+        lyrics = LyricPitchParser.parseLyricData(SyntheticSongs.xml(minutes), null, true, 0).freeze().normalized();
+        index = lyrics.getTimeIndex();
+        cursor = index.newCursor();
+    }
+
+    /**
+     * Scan of every line and tone from the first one, as done before the time index
+     */
+    @Benchmark
+    public long linearScan() {
+        long sum = 0;
+        int duration = SyntheticSongs.duration(minutes);
+        for (int progress = 20; progress <= duration; progress += 20) {
+            for (int line = 0; line < lyrics.getLineCount(); line++) {
+                if (progress >= lyrics.getLineStartTime(line) && progress <= lyrics.getLineEndTime(line)) {
+                    int end = lyrics.getFirstToneIndex(line) + lyrics.getToneCount(line);
+                    for (int tone = lyrics.getFirstToneIndex(line); tone < end; tone++) {
+                        if (progress >= lyrics.getToneBegin(tone) && progress <= lyrics.getToneEnd(tone)) {
+                            sum += tone;
+                            break;
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long binarySearch() {
+        long sum = 0;
+        int duration = SyntheticSongs.duration(minutes);
+        for (int progress = 20; progress <= duration; progress += 20) {
+            int line = index.lineAt(progress);
+            if (line >= 0) {
+                sum += index.toneAt(line, progress);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long cursor() {
+        long sum = 0;
+        int duration = SyntheticSongs.duration(minutes);
+        cursor.reset();
+        for (int progress = 20; progress <= duration; progress += 20) {
+            if (cursor.moveTo(progress) >= 0) {
+                sum += cursor.getTone();
+            }
+        }
+        return sum;
+    }
+}
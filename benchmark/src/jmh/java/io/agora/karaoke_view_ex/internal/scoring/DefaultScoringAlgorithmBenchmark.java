@@ -0,0 +1,101 @@
+package io.agora.karaoke_view_ex.internal.scoring;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import io.agora.karaoke_view_ex.benchmark.SyntheticSongs;
+import io.agora.karaoke_view_ex.internal.lyric.parse.LyricPitchParser;
+import io.agora.karaoke_view_ex.internal.model.CompactLyricModel;
+import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
+import io.agora.karaoke_view_ex.internal.model.PitchScoreBuffer;
+import io.agora.karaoke_view_ex.model.LyricModel;
+
+/**
+ * Line scores of all the lines of a song, each from the pitch scores received every 20ms while it was sung
+ */
+@State(Scope.Benchmark)
+public class DefaultScoringAlgorithmBenchmark {
+    /**
+     * Length of the synthetic song in minutes
+     */
+    @Param({"3", "15", "60"})
+    public int minutes;
+
+    private final DefaultScoringAlgorithm mAlgorithm = new DefaultScoringAlgorithm();
+    private List<LyricsLineModel> lines;
+    private List<LinkedHashMap<Long, Float>> scoresOfLines;
+    private List<LinkedHashMap<Long, Float>> pitchesForLines;
+    private CompactLyricModel lyrics;
+    private final PitchScoreBuffer buffer = new PitchScoreBuffer();
+
+    @Setup
+    public void setUp() {
+        LyricModel model = LyricPitchParser.parseLyricData(SyntheticSongs.xml(minutes), null, true, 0);
+        lines = model.lines;
+        lyrics = model.freeze();
+        scoresOfLines = new ArrayList<>(lines.size());
+        for (LyricsLineModel line : lines) {
+            LinkedHashMap<Long, Float> scores = new LinkedHashMap<>();
+            for (long timestamp = line.getStartTime(); timestamp <= line.getEndTime(); timestamp += 20) {
+                scores.put(timestamp, (float) (timestamp / 20 % 100));
+            }
+            scoresOfLines.add(scores);
+        }
+    }
+
+    /**
+     * getLineScore consumes the pitch scores it is given, each invocation gets its own copy
+     */
+    @Setup(Level.Invocation)
+    public void copyScores() {
+        pitchesForLines = new ArrayList<>(scoresOfLines.size());
+        for (LinkedHashMap<Long, Float> scores : scoresOfLines) {
+            pitchesForLines.add(new LinkedHashMap<>(scores));
+        }
+    }
+
+    @Benchmark
+    public int getLineScore() {
+        int totalScore = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            totalScore += mAlgorithm.getLineScore(pitchesForLines.get(i), i, lines.get(i));
+        }
+        return totalScore;
+    }
+
+    /**
+     * Pitch scores put every 20ms while each line is sung then scored, as done by the scoring machine
+     */
+    @Benchmark
+    public int putAndScoreWithMap() {
+        int totalScore = 0;
+        LinkedHashMap<Long, Float> pitches = new LinkedHashMap<>();
+        for (int i = 0; i < lyrics.getLineCount(); i++) {
+            for (long timestamp = lyrics.getLineStartTime(i); timestamp <= lyrics.getLineEndTime(i); timestamp += 20) {
+                pitches.put(timestamp, (float) (timestamp / 20 % 100));
+            }
+            totalScore += mAlgorithm.getLineScore(pitches, i, lyrics);
+        }
+        return totalScore;
+    }
+
+    @Benchmark
+    public int putAndScoreWithBuffer() {
+        int totalScore = 0;
+        for (int i = 0; i < lyrics.getLineCount(); i++) {
+            for (long timestamp = lyrics.getLineStartTime(i); timestamp <= lyrics.getLineEndTime(i); timestamp += 20) {
+                buffer.put(timestamp, (float) (timestamp / 20 % 100));
+            }
+            totalScore += mAlgorithm.getLineScore(buffer, i, lyrics);
+        }
+        return totalScore;
+    }
+}
@@ -0,0 +1,12 @@
+package android.content;
+
+import java.io.File;
+
+/**
+ * JVM replacement of the Android Context, only what the benchmarked library classes use
+ */
+public abstract class Context {
+    public File getExternalFilesDir(String type) {
+        return null;
+    }
+}
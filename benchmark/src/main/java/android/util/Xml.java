@@ -0,0 +1,13 @@
+package android.util;
+
+import org.kxml2.io.KXmlParser;
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * JVM replacement of the Android Xml, backed by KXmlParser like Android itself
+ */
+public class Xml {
+    public static XmlPullParser newPullParser() {
+        return new KXmlParser();
+    }
+}
@@ -0,0 +1,7 @@
+package io.agora.logging;
+
+/**
+ * JVM replacement of the console logger of the Agora logging service
+ */
+public class ConsoleLogger implements Logger {
+}
@@ -0,0 +1,11 @@
+package io.agora.logging;
+
+import java.util.List;
+
+/**
+ * JVM replacement of the file logger of the Agora logging service
+ */
+public class FileLogger implements Logger {
+    public FileLogger(String folder, String fileName, long maxFileSize, int maxFileCount, List<String> tags) {
+    }
+}
@@ -0,0 +1,7 @@
+package io.agora.logging;
+
+/**
+ * JVM replacement of the logger of the Agora logging service
+ */
+public interface Logger {
+}
@@ -2,7 +2,9 @@ package io.agora.karaoke_view_ex;
 
 import java.util.LinkedHashMap;
 
+import io.agora.karaoke_view_ex.internal.model.CompactLyricModel;
 import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
+import io.agora.karaoke_view_ex.internal.model.PitchScoreBuffer;
 
 /**
  * Interface defining the scoring algorithm for karaoke performance evaluation.
@@ -30,6 +32,38 @@ public interface IScoringAlgorithm {
      */
     int getLineScore(LinkedHashMap<Long, Float> pitchesForLine, final int indexOfLineJustFinished, final LyricsLineModel lineJustFinished);
 
+    /**
+     * Calculate the overall score for a completed lyrics line of compact lyrics.
+     * The default implementation creates the LyricsLineModel of the line and calls
+     * {@link #getLineScore(LinkedHashMap, int, LyricsLineModel)}, implementations may read the lyrics directly instead.
+     *
+     * @param pitchesForLine          Map of timestamps to pitch values for the completed line
+     * @param indexOfLineJustFinished Index of the completed line in the lyrics sequence
+     * @param lyrics                  The lyrics containing the completed line
+     * @return Integer score for the completed line
+     */
+    default int getLineScore(LinkedHashMap<Long, Float> pitchesForLine, final int indexOfLineJustFinished, final CompactLyricModel lyrics) {
+        return getLineScore(pitchesForLine, indexOfLineJustFinished, lyrics.getLine(indexOfLineJustFinished));
+    }
+
+    /**
+     * Calculate the overall score for a completed lyrics line of compact lyrics, from a buffer of pitch scores.
+     * The scores consumed are removed from the buffer. The default implementation copies the buffer into a map,
+     * calls {@link #getLineScore(LinkedHashMap, int, CompactLyricModel)} and puts the scores left in the map back.
+     * Implementations may read the buffer directly instead, without allocating.
+     *
+     * @param pitchesForLine          Buffer of the pitch scores by timestamp for the completed line
+     * @param indexOfLineJustFinished Index of the completed line in the lyrics sequence
+     * @param lyrics                  The lyrics containing the completed line
+     * @return Integer score for the completed line
+     */
+    default int getLineScore(PitchScoreBuffer pitchesForLine, final int indexOfLineJustFinished, final CompactLyricModel lyrics) {
+        LinkedHashMap<Long, Float> pitches = pitchesForLine.toLinkedHashMap();
+        int score = getLineScore(pitches, indexOfLineJustFinished, lyrics);
+        pitchesForLine.setAll(pitches);
+        return score;
+    }
+
     /**
      * Get the maximum possible score that can be achieved for a line.
      *
@@ -1,14 +1,23 @@
 package io.agora.karaoke_view_ex;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 
 import java.io.File;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import io.agora.karaoke_view_ex.internal.LyricMachine;
 import io.agora.karaoke_view_ex.internal.ScoringMachine;
+import io.agora.karaoke_view_ex.internal.lyric.cache.CompiledLyricsCache;
 import io.agora.karaoke_view_ex.internal.lyric.parse.LyricPitchParser;
 import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
+import io.agora.karaoke_view_ex.internal.utils.ExecutorFactory;
 import io.agora.karaoke_view_ex.internal.utils.LogUtils;
 import io.agora.karaoke_view_ex.model.LyricModel;
 import io.agora.logging.Logger;
@@ -48,6 +57,74 @@ public class KaraokeView {
      */
     private Context mContext;
 
+    /**
+     * Latest asynchronous parsing task of this view
+     */
+    private LyricsParseTask mParseTask;
+
+    /**
+     * Latest progressive loading task of this view
+     */
+    private LyricsParseTask mLoadTask;
+
+    /**
+     * Whether the asynchronous parsing of this view decodes pitch data in parallel with the lyrics
+     */
+    private volatile boolean mParallelParsing;
+
+    /**
+     * Number of lines shown before the rest of the lyrics is loaded,
+     * enough to fill the lyrics view during the prelude and the first lines
+     */
+    private static final int NUMBER_OF_FIRST_LINES_TO_LOAD = 10;
+
+    /**
+     * Maximum number of lyrics parsed at the same time in the background
+     */
+    private static final int MAX_PARSE_THREAD_NUM = 2;
+
+    /**
+     * Maximum number of lyrics waiting to be parsed, the oldest one is cancelled to make room for a new one
+     */
+    private static final int MAX_PARSE_QUEUE_SIZE = 16;
+
+    /**
+     * Executor of asynchronous parsing, shared by all views and created on first use
+     */
+    private static class ParseExecutorHolder {
+        private static final ExecutorService EXECUTOR = ExecutorFactory.newBoundedExecutor("KaraokeView-parser-",
+                MAX_PARSE_THREAD_NUM, MAX_PARSE_QUEUE_SIZE, new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException("Parse executor is shut down");
+                        }
+                        // Newer requests supersede older ones, so drop the oldest pending parsing
+                        Runnable oldest = executor.getQueue().poll();
+                        if (oldest instanceof ParseJob && ((ParseJob) oldest).mTask.cancel()) {
+                            LogUtils.i("parseLyricDataAsync too many pending parsings, cancel the oldest one");
+                        }
+                        executor.execute(runnable);
+                    }
+                });
+    }
+
+    /**
+     * Queued work of a parsing task, so that the task can be cancelled when it is dropped from the queue
+     */
+    private static final class ParseJob implements Runnable {
+        private final LyricsParseTask mTask;
+
+        ParseJob(LyricsParseTask task) {
+            this.mTask = task;
+        }
+
+        @Override
+        public void run() {
+            mTask.run();
+        }
+    }
+
     /**
      * Constructor with both lyrics and scoring views
      *
@@ -112,8 +189,10 @@ public class KaraokeView {
         mScoringMachine = new ScoringMachine(new ScoringMachine.OnScoringListener() {
             @Override
             public void onLineFinished(LyricsLineModel line, int score, int cumulativeScore, int index, int lineCount) {
-                LogUtils.d("onLineFinished line startTime:" + line.getStartTime() + ",line endTime:" + line.getEndTime() +
-                        ",score:" + score + ",cumulativeScore:" + cumulativeScore + ",index:" + index + ",lineCount:" + lineCount);
+                if (LogUtils.isEnabled()) {
+                    LogUtils.d("onLineFinished line startTime:" + line.getStartTime() + ",line endTime:" + line.getEndTime() +
+                            ",score:" + score + ",cumulativeScore:" + cumulativeScore + ",index:" + index + ",lineCount:" + lineCount);
+                }
 
                 if (mScoringView != null) {
                     mScoringView.resetPitchIndicatorAndAnimationWhenFullLineFinished(score);
@@ -126,7 +205,9 @@ public class KaraokeView {
 
             @Override
             public void onPitchAndScoreUpdate(float speakerPitch, double scoreAfterNormalization, long progress) {
-                LogUtils.d("onPitchAndScoreUpdate speakerPitch:" + speakerPitch + ",scoreAfterNormalization:" + scoreAfterNormalization + ",progress:" + progress);
+                if (LogUtils.isEnabled()) {
+                    LogUtils.d("onPitchAndScoreUpdate speakerPitch:" + speakerPitch + ",scoreAfterNormalization:" + scoreAfterNormalization + ",progress:" + progress);
+                }
                 if (mScoringView != null) {
                     mScoringView.updatePitchAndScore(speakerPitch, (float) scoreAfterNormalization);
                 }
@@ -163,6 +244,7 @@ public class KaraokeView {
      */
     public void reset() {
         LogUtils.d("reset");
+        cancelLoading();
         if (mLyricsView != null) {
             mLyricsView.reset();
         }
@@ -209,6 +291,23 @@ public class KaraokeView {
         return LyricPitchParser.parseFile(lyricFile, pitchFile, includeCopyrightSentence, lyricOffset);
     }
 
+    /**
+     * Parse lyrics data from files with copyright control and offset, optionally decoding the pitch data in parallel
+     * In parallel mode, pitch data is decoded in the background while the lyrics are parsed, which shortens
+     * the parsing of songs with large pitch files on multi-core devices
+     *
+     * @param lyricFile                Lyrics file
+     * @param pitchFile                Pitch data file
+     * @param includeCopyrightSentence Whether to include copyright information
+     * @param lyricOffset              Timing offset for lyrics
+     * @param parallel                 true to parse lyrics and pitch data at the same time, false to parse them one after the other
+     * @return Parsed lyrics model
+     */
+    public static LyricModel parseLyricData(File lyricFile, File pitchFile, boolean includeCopyrightSentence, int lyricOffset,
+                                            boolean parallel) {
+        return LyricPitchParser.parseFile(lyricFile, pitchFile, includeCopyrightSentence, lyricOffset, parallel, null);
+    }
+
     /**
      * Parse lyrics data from byte arrays
      *
@@ -245,6 +344,254 @@ public class KaraokeView {
         return LyricPitchParser.parseLyricData(lyricData, pitchData, includeCopyrightSentence, lyricOffset);
     }
 
+    /**
+     * Parse lyrics data from byte arrays with copyright control and offset, optionally decoding the pitch data in parallel
+     * In parallel mode, pitch data is decoded in the background while the lyrics are parsed, which shortens
+     * the parsing of songs with large pitch files on multi-core devices
+     *
+     * @param lyricData                Lyrics data bytes
+     * @param pitchData                Pitch data bytes
+     * @param includeCopyrightSentence Whether to include copyright information
+     * @param lyricOffset              Timing offset for lyrics
+     * @param parallel                 true to parse lyrics and pitch data at the same time, false to parse them one after the other
+     * @return Parsed lyrics model
+     */
+    public static LyricModel parseLyricData(byte[] lyricData, byte[] pitchData, boolean includeCopyrightSentence, int lyricOffset,
+                                            boolean parallel) {
+        return LyricPitchParser.parseLyricData(lyricData, pitchData, includeCopyrightSentence, lyricOffset, parallel, null);
+    }
+
+    /**
+     * Parse lyrics data from files in the background, the result is delivered on the main thread
+     * A newer asynchronous parsing request on this view cancels the previous one
+     *
+     * @param lyricFile Lyrics file
+     * @param pitchFile Pitch data file
+     * @param callback  Callback receiving the parsed lyrics model
+     * @return Handle to cancel the parsing
+     */
+    public LyricsParseTask parseLyricDataAsync(File lyricFile, File pitchFile, LyricsParseCallback callback) {
+        return parseLyricDataAsync(lyricFile, pitchFile, true, 0, null, callback);
+    }
+
+    /**
+     * Parse lyrics data from files in the background
+     * A newer asynchronous parsing request on this view cancels the previous one
+     *
+     * @param lyricFile                Lyrics file
+     * @param pitchFile                Pitch data file
+     * @param includeCopyrightSentence Whether to include copyright information
+     * @param lyricOffset              Timing offset for lyrics
+     * @param callbackExecutor         Executor the callback is called on, such as {@code new Handler(looper)::post},
+     *                                 or null for the main thread
+     * @param callback                 Callback receiving the parsed lyrics model
+     * @return Handle to cancel the parsing
+     */
+    public LyricsParseTask parseLyricDataAsync(final File lyricFile, final File pitchFile, final boolean includeCopyrightSentence,
+                                               final int lyricOffset, Executor callbackExecutor, LyricsParseCallback callback) {
+        final boolean parallel = mParallelParsing;
+        return submitParseTask(new LyricsParseTask.Parser() {
+            @Override
+            public LyricModel parse(LyricsParseTask task) {
+                return LyricPitchParser.parseFile(lyricFile, pitchFile, includeCopyrightSentence, lyricOffset, parallel, task);
+            }
+        }, callbackExecutor, callback, false);
+    }
+
+    /**
+     * Parse lyrics data from byte arrays in the background, the result is delivered on the main thread
+     * A newer asynchronous parsing request on this view cancels the previous one
+     *
+     * @param lyricData Lyrics data bytes
+     * @param pitchData Pitch data bytes
+     * @param callback  Callback receiving the parsed lyrics model
+     * @return Handle to cancel the parsing
+     */
+    public LyricsParseTask parseLyricDataAsync(byte[] lyricData, byte[] pitchData, LyricsParseCallback callback) {
+        return parseLyricDataAsync(lyricData, pitchData, true, 0, null, callback);
+    }
+
+    /**
+     * Parse lyrics data from byte arrays in the background
+     * A newer asynchronous parsing request on this view cancels the previous one
+     *
+     * @param lyricData                Lyrics data bytes
+     * @param pitchData                Pitch data bytes
+     * @param includeCopyrightSentence Whether to include copyright information
+     * @param lyricOffset              Timing offset for lyrics
+     * @param callbackExecutor         Executor the callback is called on, such as {@code new Handler(looper)::post},
+     *                                 or null for the main thread
+     * @param callback                 Callback receiving the parsed lyrics model
+     * @return Handle to cancel the parsing
+     */
+    public LyricsParseTask parseLyricDataAsync(final byte[] lyricData, final byte[] pitchData, final boolean includeCopyrightSentence,
+                                               final int lyricOffset, Executor callbackExecutor, LyricsParseCallback callback) {
+        final boolean parallel = mParallelParsing;
+        return submitParseTask(new LyricsParseTask.Parser() {
+            @Override
+            public LyricModel parse(LyricsParseTask task) {
+                return LyricPitchParser.parseLyricData(lyricData, pitchData, includeCopyrightSentence, lyricOffset, parallel, task);
+            }
+        }, callbackExecutor, callback, false);
+    }
+
+    /**
+     * Load lyrics and pitch data from files in the background and show them progressively
+     * The first lines are shown as soon as they are parsed, the following lines are added while the rest
+     * of the file is parsed, so long songs start rendering without waiting for the whole file
+     * A newer loading request or a call to setLyricData cancels the previous loading
+     *
+     * @param lyricFile            Lyrics file
+     * @param pitchFile            Pitch data file
+     * @param usingInternalScoring Whether to use internal scoring algorithm
+     * @param callback             Callback called on the main thread once all lines are shown, may be null
+     * @return Handle to cancel the loading
+     */
+    public LyricsParseTask loadLyricData(File lyricFile, File pitchFile, boolean usingInternalScoring, LyricsParseCallback callback) {
+        return loadLyricData(lyricFile, pitchFile, true, 0, usingInternalScoring, callback);
+    }
+
+    /**
+     * Load lyrics and pitch data from files in the background and show them progressively
+     * The first lines are shown as soon as they are parsed, the following lines are added while the rest
+     * of the file is parsed, so long songs start rendering without waiting for the whole file
+     * A newer loading request or a call to setLyricData cancels the previous loading
+     *
+     * @param lyricFile                Lyrics file
+     * @param pitchFile                Pitch data file
+     * @param includeCopyrightSentence Whether to include copyright information
+     * @param lyricOffset              Timing offset for lyrics
+     * @param usingInternalScoring     Whether to use internal scoring algorithm
+     * @param callback                 Callback called on the main thread once all lines are shown, may be null
+     * @return Handle to cancel the loading
+     */
+    public LyricsParseTask loadLyricData(final File lyricFile, final File pitchFile, final boolean includeCopyrightSentence,
+                                         final int lyricOffset, final boolean usingInternalScoring, final LyricsParseCallback callback) {
+        // Only accessed on the main thread
+        final boolean[] shown = new boolean[1];
+        final boolean parallel = mParallelParsing;
+        return submitParseTask(new LyricsParseTask.Parser() {
+            @Override
+            public LyricModel parse(final LyricsParseTask task) {
+                return LyricPitchParser.parseFileProgressively(lyricFile, pitchFile, includeCopyrightSentence, lyricOffset,
+                        NUMBER_OF_FIRST_LINES_TO_LOAD, new LyricPitchParser.OnLyricsProgressListener() {
+                            @Override
+                            public void onLinesParsed(final LyricModel model) {
+                                task.publish(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        showLoadedLyricData(model, usingInternalScoring, shown);
+                                    }
+                                });
+                            }
+                        }, parallel, task);
+            }
+        }, null, new LyricsParseCallback() {
+            @Override
+            public void onLyricsParsed(LyricsParseTask task, LyricModel model) {
+                showLoadedLyricData(model, usingInternalScoring, shown);
+                if (callback != null) {
+                    callback.onLyricsParsed(task, model);
+                }
+            }
+        }, true);
+    }
+
+    /**
+     * Show lyrics data being loaded, the first time like setLyricData and then keeping the progress and scores
+     *
+     * @param model                Lyrics model loaded so far, or null if the loading failed
+     * @param usingInternalScoring Whether to use internal scoring algorithm
+     * @param shown                Whether lyrics of this loading are already shown
+     */
+    private void showLoadedLyricData(LyricModel model, boolean usingInternalScoring, boolean[] shown) {
+        if (!shown[0] || model == null) {
+            prepareLyricData(model, usingInternalScoring);
+            shown[0] = true;
+            return;
+        }
+        LogUtils.d("showLoadedLyricData lines:" + model.lines.size());
+        mLyricMachine.update(model);
+        mScoringMachine.update(model);
+
+        if (mLyricsView != null) {
+            mLyricsView.attachToLyricMachine(mLyricMachine);
+        }
+    }
+
+    /**
+     * Submit a parsing task to the parse executor, cancelling the previous one of the same kind of this view
+     *
+     * @param parser           The parsing work
+     * @param callbackExecutor Executor the callback is called on, or null for the main thread
+     * @param callback         Callback receiving the parsed lyrics model
+     * @param loading          Whether the task loads lyrics into this view, rather than only parsing them
+     * @return The submitted task
+     */
+    private LyricsParseTask submitParseTask(LyricsParseTask.Parser parser, Executor callbackExecutor, LyricsParseCallback callback, boolean loading) {
+        if (callbackExecutor == null) {
+            callbackExecutor = new Executor() {
+                private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+                @Override
+                public void execute(Runnable command) {
+                    mMainHandler.post(command);
+                }
+            };
+        }
+        LyricsParseTask task = new LyricsParseTask(parser, callbackExecutor, callback);
+        LyricsParseTask previous;
+        synchronized (this) {
+            if (loading) {
+                previous = mLoadTask;
+                mLoadTask = task;
+            } else {
+                previous = mParseTask;
+                mParseTask = task;
+            }
+        }
+        if (previous != null && previous.cancel()) {
+            LogUtils.d("parseLyricDataAsync cancel previous parsing");
+        }
+        try {
+            ParseExecutorHolder.EXECUTOR.execute(new ParseJob(task));
+        } catch (RejectedExecutionException e) {
+            LogUtils.e("parseLyricDataAsync rejected: " + e.getMessage());
+            task.cancel();
+        }
+        return task;
+    }
+
+    /**
+     * Enable or disable parallel parsing for the asynchronous parsing and loading of this view
+     * When enabled, pitch data is decoded in the background while the lyrics are parsed, which shortens
+     * the loading of songs with large pitch files on multi-core devices
+     * Only requests made after the call are affected
+     *
+     * @param enabled true to parse lyrics and pitch data at the same time, false to parse them one after the other (default)
+     */
+    public void setParallelParsing(boolean enabled) {
+        mParallelParsing = enabled;
+    }
+
+    /**
+     * Set the directory of the compiled lyrics cache
+     * Parsed lyrics are kept there in a compact binary form, later parseLyricData calls with the same
+     * lyrics and pitch content and the same arguments load them without parsing the text again
+     *
+     * @param cacheDir Cache directory, or null to disable the cache (default)
+     */
+    public static void setLyricsCacheDir(File cacheDir) {
+        CompiledLyricsCache.setCacheDir(cacheDir);
+    }
+
+    /**
+     * Remove all compiled lyrics from the cache directory
+     */
+    public static void clearLyricsCache() {
+        CompiledLyricsCache.clear();
+    }
+
     /**
      * Attach UI components to the karaoke view
      *
@@ -302,6 +649,31 @@ public class KaraokeView {
      * @param usingInternalScoring Whether to use internal scoring algorithm
      */
     public void setLyricData(LyricModel model, boolean usingInternalScoring) {
+        cancelLoading();
+        prepareLyricData(model, usingInternalScoring);
+    }
+
+    /**
+     * Cancel the progressive loading of lyrics in progress, if any
+     */
+    private void cancelLoading() {
+        LyricsParseTask loadTask;
+        synchronized (this) {
+            loadTask = mLoadTask;
+            mLoadTask = null;
+        }
+        if (loadTask != null && loadTask.cancel()) {
+            LogUtils.d("cancel loading lyrics");
+        }
+    }
+
+    /**
+     * Prepare the lyrics and scoring machines and the UI for lyrics data
+     *
+     * @param model                Lyrics model containing timing and text data
+     * @param usingInternalScoring Whether to use internal scoring algorithm
+     */
+    private void prepareLyricData(LyricModel model, boolean usingInternalScoring) {
         LogUtils.d("setLyricData model:" + model);
         mLyricMachine.prepare(model);
         mScoringMachine.prepare(model, usingInternalScoring);
@@ -341,6 +713,33 @@ public class KaraokeView {
         }
     }
 
+    /**
+     * Set several real-time pitch data at once, such as the frames delivered together by one audio callback
+     * Note: The pitches are scored in order as by {@link #setPitch(float, float, int)} and the UI is refreshed once
+     *
+     * @param speakerPitches Pitch values from singer
+     * @param pitchScores    Pitch scores (0.0 to 100.0)
+     * @param progressesInMs Progress timestamps in milliseconds, in increasing order
+     */
+    public void setPitchBatch(float[] speakerPitches, float[] pitchScores, int[] progressesInMs) {
+        setPitchBatch(speakerPitches, pitchScores, progressesInMs, speakerPitches != null ? speakerPitches.length : 0);
+    }
+
+    /**
+     * Set several real-time pitch data at once, from the start of reused arrays
+     *
+     * @param speakerPitches Pitch values from singer
+     * @param pitchScores    Pitch scores (0.0 to 100.0)
+     * @param progressesInMs Progress timestamps in milliseconds, in increasing order
+     * @param count          Number of pitch data in the arrays
+     * @throws IllegalArgumentException if an array is null or shorter than the count
+     */
+    public void setPitchBatch(float[] speakerPitches, float[] pitchScores, int[] progressesInMs, int count) {
+        if (null != mScoringMachine) {
+            mScoringMachine.setPitchBatch(speakerPitches, pitchScores, progressesInMs, count);
+        }
+    }
+
     /**
      * Set current song progress (should be called every 20ms)
      * Note: Can be obtained from the player's current progress
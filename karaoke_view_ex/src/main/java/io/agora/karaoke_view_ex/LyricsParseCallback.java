@@ -0,0 +1,17 @@
+package io.agora.karaoke_view_ex;
+
+import io.agora.karaoke_view_ex.model.LyricModel;
+
+/**
+ * Callback of the asynchronous lyrics parsing started with
+ * {@link KaraokeView#parseLyricDataAsync(java.io.File, java.io.File, LyricsParseCallback)}
+ */
+public interface LyricsParseCallback {
+    /**
+     * Called when the lyrics have been parsed, never called for a cancelled task
+     *
+     * @param task  The task that parsed the lyrics
+     * @param model The parsed lyrics model, null if parsing failed
+     */
+    void onLyricsParsed(LyricsParseTask task, LyricModel model);
+}
@@ -0,0 +1,121 @@
+package io.agora.karaoke_view_ex;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.agora.karaoke_view_ex.internal.lyric.parse.LyricPitchParser;
+import io.agora.karaoke_view_ex.internal.utils.LogUtils;
+import io.agora.karaoke_view_ex.model.LyricModel;
+
+/**
+ * Handle of an asynchronous lyrics parsing
+ * Cancelling it skips the parsing if it has not started yet, and stops it at the next line or pitch record otherwise
+ * A task still waiting to start is also cancelled when too many newer parsings are pending
+ */
+public class LyricsParseTask implements LyricPitchParser.CancellationCheck {
+    /**
+     * Parsing work of a task
+     */
+    interface Parser {
+        /**
+         * Parse on the current thread
+         *
+         * @param task The task running the parsing, to publish partial results and check the cancellation
+         * @return The parsed lyrics model
+         */
+        LyricModel parse(LyricsParseTask task);
+    }
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_DONE = 1;
+    private static final int STATE_CANCELLED = 2;
+
+    private final AtomicInteger mState = new AtomicInteger(STATE_PENDING);
+    private final Parser mParser;
+    private final Executor mCallbackExecutor;
+    private final LyricsParseCallback mCallback;
+
+    LyricsParseTask(Parser parser, Executor callbackExecutor, LyricsParseCallback callback) {
+        this.mParser = parser;
+        this.mCallbackExecutor = callbackExecutor;
+        this.mCallback = callback;
+    }
+
+    /**
+     * Cancel the parsing, the callback will not be called afterwards
+     *
+     * @return true if the task was cancelled, false if it had already completed or been cancelled
+     */
+    public boolean cancel() {
+        // A parsing in progress is not interrupted, the parsers poll isCancelled() and stop by themselves
+        return mState.compareAndSet(STATE_PENDING, STATE_CANCELLED);
+    }
+
+    /**
+     * Check whether the task has been cancelled
+     *
+     * @return true if cancelled
+     */
+    @Override
+    public boolean isCancelled() {
+        return mState.get() == STATE_CANCELLED;
+    }
+
+    /**
+     * Check whether the result has been delivered to the callback
+     *
+     * @return true if done
+     */
+    public boolean isDone() {
+        return mState.get() == STATE_DONE;
+    }
+
+    /**
+     * Run an action on the callback executor, unless the task is done or cancelled by then
+     *
+     * @param action The action, such as showing partial results
+     */
+    void publish(final Runnable action) {
+        if (isCancelled()) {
+            return;
+        }
+        mCallbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mState.get() == STATE_PENDING) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Parse on the current thread and post the result to the callback executor
+     */
+    void run() {
+        if (isCancelled()) {
+            return;
+        }
+        LyricModel model = null;
+        try {
+            model = mParser.parse(this);
+        } catch (CancellationException e) {
+            return;
+        } catch (Exception e) {
+            LogUtils.e("parseLyricDataAsync error: " + e.getMessage());
+        }
+        if (isCancelled()) {
+            return;
+        }
+        final LyricModel result = model;
+        mCallbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mState.compareAndSet(STATE_PENDING, STATE_DONE) && mCallback != null) {
+                    mCallback.onLyricsParsed(LyricsParseTask.this, result);
+                }
+            }
+        });
+    }
+}
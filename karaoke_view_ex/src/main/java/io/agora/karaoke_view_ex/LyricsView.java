@@ -32,7 +32,7 @@ import java.util.Objects;
 import io.agora.karaoke_view_ex.internal.LyricMachine;
 import io.agora.karaoke_view_ex.internal.config.Config;
 import io.agora.karaoke_view_ex.internal.constants.LyricType;
-import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
+import io.agora.karaoke_view_ex.internal.model.CompactLyricModel;
 import io.agora.karaoke_view_ex.internal.utils.LogUtils;
 import io.agora.karaoke_view_ex.internal.utils.LyricsLineDrawerHelper;
 import io.agora.karaoke_view_ex.model.LyricModel;
@@ -49,6 +49,11 @@ public class LyricsView extends View {
      */
     private volatile LyricModel mLyricsModel;
 
+    /**
+     * Compact copy of the lyrics model, read to search and draw the lines
+     */
+    private volatile CompactLyricModel mLyrics;
+
     /**
      * The lyrics state machine managing lyrics progression
      */
@@ -397,12 +402,12 @@ public class LyricsView extends View {
         }
 
         LyricMachine machine = this.mLyricMachine;
-        LyricModel lyricsModel = this.mLyricsModel;
+        CompactLyricModel lyrics = this.mLyrics;
         if (uninitializedOrNoLyrics(machine)) {
             return super.onTouchEvent(event);
         }
 
-        if (targetIndex < 0 || lyricsModel.lines.size() <= targetIndex) {
+        if (targetIndex < 0 || lyrics.getLineCount() <= targetIndex) {
             return super.onTouchEvent(event);
         }
 
@@ -412,11 +417,11 @@ public class LyricsView extends View {
             mRectClip.setEmpty();
             mLastRightOfRectClip = mRectClip.right;
 
-            LyricsLineModel targetLine = lyricsModel.lines.get(targetIndex);
-            updateByProgress(targetLine.getStartTime());
+            long startTimeOfTargetLine = lyrics.getLineStartTime(targetIndex);
+            updateByProgress(startTimeOfTargetLine);
 
             if (mOnSeekActionListener != null) {
-                mOnSeekActionListener.onProgressChanged(targetLine.getStartTime());
+                mOnSeekActionListener.onProgressChanged(startTimeOfTargetLine);
                 mOnSeekActionListener.onStopTrackingTouch();
             }
         }
@@ -584,7 +589,7 @@ public class LyricsView extends View {
      * @return true if lyrics are not available or not initialized
      */
     protected final boolean uninitializedOrNoLyrics(LyricMachine machine) {
-        return machine == null || mLyricMachine == null || mLyricsModel == null || mLyricsModel.lines == null || mLyricsModel.lines.isEmpty();
+        return machine == null || mLyricMachine == null || mLyricsModel == null || mLyrics == null || mLyrics.getLineCount() == 0;
     }
 
     /**
@@ -625,14 +630,14 @@ public class LyricsView extends View {
     private void updateByProgress(long timestamp) {
         mCurrentTime = timestamp;
 
-        LyricModel lyricsModel = this.mLyricsModel;
+        CompactLyricModel lyrics = this.mLyrics;
         if (refreshNoLyrics()) {
             return;
         }
 
         int line = quickSearchLineByTimestamp(mCurrentTime);
 
-        if (line < 0 || line >= lyricsModel.lines.size()) {
+        if (line < 0 || line >= lyrics.getLineCount()) {
             mForceUpdateUi = UpdateUiType.UPDATE_UI_TYPE_NO_NEED;
             return;
         }
@@ -746,7 +751,7 @@ public class LyricsView extends View {
         }
 
         LyricMachine machine = this.mLyricMachine;
-        LyricModel lyricsModel = this.mLyricsModel;
+        CompactLyricModel lyrics = this.mLyrics;
         if (uninitializedOrNoLyrics(machine)) {
             int width = getViewportWidth();
             int height = getViewportHeight();
@@ -780,7 +785,7 @@ public class LyricsView extends View {
             LyricsLineDrawerHelper lyricsLineDrawerHelper;
             float y = 0;
             float yReal;
-            for (int i = 0; i < lyricsModel.lines.size(); i++) {
+            for (int i = 0; i < lyrics.getLineCount(); i++) {
                 if (i == mIndexOfCurrentLine) {
                     mPaintBg.setTextSize(mCurrentLineTextSize);
                 } else if (i < mIndexOfCurrentLine) {
@@ -791,8 +796,7 @@ public class LyricsView extends View {
                     mPaintBg.setTextSize(mTextSize);
                 }
 
-                LyricsLineModel lyricsTargetLineModel = lyricsModel.lines.get(i);
-                lyricsLineDrawerHelper = new LyricsLineDrawerHelper(lyricsTargetLineModel, mPaintFg, mPaintBg, getViewportWidth(),
+                lyricsLineDrawerHelper = new LyricsLineDrawerHelper(lyrics, i, mPaintFg, mPaintBg, getViewportWidth(),
                         mTextGravity, mEnableLineWrap, mWidthRatio);
 
                 yReal = y + mOffset;
@@ -856,11 +860,10 @@ public class LyricsView extends View {
 
             canvas.drawLine(0, centerY, getWidth(), centerY + 1, mPaintFg);
         } else {
-            LyricsLineModel currentLine = lyricsModel.lines.get(mIndexOfCurrentLine);
             float fraction = 1.0F; // NORMAL UPDATE
             if ((mForceUpdateUi & UpdateUiType.UPDATE_UI_TYPE_NORMAL) == UpdateUiType.UPDATE_UI_TYPE_NORMAL) {
                 doConfigCanvasAndTexts(fraction);
-                mReuseLyricsLineDrawerHelper = new LyricsLineDrawerHelper(currentLine, mPaintFg, mPaintBg, getViewportWidth(),
+                mReuseLyricsLineDrawerHelper = new LyricsLineDrawerHelper(lyrics, mIndexOfCurrentLine, mPaintFg, mPaintBg, getViewportWidth(),
                         mTextGravity, mEnableLineWrap, mWidthRatio);
 
                 LyricsLineDrawerHelper finalRefLyricsLineDrawerHelper = mReuseLyricsLineDrawerHelper;
@@ -878,16 +881,16 @@ public class LyricsView extends View {
                             doConfigCanvasAndTexts(fraction);
 
                             drawCurrent(finalRefLyricsLineDrawerHelper, fraction);
-                            drawPrevious(lyricsModel, finalRefLyricsLineDrawerHelper, fraction);
-                            drawUpcoming(lyricsModel, finalRefLyricsLineDrawerHelper, fraction);
+                            drawPrevious(lyrics, finalRefLyricsLineDrawerHelper, fraction);
+                            drawUpcoming(lyrics, finalRefLyricsLineDrawerHelper, fraction);
 
                             drawHighLight(finalRefLyricsLineDrawerHelper, fraction); // Will first `MAX_SMOOTH_SCROLL_DURATION` part of the highlight line
                         }
                     });
                 } else if ((mForceUpdateUi & UpdateUiType.UPDATE_UI_TYPE_NORMAL) == UpdateUiType.UPDATE_UI_TYPE_NORMAL) {
                     drawCurrent(finalRefLyricsLineDrawerHelper, fraction);
-                    drawPrevious(lyricsModel, finalRefLyricsLineDrawerHelper, fraction);
-                    drawUpcoming(lyricsModel, finalRefLyricsLineDrawerHelper, fraction);
+                    drawPrevious(lyrics, finalRefLyricsLineDrawerHelper, fraction);
+                    drawUpcoming(lyrics, finalRefLyricsLineDrawerHelper, fraction);
                 }
 
                 mForceUpdateUi = UpdateUiType.UPDATE_UI_TYPE_NO_NEED;
@@ -1014,22 +1017,21 @@ public class LyricsView extends View {
     /**
      * Draws lyrics lines that come before the current line.
      *
-     * @param lyricsModel           The lyrics data model
+     * @param lyrics                The compact lyrics data
      * @param currentLineDrawHelper Helper for drawing the current line
      * @param fraction              Animation progress fraction
      */
-    private void drawPrevious(LyricModel lyricsModel, LyricsLineDrawerHelper currentLineDrawHelper, float fraction) {
+    private void drawPrevious(CompactLyricModel lyrics, LyricsLineDrawerHelper currentLineDrawHelper, float fraction) {
         if (!mEnablePreviousLines) {
             return;
         }
 
-        if (currentLineDrawHelper == null || lyricsModel == null) {
+        if (currentLineDrawHelper == null || lyrics == null) {
             return;
         }
 
         float yOfTargetLine = (getViewportHeight() - currentLineDrawHelper.getHeight() * fraction) / 2F + mPaddingTop;
 
-        LyricsLineModel lyricsTargetLineModel;
         LyricsLineDrawerHelper lyricsTargetLineDrawerHelper;
         mPaintBg.setTextSize(mTextSize);
         mPaintBg.setColor(mPreviousLineTextColor);
@@ -1038,8 +1040,7 @@ public class LyricsView extends View {
         mCanvasBg.translate(0, yOfTargetLine);
 
         for (int i = mIndexOfCurrentLine - 1; i >= 0; i--) {
-            lyricsTargetLineModel = lyricsModel.lines.get(i);
-            lyricsTargetLineDrawerHelper = new LyricsLineDrawerHelper(lyricsTargetLineModel, mPaintFg, mPaintBg, getViewportWidth(), mTextGravity, mEnableLineWrap, mWidthRatio);
+            lyricsTargetLineDrawerHelper = new LyricsLineDrawerHelper(lyrics, i, mPaintFg, mPaintBg, getViewportWidth(), mTextGravity, mEnableLineWrap, mWidthRatio);
 
             mOffset = mOffset - lyricsTargetLineDrawerHelper.getHeight() - mLineSpacing;
 
@@ -1127,22 +1128,21 @@ public class LyricsView extends View {
     /**
      * Draws lyrics lines that come after the current line.
      *
-     * @param lyricsModel           The lyrics data model
+     * @param lyrics                The compact lyrics data
      * @param currentLineDrawHelper Helper for drawing the current line
      * @param fraction              Animation progress fraction
      */
-    private void drawUpcoming(LyricModel lyricsModel, LyricsLineDrawerHelper currentLineDrawHelper, float fraction) {
+    private void drawUpcoming(CompactLyricModel lyrics, LyricsLineDrawerHelper currentLineDrawHelper, float fraction) {
         if (!mEnableUpcomingLines) {
             return;
         }
 
-        if (currentLineDrawHelper == null || lyricsModel == null) {
+        if (currentLineDrawHelper == null || lyrics == null) {
             return;
         }
 
         float yOfTargetLine = (getViewportHeight() + currentLineDrawHelper.getHeight() * (1 + (1 - fraction))) / 2F + mLineSpacing + mPaddingTop;
 
-        LyricsLineModel lyricsTargetLineModel;
         LyricsLineDrawerHelper lyricsTargetLineDrawerHelper;
         mPaintBg.setTextSize(mTextSize);
         mPaintBg.setColor(mUpcomingLineTextColor);
@@ -1150,9 +1150,8 @@ public class LyricsView extends View {
         mCanvasBg.save();
         mCanvasBg.translate(0, yOfTargetLine);
 
-        for (int i = mIndexOfCurrentLine + 1; i < lyricsModel.lines.size(); i++) {
-            lyricsTargetLineModel = lyricsModel.lines.get(i);
-            lyricsTargetLineDrawerHelper = new LyricsLineDrawerHelper(lyricsTargetLineModel, mPaintFg, mPaintBg, getViewportWidth(), mTextGravity, mEnableLineWrap, mWidthRatio);
+        for (int i = mIndexOfCurrentLine + 1; i < lyrics.getLineCount(); i++) {
+            lyricsTargetLineDrawerHelper = new LyricsLineDrawerHelper(lyrics, i, mPaintFg, mPaintBg, getViewportWidth(), mTextGravity, mEnableLineWrap, mWidthRatio);
 
             if (yOfTargetLine + lyricsTargetLineDrawerHelper.getHeight() > getViewportHeight()) {
                 break;
@@ -1230,6 +1229,7 @@ public class LyricsView extends View {
         }
         this.mLyricMachine = machine;
         this.mLyricsModel = machine.getLyricsModel();
+        this.mLyrics = machine.getCompactLyrics();
         forceCheckLineWrap();
         // Update values from UI view if necessary
     }
@@ -1284,6 +1284,7 @@ public class LyricsView extends View {
     private void resetInternal() {
         mLyricMachine = null;
         mLyricsModel = null;
+        mLyrics = null;
         mIndexOfCurrentLine = -1;
         mForceUpdateUi = UpdateUiType.UPDATE_UI_TYPE_NORMAL;
         mCurrentTime = 0;
@@ -1303,30 +1304,13 @@ public class LyricsView extends View {
      */
     private int quickSearchLineByTimestamp(long time) {
         LyricMachine machine = this.mLyricMachine;
-        LyricModel lyricsModel = this.mLyricsModel;
+        CompactLyricModel lyrics = this.mLyrics;
         if (uninitializedOrNoLyrics(machine)) {
             return 0;
         }
 
-        int left = 0;
-        int right = lyricsModel.lines.size();
-        while (left <= right) {
-            int middle = (left + right) / 2;
-            long middleTime = lyricsModel.lines.get(middle).getStartTime();
-
-            if (time < middleTime) {
-                right = middle - 1;
-            } else {
-                if (middle + 1 >= lyricsModel.lines.size()
-                        || time < lyricsModel.lines.get(middle + 1).getStartTime()) {
-                    return middle;
-                }
-
-                left = middle + 1;
-            }
-        }
-
-        return 0;
+        // The last line starting at or before the time, or the first line if none
+        return Math.max(0, lyrics.getTimeIndex().firstLineStartingAfter(time) - 1);
     }
 
     /**
@@ -186,6 +186,12 @@ public class ScoringView extends View {
      */
     protected ScoringMachine mScoringMachine;
 
+    /**
+     * Progress of the scoring machine read once at the start of each frame, so that a frame never mixes two pitches or two songs
+     * The pitch indicator animations started between two frames use the song of the last frame.
+     */
+    private final ScoringMachine.Progress mDrawingProgress = new ScoringMachine.Progress();
+
     /**
      * Token for delayed tasks
      */
@@ -574,6 +580,10 @@ public class ScoringView extends View {
             return;
         }
 
+        if (!uninitializedOrNoLyrics(mScoringMachine)) {
+            mScoringMachine.getProgress(mDrawingProgress);
+        }
+
         drawLeadingLines(canvas);
         drawOverPastWallAndStartLine(canvas);
         drawPitchSticks(canvas);
@@ -583,7 +593,7 @@ public class ScoringView extends View {
             long progress = 0;
             int id = 0;
             if (!uninitializedOrNoLyrics(mScoringMachine)) {
-                progress = mScoringMachine.getCurrentPitchProgress();
+                progress = mDrawingProgress.pitchProgress;
                 id = System.identityHashCode(mScoringMachine);
             }
 
@@ -649,13 +659,16 @@ public class ScoringView extends View {
 
         if (uninitializedOrNoLyrics(mScoringMachine)) { // Not initialized
             targetY = getHeight() - this.mLocalPitchIndicatorRadius;
-        } else if (this.mLocalPitch >= mScoringMachine.getMinimumRefPitch() && mScoringMachine.getMaximumRefPitch() != 0) { // Has value, not the default case
-            float realPitchMax = mScoringMachine.getMaximumRefPitch() + 5;
-            float realPitchMin = mScoringMachine.getMinimumRefPitch() - 5;
-            float mItemHeightPerPitchLevel = getHeight() / (realPitchMax - realPitchMin);
-            targetY = (realPitchMax - this.mLocalPitch) * mItemHeightPerPitchLevel;
-        } else if (this.mLocalPitch < mScoringMachine.getMinimumRefPitch()) { // minimal local pitch
-            targetY = getHeight();
+        } else {
+            ScoringMachine.Song song = mDrawingProgress.song;
+            if (this.mLocalPitch >= song.getMinimumRefPitch() && song.getMaximumRefPitch() != 0) { // Has value, not the default case
+                float realPitchMax = song.getMaximumRefPitch() + 5;
+                float realPitchMin = song.getMinimumRefPitch() - 5;
+                float mItemHeightPerPitchLevel = getHeight() / (realPitchMax - realPitchMin);
+                targetY = (realPitchMax - this.mLocalPitch) * mItemHeightPerPitchLevel;
+            } else if (this.mLocalPitch < song.getMinimumRefPitch()) { // minimal local pitch
+                targetY = getHeight();
+            }
         }
 
         if (targetY < this.mLocalPitchIndicatorRadius) { // clamping it under the line
@@ -748,12 +761,15 @@ public class ScoringView extends View {
             return;
         }
 
-        float realPitchMax = mScoringMachine.getMaximumRefPitch() + 5;
-        float realPitchMin = mScoringMachine.getMinimumRefPitch() - 5;
+        ScoringMachine.Song song = mDrawingProgress.song;
+        long progress = mDrawingProgress.pitchProgress;
+
+        float realPitchMax = song.getMaximumRefPitch() + 5;
+        float realPitchMin = song.getMinimumRefPitch() - 5;
 
         List<LyricsPitchLineModel> lines;
-        if (mScoringMachine.hasPitchData()) {
-            lines = mScoringMachine.getPitchLines();
+        if (song.hasPitchData()) {
+            lines = song.getPitchLines();
         } else {
             lines = new ArrayList<>(0);
         }
@@ -778,29 +794,30 @@ public class ScoringView extends View {
             }
 
             long startTime = line.getStartTime();
-            long durationOfCurrentLine = line.getEndTime() - startTime;
+            long endTime = line.getEndTime();
+            long durationOfCurrentLine = endTime - startTime;
 
-            if (Math.abs(mScoringMachine.getCurrentPitchProgress() - line.getEndTime()) * mMovingPixelsPerMs >= getWidth() &&
-                    Math.abs(mScoringMachine.getCurrentPitchProgress() - line.getStartTime()) * mMovingPixelsPerMs >= getWidth() &&
-                    !(mScoringMachine.getCurrentPitchProgress() >= line.getStartTime() && mScoringMachine.getCurrentPitchProgress() <= line.getEndTime())) { // If still to early for current line, we do not draw the sticks
+            if (Math.abs(progress - endTime) * mMovingPixelsPerMs >= getWidth() &&
+                    Math.abs(progress - startTime) * mMovingPixelsPerMs >= getWidth() &&
+                    !(progress >= startTime && progress <= endTime)) { // If still to early for current line, we do not draw the sticks
                 continue;
             }
 
-            if (i + 1 < lines.size() && line.getStartTime() < mScoringMachine.getCurrentPitchProgress()) { // Has next line
+            if (i + 1 < lines.size() && startTime < progress) { // Has next line
                 // Get next line
                 // If start for next is far away than 2 seconds
                 // stop the current animation now
-                long startTimeOfNextLine = mScoringMachine.getLineStartTime(i + 1);
-                if ((startTimeOfNextLine - line.getEndTime() >= 2 * 1000) && mScoringMachine.getCurrentPitchProgress() > line.getEndTime() && mScoringMachine.getCurrentPitchProgress() < startTimeOfNextLine) { // Two seconds after this line stops
+                long startTimeOfNextLine = song.getLineStartTime(i + 1);
+                if ((startTimeOfNextLine - endTime >= 2 * 1000) && progress > endTime && progress < startTimeOfNextLine) { // Two seconds after this line stops
                     assureAnimationForPitchIndicator(0); // Force stop the animation when there is a too long stop between two lines
-                    if (mTimestampForLastAnimationDecrease < 0 || mScoringMachine.getCurrentPitchProgress() - mTimestampForLastAnimationDecrease > 4 * 1000) {
+                    if (mTimestampForLastAnimationDecrease < 0 || progress - mTimestampForLastAnimationDecrease > 4 * 1000) {
                         ObjectAnimator.ofFloat(ScoringView.this, "mLocalPitch", ScoringView.this.mLocalPitch, ScoringView.this.mLocalPitch * 1 / 3, 0.0f).setDuration(600).start(); // Decrease the local pitch indicator
-                        mTimestampForLastAnimationDecrease = mScoringMachine.getCurrentPitchProgress();
+                        mTimestampForLastAnimationDecrease = progress;
                     }
                 }
             }
 
-            float pixelsAwayFromPilot = (startTime - mScoringMachine.getCurrentPitchProgress()) * mMovingPixelsPerMs; // For every time, we need to locate the new coordinate
+            float pixelsAwayFromPilot = (startTime - progress) * mMovingPixelsPerMs; // For every time, we need to locate the new coordinate
             float x = mCenterXOfStartPoint + pixelsAwayFromPilot;
 
             if (endTimeOfPreviousLine != 0) { // If has empty divider before
@@ -809,7 +826,7 @@ public class ScoringView extends View {
                 x = x + emptyDividerWidth;
             }
 
-            endTimeOfPreviousLine = line.getEndTime();
+            endTimeOfPreviousLine = endTime;
 
             if (x + 2 * durationOfCurrentLine * mMovingPixelsPerMs < 0) { // Already past for long time enough
                 continue;
@@ -819,7 +836,7 @@ public class ScoringView extends View {
                 LyricsPitchLineModel.Pitch pitch = pitches.get(pitchIndex);
 
                 // For every time, we need to locate the new coordinate
-                pixelsAwayFromPilot = (pitch.begin - mScoringMachine.getCurrentPitchProgress()) * mMovingPixelsPerMs;
+                pixelsAwayFromPilot = (pitch.begin - progress) * mMovingPixelsPerMs;
                 x = mCenterXOfStartPoint + pixelsAwayFromPilot;
                 widthOfPitchStick = mMovingPixelsPerMs * pitch.getDuration();
                 float endX = x + widthOfPitchStick;
@@ -839,7 +856,7 @@ public class ScoringView extends View {
                 }
 
                 y = (realPitchMax - pitch.pitch) * stickHeightPerPitchLevel;
-                boolean isCurrentPitch = mScoringMachine.getCurrentPitchProgress() >= pitch.begin && mScoringMachine.getCurrentPitchProgress() <= pitch.end;
+                boolean isCurrentPitch = progress >= pitch.begin && progress <= pitch.end;
 
                 if (!isCurrentPitch) {
                     for (Map.Entry<Long, Pair<Long, Long>> entry : pitch.highlightPartMap.entrySet()) {
@@ -857,13 +874,13 @@ public class ScoringView extends View {
                 if (isCurrentPitch) {
                     if (mInHighlightStatus) {
                         if (!mPreHighlightStatus) {
-                            mPitchHighlightedTime = mScoringMachine.getCurrentPitchProgress();
-                            if (mScoringMachine.getCurrentPitchProgress() - pitch.begin < Constants.INTERVAL_AUDIO_PCM) {
+                            mPitchHighlightedTime = progress;
+                            if (progress - pitch.begin < Constants.INTERVAL_AUDIO_PCM) {
                                 mPitchHighlightedTime = pitch.begin;
                             }
                             mPreHighlightStatus = mInHighlightStatus;
                         }
-                        float highlightStartX = mCenterXOfStartPoint + (mPitchHighlightedTime - mScoringMachine.getCurrentPitchProgress()) * mMovingPixelsPerMs;
+                        float highlightStartX = mCenterXOfStartPoint + (mPitchHighlightedTime - progress) * mMovingPixelsPerMs;
                         //着色 40ms一段
                         float highlightEndX = mCenterXOfStartPoint - mMovingPixelsPerMs * Constants.INTERVAL_AUDIO_PCM;
                         RectF rHighlight = buildRectF(highlightStartX, y, highlightEndX, y + mPitchStickHeight);
@@ -874,7 +891,7 @@ public class ScoringView extends View {
                     } else {
                         mPreHighlightStatus = false;
                         if (-1 != mPitchHighlightedTime) {
-                            pitch.highlightPartMap.put(mPitchHighlightedTime, new Pair<>(mPitchHighlightedTime, mScoringMachine.getCurrentPitchProgress()));
+                            pitch.highlightPartMap.put(mPitchHighlightedTime, new Pair<>(mPitchHighlightedTime, progress));
                             mPitchHighlightedTime = -1;
                         }
                     }
@@ -893,7 +910,7 @@ public class ScoringView extends View {
                             long highlightStartTime = value.first;
                             long highlightEndTime = value.second;
 
-                            float highlightStartX = mCenterXOfStartPoint + (highlightStartTime - mScoringMachine.getCurrentPitchProgress()) * mMovingPixelsPerMs;
+                            float highlightStartX = mCenterXOfStartPoint + (highlightStartTime - progress) * mMovingPixelsPerMs;
                             float highlightEndX = highlightStartX + mMovingPixelsPerMs * (highlightEndTime - highlightStartTime);
                             RectF rHighlight = buildRectF(highlightStartX, y, highlightEndX, y + mPitchStickHeight);
                             canvas.drawRoundRect(rHighlight, 8, 8, mPitchStickHighlightedPaint);
@@ -901,7 +918,7 @@ public class ScoringView extends View {
                             if (isCurrentPitch) {
                                 long highlightStartTime = entry.getKey();
 
-                                float highlightStartX = mCenterXOfStartPoint + (highlightStartTime - mScoringMachine.getCurrentPitchProgress()) * mMovingPixelsPerMs;
+                                float highlightStartX = mCenterXOfStartPoint + (highlightStartTime - progress) * mMovingPixelsPerMs;
                                 float highlightEndX = mCenterXOfStartPoint;
                                 RectF rHighlight = buildRectF(highlightStartX, y, highlightEndX, y + mPitchStickHeight);
                                 canvas.drawRoundRect(rHighlight, 8, 8, mPitchStickHighlightedPaint);
@@ -1,6 +1,7 @@
 package io.agora.karaoke_view_ex.internal;
 
 import io.agora.karaoke_view_ex.internal.constants.LyricType;
+import io.agora.karaoke_view_ex.internal.model.CompactLyricModel;
 import io.agora.karaoke_view_ex.internal.utils.LogUtils;
 import io.agora.karaoke_view_ex.model.LyricModel;
 
@@ -57,6 +58,21 @@ public class LyricMachine {
         mLyricsModel = model;
     }
 
+    /**
+     * Replaces the lyrics model with a newer version of the same song, such as one with more lines
+     * Unlike {@link #prepare(LyricModel)}, the progress is kept
+     *
+     * @param model The newer lyrics model, ignored if invalid
+     */
+    public void update(LyricModel model) {
+        if (model == null || model.lines == null || model.lines.isEmpty()) {
+            LogUtils.e("update with invalid lyrics model, ignored");
+            return;
+        }
+
+        mLyricsModel = model;
+    }
+
     /**
      * Checks if the lyrics machine is ready for operation
      *
@@ -150,6 +166,17 @@ public class LyricMachine {
         return this.mLyricsModel;
     }
 
+    /**
+     * Gets the normalized view of the current lyrics model, see {@link CompactLyricModel#normalized()}
+     * It is shared with the scoring machine, so lines are rendered with the bounds they are scored with
+     *
+     * @return The compact lyrics, or null if the lyrics model is not set
+     */
+    public CompactLyricModel getCompactLyrics() {
+        LyricModel model = mLyricsModel;
+        return model != null ? model.freeze().normalized() : null;
+    }
+
     /**
      * Gets the current lyrics progress
      *
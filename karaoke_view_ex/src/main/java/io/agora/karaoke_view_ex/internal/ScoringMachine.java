@@ -1,16 +1,25 @@
 package io.agora.karaoke_view_ex.internal;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
 
 import io.agora.karaoke_view_ex.IScoringAlgorithm;
 import io.agora.karaoke_view_ex.internal.ai.AIAlgorithmScoreNative;
 import io.agora.karaoke_view_ex.internal.config.Config;
 import io.agora.karaoke_view_ex.internal.constants.LyricType;
+import io.agora.karaoke_view_ex.internal.model.CompactLyricModel;
+import io.agora.karaoke_view_ex.internal.model.LineScoreTree;
 import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
 import io.agora.karaoke_view_ex.internal.model.LyricsPitchLineModel;
-import io.agora.karaoke_view_ex.internal.model.PitchData;
+import io.agora.karaoke_view_ex.internal.model.LyricsTimeIndex;
+import io.agora.karaoke_view_ex.internal.model.PitchScoreBuffer;
+import io.agora.karaoke_view_ex.internal.model.PitchTrack;
 import io.agora.karaoke_view_ex.internal.scoring.DefaultScoringAlgorithm;
 import io.agora.karaoke_view_ex.internal.utils.LogUtils;
 import io.agora.karaoke_view_ex.model.LyricModel;
@@ -19,47 +28,71 @@ import io.agora.karaoke_view_ex.model.LyricModel;
  * State and information manager for karaoke scoring functionality.
  * This class handles the non-UI related logic for pitch tracking, scoring calculation,
  * and performance evaluation. It is shared by all scoring-related components.
+ * <p>
+ * Threading model: the scoring state is owned by one thread at a time, the scoring thread, which is usually the
+ * thread calling {@link #setPitch(float, float, int)} and {@link #setPitchBatch(float[], float[], int[], int)}, the
+ * RTC callback thread. The lyrics and the values derived from them are published as an immutable {@link Song}, and
+ * the progress and score of each pitch through a sequence lock read by {@link #getProgress(Progress)}, so the views
+ * read a consistent state without blocking the scoring thread. {@link #prepare(LyricModel, boolean)},
+ * {@link #update(LyricModel)}, {@link #reset()}, {@link #whenDraggingHappen(long)} and
+ * {@link #setInitialScore(float)} may be called from any thread: the song is published at once, and the change to the
+ * scoring state is applied at once unless a pitch is being scored, in which case the scoring thread applies it before
+ * returning. A pitch set while another thread applies a change is handed off to that thread, so the pitch thread
+ * never waits. The listener is called by the thread scoring the pitch, which is the pitch thread unless the pitch
+ * was handed off.
  */
 public class ScoringMachine {
+    /**
+     * Lyrics being scored with the values derived from them, as published to the readers
+     */
+    private volatile Song mSong = Song.NONE;
+
+    /**
+     * Song the scoring state belongs to
+     * It and the other mutable fields that are not volatile are only used by the scoring thread.
+     */
+    private Song mScoredSong = Song.NONE;
+
     /**
      * The current lyrics model being processed
      */
     private LyricModel mLyricsModel;
 
     /**
-     * Listener for scoring-related events
+     * Normalized view of the frozen lyrics model, read by the scoring instead of the lines and tones
      */
-    private final OnScoringListener mListener;
+    private CompactLyricModel mLyrics;
 
     /**
-     * Current pitch progress in milliseconds
+     * Cursor over the time index of the lyrics, following the pitch progress
      */
-    private long mCurrentPitchProgress = 0;
+    private LyricsTimeIndex.Cursor mLyricsCursor;
 
     /**
-     * Current lyrics progress in milliseconds
+     * Index of the pitch segment, or of the tone if there is no pitch data, of the last reference pitch found
+     * It is only a hint checked before use, any thread may update it.
      */
-    private long mCurrentLyricProgress = 0;
+    private int mIndexOfRefPitch = -1;
 
     /**
-     * Maximum reference pitch value detected in the song
+     * Listener for scoring-related events
      */
-    private float mMaximumRefPitch = 0;
+    private final OnScoringListener mListener;
 
     /**
-     * Minimum reference pitch value detected in the song
+     * Current pitch progress in milliseconds
      */
-    private float mMinimumRefPitch = 100;
+    private long mCurrentPitchProgress = 0;
 
     /**
-     * List of pitch line models for each lyrics line
+     * Current lyrics progress in milliseconds, set by the player
      */
-    private List<LyricsPitchLineModel> mPitchLines;
+    private volatile long mCurrentLyricProgress = 0;
 
     /**
      * The scoring algorithm implementation
      */
-    private IScoringAlgorithm mScoringAlgorithm;
+    private volatile IScoringAlgorithm mScoringAlgorithm;
 
     /**
      * Flag indicating whether internal scoring is being used
@@ -77,14 +110,24 @@ public class ScoringMachine {
     private int mDeltaOfUpdate = DEFAULT_DELTA_OF_UPDATE;
 
     /**
-     * Map storing pitch values for the current line
+     * Pitch scores of the current line by timestamp, reused from line to line
+     */
+    private final PitchScoreBuffer mPitchesForLine = new PitchScoreBuffer();
+
+    /**
+     * Scores of the finished lines by index, kept for dragging
      */
-    public final LinkedHashMap<Long, Float> mPitchesForLine = new LinkedHashMap<>();
+    private final LineScoreTree mScoreForEachLine = new LineScoreTree(0);
 
     /**
-     * Map storing scores for each line by index
+     * Normalized copies of the lines overlapping the previous one, built when they are first scored
      */
-    public final LinkedHashMap<Integer, Integer> mScoreForEachLine = new LinkedHashMap<>();
+    private LyricsLineModel[] mAdjustedLines;
+
+    /**
+     * Line switch found by the last reference pitch lookup, reused by every pitch update
+     */
+    private final LineSwitch mLineSwitch = new LineSwitch();
 
     /**
      * Start time of the first reference pitch in milliseconds
@@ -121,18 +164,63 @@ public class ScoringMachine {
      */
     private static final int ZERO_PITCH_COUNT_THRESHOLD = 10;
 
+    /**
+     * Owner of the scoring state: the thread scoring a pitch or applying a change, or null
+     * Only the owner reads or writes the scoring state, it is claimed with compareAndSet and released at the end of the call.
+     */
+    private final AtomicReference<Thread> mScoringOwner = new AtomicReference<>();
+
+    /**
+     * Changes to the scoring state requested while another thread owned it, applied by that thread before it returns
+     */
+    private final ConcurrentLinkedQueue<Runnable> mPendingCommands = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Pitches set while another thread owned the scoring state, scored by that thread before it returns
+     */
+    private final PitchHandoff mPitchHandoff = new PitchHandoff();
+
+    /**
+     * Sequence of the published state below, odd while the scoring thread writes it
+     */
+    private volatile int mPublishedSequence;
+
+    private volatile Song mPublishedSong = Song.NONE;
+
+    private volatile long mPublishedPitchProgress;
+
+    private volatile float mPublishedCumulativeScore;
+
+    private volatile float mPublishedInitialScore;
+
+    private volatile int mPublishedIndexOfCurrentLine;
+
+    /**
+     * Score of each line, -1 for a line not scored yet, copied from the scores of the finished lines when they change
+     */
+    private volatile AtomicIntegerArray mPublishedLineScores = new AtomicIntegerArray(0);
+
+    /**
+     * Whether the scores of the finished lines changed since they were last published
+     */
+    private boolean mLineScoresChanged;
+
     /**
      * Empty lyrics model used as a fallback
      */
     private static final LyricModel EMPTY_LYRICS_MODEL = new LyricModel(LyricType.LRC);
 
+    /**
+     * Frozen state of EMPTY_LYRICS_MODEL
+     */
+    private static final CompactLyricModel EMPTY_LYRICS = EMPTY_LYRICS_MODEL.freeze();
+
     /**
      * Constructs a new ScoringMachine instance
      *
      * @param listener The listener to handle scoring-related events
      */
     public ScoringMachine(OnScoringListener listener) {
-        reset();
         this.mListener = listener;
         this.mScoringAlgorithm = new DefaultScoringAlgorithm();
     }
@@ -144,106 +232,196 @@ public class ScoringMachine {
      * @param usingInternalScoring Whether to use internal scoring algorithm
      */
     public void prepare(LyricModel model, boolean usingInternalScoring) {
-        reset();
-
+        Song previous = mSong;
+        mCurrentLyricProgress = 0;
         if (model == null || model.lines == null || model.lines.isEmpty()) {
             LogUtils.e("Invalid lyrics model, use built-in EMPTY_LYRICS_MODEL");
-            mLyricsModel = EMPTY_LYRICS_MODEL;
+            publishSong(new Song(EMPTY_LYRICS_MODEL, EMPTY_LYRICS, null, 100, 0,
+                    previous.usingInternalScoring, -1, 0, previous.generation + 1));
             return;
         }
 
-        mLyricsModel = mayBeFixLyricModel(model);
-        mUsingInternalScoring = usingInternalScoring;
+        publishSong(Song.of(model, usingInternalScoring, previous.generation + 1));
+    }
 
-        mEndTimeOfThisLyrics = model.lines.get(model.lines.size() - 1).getEndTime();
-        // find the timestamp of first reference pitch
-        mTimestampOfFirstRefPitch = model.preludeEndPosition;
+    /**
+     * Replaces the lyrics model with a newer version of the same song, such as one with more lines
+     * Unlike {@link #prepare(LyricModel, boolean)}, the progress and the scores of finished lines are kept
+     *
+     * @param model The newer lyrics model, ignored if invalid
+     */
+    public void update(LyricModel model) {
+        if (model == null || model.lines == null || model.lines.isEmpty()) {
+            LogUtils.e("update with invalid lyrics model, ignored");
+            return;
+        }
 
-        if (mLyricsModel.hasPitch) {
-            if (model.pitchDataList != null) {
-                for (PitchData data : model.pitchDataList) {
-                    mMinimumRefPitch = (float) Math.min(mMinimumRefPitch, data.pitch);
-                    mMaximumRefPitch = (float) Math.max(mMaximumRefPitch, data.pitch);
-                }
-                if (null != mLyricsModel.lines) {
-                    mPitchLines = new ArrayList<>(mLyricsModel.lines.size());
-                    for (LyricsLineModel line : mLyricsModel.lines) {
-                        LyricsPitchLineModel lineModel = new LyricsPitchLineModel();
-                        long startTime = line.getStartTime();
-                        long endTime = line.getEndTime();
-                        for (PitchData data : model.pitchDataList) {
-                            if (data.startTime >= startTime && data.startTime < endTime) {
-                                LyricsPitchLineModel.Pitch pitch = new LyricsPitchLineModel.Pitch();
-                                pitch.begin = data.startTime;
-                                pitch.end = data.startTime + data.duration;
-                                pitch.pitch = (int) data.pitch;
-                                lineModel.pitches.add(pitch);
-                            }
-                        }
-                        mPitchLines.add(lineModel);
-                    }
-                }
-            } else {
-                if (null != mLyricsModel.lines) {
-                    mPitchLines = new ArrayList<>(mLyricsModel.lines.size());
-                    for (LyricsLineModel line : mLyricsModel.lines) {
-                        LyricsPitchLineModel lineModel = new LyricsPitchLineModel();
-                        if (null != line.tones) {
-                            for (LyricsLineModel.Tone tone : line.tones) {
-                                LyricsPitchLineModel.Pitch pitch = new LyricsPitchLineModel.Pitch();
-                                pitch.begin = tone.begin;
-                                pitch.end = tone.end;
-                                pitch.pitch = (int) tone.pitch;
+        Song previous = mSong;
+        publishSong(Song.of(model, previous.usingInternalScoring, previous.generation));
+    }
 
-                                mMinimumRefPitch = (float) Math.min(mMinimumRefPitch, pitch.pitch);
-                                mMaximumRefPitch = (float) Math.max(mMaximumRefPitch, pitch.pitch);
+    /**
+     * Publishes a song to the readers, then to the scoring thread
+     *
+     * @param song The song, of a new generation unless it updates the current one
+     */
+    private void publishSong(final Song song) {
+        mSong = song;
+        runOnScoringThread(new Runnable() {
+            @Override
+            public void run() {
+                adoptSong(song);
+            }
+        });
+    }
 
-                                lineModel.pitches.add(pitch);
-                            }
-                        }
-                        mPitchLines.add(lineModel);
-                    }
-                }
+    /**
+     * Sets up the scoring state for a song, called on the scoring thread
+     * The scores are kept for a newer version of the same song, and reset otherwise.
+     *
+     * @param song The song to score
+     */
+    private void adoptSong(Song song) {
+        boolean sameSong = song.generation == mScoredSong.generation;
+        mScoredSong = song;
+        mLyricsModel = song.lyricsModel;
+        mLyrics = song.lyrics;
+        mLyricsCursor = mLyrics != null ? mLyrics.getTimeIndex().newCursor() : null;
+        mAdjustedLines = mLyrics != null ? new LyricsLineModel[mLyrics.getLineCount()] : null;
+        mIndexOfRefPitch = -1;
+        mUsingInternalScoring = song.usingInternalScoring;
+        mTimestampOfFirstRefPitch = song.timestampOfFirstRefPitch;
+        mEndTimeOfThisLyrics = song.endTimeOfLyrics;
+        mLineScoresChanged = true;
+
+        if (sameSong) {
+            if (mLyrics != null) {
+                mScoreForEachLine.ensureLineCount(mLyrics.getLineCount());
             }
+        } else {
+            resetStats();
         }
+    }
 
-        LogUtils.d("prepare mMinimumRefPitch:" + mMinimumRefPitch + ",mMaximumRefPitch:" + mMaximumRefPitch);
+    /**
+     * Runs a change to the scoring state on the scoring thread
+     * It runs at once when the state is free or owned by the calling thread, such as from a listener, then the state
+     * is published. Otherwise it is queued for the owner, which applies it before returning and never waits for the caller.
+     *
+     * @param command The change
+     */
+    private void runOnScoringThread(Runnable command) {
+        if (mScoringOwner.get() == Thread.currentThread()) {
+            runPendingCommands();
+            command.run();
+            publish();
+            return;
+        }
+        mPendingCommands.add(command);
+        applyPendingChanges();
     }
 
     /**
-     * Fixes potential issues in the lyric model, such as overlapping lines
+     * Applies the queued changes and scores the handed-off pitches, unless another thread owns the scoring state
+     * The owner calls it after releasing the state, so a change queued while it was scoring is not left behind.
+     */
+    private void applyPendingChanges() {
+        Thread current = Thread.currentThread();
+        // Changes queued or pitches handed off while the state is claimed are applied by the next round of the claiming thread
+        while ((!mPendingCommands.isEmpty() || mPitchHandoff.isFull()) && mScoringOwner.compareAndSet(null, current)) {
+            boolean refreshUi;
+            try {
+                runPendingCommands();
+                refreshUi = scoreHandedOffPitches();
+                publish();
+            } finally {
+                mScoringOwner.set(null);
+            }
+            if (refreshUi && mListener != null) {
+                mListener.requestRefreshUi();
+            }
+        }
+    }
+
+    /**
+     * Finishes a pitch call once the scoring state is released, applying the changes queued in the meantime
      *
-     * @param model The original lyrics model
-     * @return A fixed copy of the lyrics model
+     * @param nested    Whether the state was already owned by the calling thread, which then keeps it
+     * @param refreshUi Whether the UI needs to be refreshed
      */
-    private LyricModel mayBeFixLyricModel(LyricModel model) {
-        if (model == null || model.lines == null || model.lines.isEmpty()) {
-            LogUtils.e("Invalid lyrics model, use built-in EMPTY_LYRICS_MODEL");
-            return EMPTY_LYRICS_MODEL;
-        }
-        LyricModel newModel = model.copy();
-
-        LyricsLineModel preLineModel = newModel.lines.get(0);
-        for (int i = 1; i < newModel.lines.size(); i++) {
-            LyricsLineModel lineModel = newModel.lines.get(i);
-            if (lineModel.getStartTime() < preLineModel.getEndTime()) {
-                List<LyricsLineModel.Tone> tones = lineModel.tones;
-                if (null != tones && !tones.isEmpty()) {
-                    for (LyricsLineModel.Tone tone : tones) {
-                        if (tone.begin < preLineModel.getEndTime()) {
-                            tone.begin = preLineModel.getEndTime();
-                            if (tone.end < tone.begin) {
-                                tone.end = tone.begin;
-                            }
-                        } else {
-                            break;
-                        }
-                    }
+    private void afterPitches(boolean nested, boolean refreshUi) {
+        if (!nested) {
+            applyPendingChanges();
+        }
+        if (refreshUi && mListener != null) {
+            mListener.requestRefreshUi();
+        }
+    }
+
+    /**
+     * Scores the pitches handed off by the pitch thread, called by the owner of the scoring state
+     *
+     * @return true if the UI needs to be refreshed, false otherwise
+     */
+    private boolean scoreHandedOffPitches() {
+        PitchHandoff handoff = mPitchHandoff;
+        if (!handoff.take()) {
+            return false;
+        }
+        boolean refreshUi = false;
+        for (int i = 0; i < handoff.count; i++) {
+            int progressInMs = handoff.progressesInMs[i];
+            if (mUsingInternalScoring) {
+                progressInMs = handoff.lyricProgressesInMs[i];
+                if (i < handoff.count - 1 && progressInMs <= mCurrentPitchProgress) {
+                    // Already covered by the previous pitches
+                    continue;
                 }
             }
-            preLineModel = lineModel;
+            refreshUi |= updatePitch(handoff.speakerPitches[i], handoff.pitchScores[i], progressInMs);
+        }
+        return refreshUi;
+    }
+
+    private void runPendingCommands() {
+        Runnable command;
+        while ((command = mPendingCommands.poll()) != null) {
+            command.run();
+        }
+    }
+
+    /**
+     * Publishes the progress and the score to the readers, called on the scoring thread
+     * Readers retry while the sequence is odd or changed, so they never mix the values of two pitches.
+     */
+    private void publish() {
+        int sequence = mPublishedSequence;
+        mPublishedSequence = sequence + 1;
+        mPublishedSong = mScoredSong;
+        mPublishedPitchProgress = mCurrentPitchProgress;
+        mPublishedCumulativeScore = mCumulativeScore;
+        mPublishedInitialScore = mInitialScore;
+        mPublishedIndexOfCurrentLine = mIndexOfCurrentLine;
+        if (mLineScoresChanged) {
+            mLineScoresChanged = false;
+            publishLineScores();
+        }
+        mPublishedSequence = sequence + 2;
+    }
+
+    /**
+     * Copies the scores of the finished lines for the readers, called by {@link #publish()} while the sequence is odd
+     */
+    private void publishLineScores() {
+        int lineCount = mLyrics != null ? mLyrics.getLineCount() : 0;
+        AtomicIntegerArray scores = mPublishedLineScores;
+        if (scores.length() != lineCount) {
+            scores = new AtomicIntegerArray(lineCount);
+            mPublishedLineScores = scores;
+        }
+        for (int i = 0; i < lineCount; i++) {
+            scores.set(i, mScoreForEachLine.isScored(i) ? (int) mScoreForEachLine.getScore(i) : -1);
         }
-        return model;
     }
 
     /**
@@ -252,7 +430,7 @@ public class ScoringMachine {
      * @return true if lyrics model is set, false otherwise
      */
     public boolean isReady() {
-        return mLyricsModel != null;
+        return mSong.lyricsModel != null;
     }
 
     /**
@@ -275,10 +453,108 @@ public class ScoringMachine {
         if (Config.DEBUG) {
             LogUtils.d("setPitch speakerPitch:" + speakerPitch + ",progressInMs:" + pitchScore + ",progressInMs:" + progressInMs);
         }
-        if (mUsingInternalScoring) {
-            //ignore set pitch progress
-            progressInMs = (int) mCurrentLyricProgress;
+        Thread current = Thread.currentThread();
+        boolean nested = mScoringOwner.get() == current;
+        if (!nested && !mScoringOwner.compareAndSet(null, current)) {
+            // Another thread is applying a change, it scores the pitch before releasing the state
+            PitchHandoff handoff = mPitchHandoff;
+            if (handoff.beginOffer()) {
+                handoff.append(speakerPitch, pitchScore, progressInMs, (int) mCurrentLyricProgress);
+                handoff.endOffer();
+            }
+            applyPendingChanges();
+            return;
         }
+        boolean refreshUi;
+        try {
+            runPendingCommands();
+            refreshUi = scoreHandedOffPitches();
+            if (mUsingInternalScoring) {
+                //ignore set pitch progress
+                progressInMs = (int) mCurrentLyricProgress;
+            }
+            refreshUi |= updatePitch(speakerPitch, pitchScore, progressInMs);
+            publish();
+        } finally {
+            if (!nested) {
+                mScoringOwner.set(null);
+            }
+        }
+        afterPitches(nested, refreshUi);
+    }
+
+    /**
+     * Updates the pitch data with several pitches at once, such as the frames delivered by one audio callback
+     * The pitches are scored in order as by {@link #setPitch(float, float, int)}, firing the finished lines on the way,
+     * then the UI is refreshed once.
+     * With the internal scoring, the last pitch is placed at the lyrics progress and the others before it by their
+     * timestamps, skipping the ones not after the previous pitch.
+     *
+     * @param speakerPitches The detected pitches from the user's voice
+     * @param pitchScores    The calculated pitch scores
+     * @param progressesInMs The progress of each pitch in milliseconds, in increasing order
+     * @param count          Number of pitches, from the start of the arrays
+     * @throws IllegalArgumentException if an array is null or shorter than the count
+     */
+    public void setPitchBatch(float[] speakerPitches, float[] pitchScores, int[] progressesInMs, int count) {
+        if (speakerPitches == null || pitchScores == null || progressesInMs == null) {
+            throw new IllegalArgumentException("Pitch arrays cannot be null");
+        }
+        if (count < 0 || count > speakerPitches.length || count > pitchScores.length || count > progressesInMs.length) {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+        if (Config.DEBUG) {
+            LogUtils.d("setPitchBatch count:" + count);
+        }
+        long lyricProgress = mCurrentLyricProgress;
+        Thread current = Thread.currentThread();
+        boolean nested = mScoringOwner.get() == current;
+        if (!nested && !mScoringOwner.compareAndSet(null, current)) {
+            // Another thread is applying a change, it scores the pitches before releasing the state
+            PitchHandoff handoff = mPitchHandoff;
+            if (handoff.beginOffer()) {
+                for (int i = 0; i < count; i++) {
+                    handoff.append(speakerPitches[i], pitchScores[i], progressesInMs[i],
+                            (int) lyricProgress - (progressesInMs[count - 1] - progressesInMs[i]));
+                }
+                handoff.endOffer();
+            }
+            applyPendingChanges();
+            return;
+        }
+        boolean refreshUi;
+        try {
+            runPendingCommands();
+            refreshUi = scoreHandedOffPitches();
+            for (int i = 0; i < count; i++) {
+                int progressInMs = progressesInMs[i];
+                if (mUsingInternalScoring) {
+                    progressInMs = (int) lyricProgress - (progressesInMs[count - 1] - progressesInMs[i]);
+                    if (i < count - 1 && progressInMs <= mCurrentPitchProgress) {
+                        // Already covered by the previous pitches
+                        continue;
+                    }
+                }
+                refreshUi |= updatePitch(speakerPitches[i], pitchScores[i], progressInMs);
+            }
+            publish();
+        } finally {
+            if (!nested) {
+                mScoringOwner.set(null);
+            }
+        }
+        afterPitches(nested, refreshUi);
+    }
+
+    /**
+     * Scores a pitch at a progress
+     *
+     * @param speakerPitch The detected pitch from the user's voice
+     * @param pitchScore   The calculated pitch score
+     * @param progressInMs The progress of the pitch in milliseconds
+     * @return true if the UI needs to be refreshed, false otherwise
+     */
+    private boolean updatePitch(float speakerPitch, float pitchScore, int progressInMs) {
         if (this.mCurrentPitchProgress >= 0 && progressInMs > 0) {
             mDeltaOfUpdate = (int) (progressInMs - this.mCurrentPitchProgress);
             if (mDeltaOfUpdate > 100 || mDeltaOfUpdate < 0) {
@@ -288,6 +564,7 @@ public class ScoringMachine {
         }
 
         if (progressInMs <= 0L) {
+            mCurrentLyricProgress = 0;
             resetStats();
             if (mListener != null) {
                 mListener.resetUi();
@@ -295,7 +572,8 @@ public class ScoringMachine {
         }
 
         if (progressInMs < mCurrentPitchProgress) {
-            whenDraggingHappen(progressInMs);
+            mCurrentLyricProgress = 0;
+            dragTo(progressInMs);
         }
 
         mCurrentPitchProgress = progressInMs;
@@ -304,23 +582,25 @@ public class ScoringMachine {
             if (mListener != null) {
                 mListener.resetUi();
             }
-            return;
+            return false;
         }
 
-        boolean[] newLine = new boolean[1];
-        int[] indexOfMostRecentLine = new int[]{-1};
+        LineSwitch lineSwitch = mLineSwitch;
+        lineSwitch.reset();
         float currentRefPitch = -1f;
         if (mUsingInternalScoring) {
-            currentRefPitch = findRefPitchByTime(progressInMs, newLine, indexOfMostRecentLine);
-            LogUtils.d("setPitch currentRefPitch:" + currentRefPitch + ",speakerPitch:" + speakerPitch + ",progressInMs:" + progressInMs + ",newLine:" + newLine[0] + ",indexOfMostRecentLine:" + indexOfMostRecentLine[0] + ",mContinuousZeroCount:" + mContinuousZeroCount);
+            currentRefPitch = findRefPitchByTime(progressInMs, lineSwitch);
+            if (LogUtils.isEnabled()) {
+                LogUtils.d("setPitch currentRefPitch:" + currentRefPitch + ",speakerPitch:" + speakerPitch + ",progressInMs:" + progressInMs + ",newLine:" + lineSwitch.newLine + ",indexOfMostRecentLine:" + lineSwitch.indexOfMostRecentLine + ",mContinuousZeroCount:" + mContinuousZeroCount);
+            }
         }
 
         if (speakerPitch == 0) {
             if (++mContinuousZeroCount < ZERO_PITCH_COUNT_THRESHOLD) {
                 if (mUsingInternalScoring) {
-                    updateScoreForMostRecentLine(progressInMs, newLine[0], indexOfMostRecentLine[0]);
+                    updateScoreForMostRecentLine(progressInMs, lineSwitch.newLine, lineSwitch.indexOfMostRecentLine);
                 }
-                return;
+                return false;
             }
         } else {
             mContinuousZeroCount = 0;
@@ -330,19 +610,19 @@ public class ScoringMachine {
             // No ref pitch, just ignore this time
             if (currentRefPitch <= 0 || mContinuousZeroCount >= ZERO_PITCH_COUNT_THRESHOLD) {
                 mContinuousZeroCount = 0;
-                updateScoreForMostRecentLine(progressInMs, newLine[0], indexOfMostRecentLine[0]);
+                updateScoreForMostRecentLine(progressInMs, lineSwitch.newLine, lineSwitch.indexOfMostRecentLine);
                 if (mListener != null) {
                     mListener.resetUi();
                 }
-                return;
+                return false;
             }
 
 
-            updateScoreForMostRecentLine(progressInMs, newLine[0], indexOfMostRecentLine[0]);
+            updateScoreForMostRecentLine(progressInMs, lineSwitch.newLine, lineSwitch.indexOfMostRecentLine);
 
-            float pitchAfterProcess = (float) AIAlgorithmScoreNative.handlePitch(currentRefPitch, speakerPitch, this.mMaximumRefPitch);
+            float pitchAfterProcess = (float) AIAlgorithmScoreNative.handlePitch(currentRefPitch, speakerPitch, mScoredSong.maximumRefPitch);
             float scoreAfterNormalization = mScoringAlgorithm.getPitchScore(pitchAfterProcess, currentRefPitch);
-            mPitchesForLine.put((long) progressInMs, scoreAfterNormalization);
+            mPitchesForLine.put(progressInMs, scoreAfterNormalization);
 
             if (mListener != null) {
                 mListener.onPitchAndScoreUpdate(pitchAfterProcess, scoreAfterNormalization, progressInMs);
@@ -352,7 +632,7 @@ public class ScoringMachine {
             if (pitchScore > 0) {
                 calculateScore = pitchScore;
             } else {
-                calculateScore = (float) calculateScoreWithPitch(speakerPitch, progressInMs);
+                calculateScore = (float) calculateScoreWithPitch(mScoredSong, speakerPitch, progressInMs);
             }
 
             if (null != mListener) {
@@ -360,45 +640,36 @@ public class ScoringMachine {
             }
         }
 
-        if (mListener != null) {
-            mListener.requestRefreshUi();
-        }
+        return true;
     }
 
     /**
      * Finds the reference pitch for the current time and updates line-related data
      *
-     * @param timestamp                   The current timestamp in milliseconds
-     * @param returnNewLine               Output parameter indicating if a new line has started
-     * @param returnIndexOfMostRecentLine Output parameter with the index of the most recent line
+     * @param timestamp        The current timestamp in milliseconds
+     * @param returnLineSwitch Output parameter set when a new line has started, with the index of the most recent line
      * @return The reference pitch at the current time, or -1 if not found
      */
-    private float findRefPitchByTime(long timestamp, final boolean[] returnNewLine, final int[] returnIndexOfMostRecentLine) {
+    private float findRefPitchByTime(long timestamp, final LineSwitch returnLineSwitch) {
         if (mLyricsModel == null || mLyricsModel.lines == null) {
             // Not ready
             return -1;
         }
 
         float referencePitch = -1f;
-        int numberOfLines = mLyricsModel.lines.size();
+        int numberOfLines = mLyrics.getLineCount();
         int timestampLineIndex = -1;
-        for (int i = 0; i < numberOfLines; i++) {
-            LyricsLineModel line = mLyricsModel.lines.get(i);
-            if (timestamp >= line.getStartTime() && timestamp <= line.getEndTime()) {
-                int numberOfTones = line.tones.size();
-                for (int j = 0; j < numberOfTones; j++) {
-                    LyricsLineModel.Tone tone = line.tones.get(j);
-                    if (timestamp >= tone.begin && timestamp <= tone.end) {
-                        referencePitch = tone.pitch;
-
-                        // Last tone in this line
-                        if (j == numberOfTones - 1) {
-                            timestampLineIndex = i;
-                        }
-                        break;
-                    }
+        // Pitches come at increasing timestamps, the cursor moves forward from the previous one
+        int line = mLyricsCursor.moveTo(timestamp);
+        if (line >= 0) {
+            int tone = mLyricsCursor.getTone();
+            if (tone >= 0) {
+                referencePitch = mLyrics.getTonePitch(tone);
+
+                // Last tone in this line
+                if (tone == mLyrics.getFirstToneIndex(line) + mLyrics.getToneCount(line) - 1) {
+                    timestampLineIndex = line;
                 }
-                break;
             }
         }
 
@@ -412,8 +683,8 @@ public class ScoringMachine {
             // A little bit of tricky here, check @Ref K329403
             // if we do not let timestamp very close to start of next line come here, it will miss one callback,
             // then timestamp is starting chasing a new mEndTimeOfCurrentRefPitch
-            returnIndexOfMostRecentLine[0] = mIndexOfCurrentLine;
-            returnNewLine[0] = true;
+            returnLineSwitch.indexOfMostRecentLine = mIndexOfCurrentLine;
+            returnLineSwitch.newLine = true;
         }
 
         if (-1 != timestampLineIndex && timestampLineIndex != mIndexOfCurrentLine) {
@@ -433,31 +704,33 @@ public class ScoringMachine {
      * @return true if a new line has started, false otherwise
      */
     private boolean isNewLine(long timestamp, int numberOfLines, int timestampLineIndex) {
-        LogUtils.d("isNewLine timestamp:" + timestamp + ",numberOfLines:" + numberOfLines + ",timestampLineIndex:" + timestampLineIndex);
+        if (LogUtils.isEnabled()) {
+            LogUtils.d("isNewLine timestamp:" + timestamp + ",numberOfLines:" + numberOfLines + ",timestampLineIndex:" + timestampLineIndex);
+        }
         boolean newLine = false;
         if (mIndexOfCurrentLine >= 0 && mIndexOfCurrentLine + 1 <= numberOfLines) {
-            if (timestamp > mLyricsModel.lines.get(mIndexOfCurrentLine).getEndTime()) {
+            if (timestamp > mLyrics.getLineEndTime(mIndexOfCurrentLine)) {
                 // Current line lyrics ended
                 if (-1 == timestampLineIndex) {
                     // End of current line, but not yet at the start of next line
-                    if (!mScoreForEachLine.containsKey(mIndexOfCurrentLine)) {
+                    if (!mScoreForEachLine.isScored(mIndexOfCurrentLine)) {
                         newLine = true;
                     }
                 } else if (mIndexOfCurrentLine != timestampLineIndex) {
                     // Changed to a new line
-                    if (!mScoreForEachLine.containsKey(mIndexOfCurrentLine)) {
+                    if (!mScoreForEachLine.isScored(mIndexOfCurrentLine)) {
                         newLine = true;
                     }
                 }
             }
         } else if (mIndexOfCurrentLine + 2 == numberOfLines) {
             // Last line
-            if (timestamp >= mLyricsModel.lines.get(mIndexOfCurrentLine).getEndTime()) {
-                if (!mScoreForEachLine.containsKey(mIndexOfCurrentLine)) {
+            if (timestamp >= mLyrics.getLineEndTime(mIndexOfCurrentLine)) {
+                if (!mScoreForEachLine.isScored(mIndexOfCurrentLine)) {
                     newLine = true;
                 }
             }
-        } else {
+        } else if (LogUtils.isEnabled()) {
             LogUtils.i("isNewLine mIndexOfCurrentLine:" + mIndexOfCurrentLine + ",numberOfLines:" + numberOfLines);
         }
         return newLine;
@@ -483,19 +756,16 @@ public class ScoringMachine {
 
 
         if (newLine) {
-            LyricsLineModel lineJustFinished = mLyricsModel.lines.get(indexOfMostRecentLine);
-            int scoreThisTime = mScoringAlgorithm.getLineScore(mPitchesForLine, indexOfMostRecentLine, lineJustFinished);
-
-            StringBuilder lyricsContentLine = new StringBuilder();
-            for (LyricsLineModel.Tone tone : lineJustFinished.tones) {
-                lyricsContentLine.append(tone.word);
-            }
+            LyricsLineModel lineJustFinished = getLineAsScored(indexOfMostRecentLine);
+            int scoreThisTime = mScoringAlgorithm.getLineScore(mPitchesForLine, indexOfMostRecentLine, mLyrics);
 
             // Add to cumulative score
             mCumulativeScore += scoreThisTime;
 
-            LogUtils.d("updateScoreForMostRecentLine timestamp:" + timestamp + " index:" + indexOfMostRecentLine + " startTime:" + lineJustFinished.getStartTime() +
-                    ",endTime:" + lineJustFinished.getEndTime() + ",scoreThisTime:" + scoreThisTime + ",mCumulativeScore:" + mCumulativeScore + ",lyricsContentLine:" + lyricsContentLine);
+            if (LogUtils.isEnabled()) {
+                LogUtils.d("updateScoreForMostRecentLine timestamp:" + timestamp + " index:" + indexOfMostRecentLine + " startTime:" + mLyrics.getLineStartTime(indexOfMostRecentLine) +
+                        ",endTime:" + mLyrics.getLineEndTime(indexOfMostRecentLine) + ",scoreThisTime:" + scoreThisTime + ",mCumulativeScore:" + mCumulativeScore + ",lyricsContentLine:" + mLyrics.getLineText(indexOfMostRecentLine));
+            }
 
 
             if (mListener != null) {
@@ -503,20 +773,41 @@ public class ScoringMachine {
             }
 
             // Cache it for dragging
-            mScoreForEachLine.put(indexOfMostRecentLine, scoreThisTime);
+            mScoreForEachLine.setScore(indexOfMostRecentLine, scoreThisTime);
+            mLineScoresChanged = true;
+        }
+    }
+
+    /**
+     * Gets a line of the lyrics model with the bounds used for scoring
+     *
+     * @param index Index of the line
+     * @return The line of the model, or a normalized copy if the line overlaps the previous one
+     */
+    private LyricsLineModel getLineAsScored(int index) {
+        if (mLyrics.getToneCount(index) > 0 && mLyrics.isAdjusted(mLyrics.getFirstToneIndex(index))) {
+            if (mAdjustedLines[index] == null) {
+                mAdjustedLines[index] = mLyrics.getLine(index);
+            }
+            return mAdjustedLines[index];
         }
+        return mLyricsModel.lines.get(index);
     }
 
     /**
      * Calculates a score based on the difference between speaker pitch and reference pitch
+     * It reads the published song only and leaves the scoring state unchanged, so it may be called from any thread.
      *
      * @param speakerPitch The detected pitch from the user's voice
      * @param progressInMs The current progress in milliseconds
      * @return The calculated score (0-100)
      */
     public double calculateScoreWithPitch(float speakerPitch, int progressInMs) {
-        mCurrentPitchProgress = progressInMs;
-        float refPitch = getRefPitch(progressInMs);
+        return calculateScoreWithPitch(mSong, speakerPitch, progressInMs);
+    }
+
+    private double calculateScoreWithPitch(Song song, float speakerPitch, int progressInMs) {
+        float refPitch = getRefPitch(song, progressInMs);
         double scoreAfterNormalization = 0;
         if (refPitch != 0) {
             if (speakerPitch == refPitch) {
@@ -541,42 +832,56 @@ public class ScoringMachine {
      *
      * @param progress The new progress position in milliseconds
      */
-    public void whenDraggingHappen(long progress) {
+    public void whenDraggingHappen(final long progress) {
+        // The lyrics progress is set by the player, it is reset at once rather than by the scoring thread
+        mCurrentLyricProgress = 0;
+        runOnScoringThread(new Runnable() {
+            @Override
+            public void run() {
+                dragTo(progress);
+            }
+        });
+    }
+
+    /**
+     * Moves the scoring back to a progress, called on the scoring thread
+     *
+     * @param progress The new progress position in milliseconds
+     */
+    private void dragTo(long progress) {
         minorReset();
+        if (mLyricsCursor != null) {
+            mLyricsCursor.reset();
+        }
 
-        for (int index = 0; index < mLyricsModel.lines.size(); index++) {
-            LyricsLineModel line = mLyricsModel.lines.get(index);
-            if (progress <= line.getStartTime()) {
-                mScoreForEachLine.remove(index); // Erase the score item >= progress
+        if (mLyrics != null) {
+            // Erase the scores of the lines starting at or after the progress
+            LyricsTimeIndex timeIndex = mLyrics.getTimeIndex();
+            if (timeIndex.isSorted()) {
+                // All the lines from the first one, as they are in order
+                mScoreForEachLine.removeScoresFrom(timeIndex.firstLineStartingAtOrAfter(progress));
+            } else {
+                for (int i = 0; i < mLyrics.getLineCount(); i++) {
+                    if (mLyrics.getLineStartTime(i) >= progress) {
+                        mScoreForEachLine.removeScore(i);
+                    }
+                }
             }
+            mLineScoresChanged = true;
         }
 
         // Re-calculate when dragging happen
-        mCumulativeScore = mInitialScore;
-        for (Integer score : mScoreForEachLine.values()) {
-            mCumulativeScore += score;
-        }
+        mCumulativeScore = mInitialScore + mScoreForEachLine.getSum();
     }
 
     /**
      * Resets all states and properties
      */
     public void reset() {
-        resetProperties();
-        resetStats();
-    }
-
-    /**
-     * Resets properties when song changes
-     */
-    private void resetProperties() {
-        mLyricsModel = null;
-        mMinimumRefPitch = 100;
-        mMaximumRefPitch = 0;
-
-        mTimestampOfFirstRefPitch = -1;
-
-        mEndTimeOfThisLyrics = 0;
+        Song previous = mSong;
+        mCurrentLyricProgress = 0;
+        publishSong(new Song(null, null, null, 100, 0,
+                previous.usingInternalScoring, -1, 0, previous.generation + 1));
     }
 
     /**
@@ -588,6 +893,7 @@ public class ScoringMachine {
         // Partially reset according to the corresponded action
         mCumulativeScore = mInitialScore;
         mScoreForEachLine.clear();
+        mLineScoresChanged = true;
     }
 
     /**
@@ -595,7 +901,6 @@ public class ScoringMachine {
      */
     private void minorReset() {
         mCurrentPitchProgress = 0;
-        mCurrentLyricProgress = 0;
         mIndexOfCurrentLine = 0;
 
         mPitchesForLine.clear();
@@ -616,7 +921,60 @@ public class ScoringMachine {
      * @return The current lyrics model
      */
     public LyricModel getLyricsModel() {
-        return this.mLyricsModel;
+        return mSong.lyricsModel;
+    }
+
+    /**
+     * Gets the normalized view of the current lyrics model, as used for scoring
+     *
+     * @return The compact lyrics, or null if not prepared
+     */
+    public CompactLyricModel getCompactLyrics() {
+        return mSong.lyrics;
+    }
+
+    /**
+     * Gets the lyrics being scored with the values derived from them, read at once for a consistent view
+     *
+     * @return The current song, whose lyrics model is null if not prepared
+     */
+    public Song getSong() {
+        return mSong;
+    }
+
+    /**
+     * Reads the progress and the score of the last pitch, consistent with each other and with the song
+     * It never blocks the scoring thread, and allocates nothing when the holder is reused.
+     *
+     * @param progress Holder to fill
+     */
+    public void getProgress(Progress progress) {
+        Song song = mSong;
+        int sequence;
+        Song publishedSong;
+        long pitchProgress;
+        float cumulativeScore;
+        float initialScore;
+        int indexOfCurrentLine;
+        do {
+            sequence = mPublishedSequence;
+            publishedSong = mPublishedSong;
+            pitchProgress = mPublishedPitchProgress;
+            cumulativeScore = mPublishedCumulativeScore;
+            initialScore = mPublishedInitialScore;
+            indexOfCurrentLine = mPublishedIndexOfCurrentLine;
+        } while ((sequence & 1) != 0 || sequence != mPublishedSequence);
+
+        if (publishedSong.generation != song.generation) {
+            // A new song not adopted by the scoring thread yet, its scoring starts over
+            pitchProgress = 0;
+            cumulativeScore = initialScore;
+            indexOfCurrentLine = 0;
+        }
+        progress.song = song;
+        progress.pitchProgress = pitchProgress != 0 ? pitchProgress : mCurrentLyricProgress;
+        progress.cumulativeScore = cumulativeScore;
+        progress.indexOfCurrentLine = indexOfCurrentLine;
     }
 
     /**
@@ -625,7 +983,19 @@ public class ScoringMachine {
      * @return Current progress in milliseconds
      */
     public long getCurrentPitchProgress() {
-        return mCurrentPitchProgress != 0 ? mCurrentPitchProgress : mCurrentLyricProgress;
+        Song song = mSong;
+        int sequence;
+        Song publishedSong;
+        long pitchProgress;
+        do {
+            sequence = mPublishedSequence;
+            publishedSong = mPublishedSong;
+            pitchProgress = mPublishedPitchProgress;
+        } while ((sequence & 1) != 0 || sequence != mPublishedSequence);
+        if (publishedSong.generation != song.generation) {
+            pitchProgress = 0;
+        }
+        return pitchProgress != 0 ? pitchProgress : mCurrentLyricProgress;
     }
 
     /**
@@ -634,7 +1004,7 @@ public class ScoringMachine {
      * @return The minimum reference pitch value
      */
     public float getMinimumRefPitch() {
-        return this.mMinimumRefPitch;
+        return mSong.minimumRefPitch;
     }
 
     /**
@@ -643,16 +1013,63 @@ public class ScoringMachine {
      * @return The maximum reference pitch value
      */
     public float getMaximumRefPitch() {
-        return this.mMaximumRefPitch;
+        return mSong.maximumRefPitch;
     }
 
     /**
      * Gets the list of pitch line models
      *
-     * @return List of pitch line models
+     * @return Unmodifiable list of pitch line models, or null if the song has no pitch data
      */
     public List<LyricsPitchLineModel> getPitchLines() {
-        return mPitchLines;
+        return mSong.pitchLines;
+    }
+
+    /**
+     * Gets a snapshot of the scores of the finished lines, as published after the last pitch, from any thread
+     *
+     * @return A new array holding the score of each line, -1 for a line not scored yet
+     */
+    public int[] getScoreForEachLine() {
+        Song song = mSong;
+        int sequence;
+        Song publishedSong;
+        int[] scores;
+        do {
+            sequence = mPublishedSequence;
+            publishedSong = mPublishedSong;
+            AtomicIntegerArray publishedScores = mPublishedLineScores;
+            scores = new int[publishedScores.length()];
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = publishedScores.get(i);
+            }
+        } while ((sequence & 1) != 0 || sequence != mPublishedSequence);
+
+        if (publishedSong.generation != song.generation) {
+            // A new song not adopted by the scoring thread yet, none of its lines is scored
+            scores = new int[song.lyrics != null ? song.lyrics.getLineCount() : 0];
+            Arrays.fill(scores, -1);
+        }
+        return scores;
+    }
+
+    /**
+     * Gets the cumulative score of the performance, including the initial score
+     *
+     * @return The cumulative score
+     */
+    public float getCumulativeScore() {
+        int sequence;
+        Song publishedSong;
+        float cumulativeScore;
+        float initialScore;
+        do {
+            sequence = mPublishedSequence;
+            publishedSong = mPublishedSong;
+            cumulativeScore = mPublishedCumulativeScore;
+            initialScore = mPublishedInitialScore;
+        } while ((sequence & 1) != 0 || sequence != mPublishedSequence);
+        return publishedSong.generation == mSong.generation ? cumulativeScore : initialScore;
     }
 
     /**
@@ -661,10 +1078,7 @@ public class ScoringMachine {
      * @return true if pitch data is available, false otherwise
      */
     public boolean hasPitchData() {
-        if (null == mLyricsModel) {
-            return false;
-        }
-        return mLyricsModel.hasPitch;
+        return mSong.hasPitchData();
     }
 
     /**
@@ -674,11 +1088,7 @@ public class ScoringMachine {
      * @return The start time in milliseconds, or 0 if index is invalid
      */
     public long getLineStartTime(int lineIndex) {
-        if (lineIndex < 0 || lineIndex >= mLyricsModel.lines.size()) {
-            return 0;
-        }
-
-        return mLyricsModel.lines.get(lineIndex).getStartTime();
+        return mSong.getLineStartTime(lineIndex);
     }
 
     /**
@@ -688,25 +1098,27 @@ public class ScoringMachine {
      * @return The reference pitch at the specified time, or 0 if not found
      */
     public float getRefPitch(int progressInMs) {
-        if (mLyricsModel == null) {
+        return getRefPitch(mSong, progressInMs);
+    }
+
+    private float getRefPitch(Song song, int progressInMs) {
+        if (song.lyricsModel == null) {
             return 0;
         }
-        if (null != mLyricsModel && mLyricsModel.hasPitch) {
-            if (null != mLyricsModel.pitchDataList) {
-                for (PitchData data : mLyricsModel.pitchDataList) {
-                    if (data.startTime <= progressInMs && data.startTime + data.duration >= progressInMs) {
-                        return data.pitch;
-                    }
+        if (song.lyricsModel.hasPitch) {
+            // Binary searches, O(1) while the progress stays in the pitch segment or tone found last time
+            PitchTrack pitchTrack = song.lyrics.getPitchTrack();
+            if (null != pitchTrack) {
+                int index = pitchTrack.indexAtWithHint(progressInMs, mIndexOfRefPitch);
+                if (index >= 0) {
+                    mIndexOfRefPitch = index;
+                    return pitchTrack.getPitch(index);
                 }
             } else {
-                if (null != mLyricsModel.lines) {
-                    for (LyricsLineModel line : mLyricsModel.lines) {
-                        for (LyricsLineModel.Tone tone : line.tones) {
-                            if (tone.begin <= progressInMs && tone.end >= progressInMs) {
-                                return tone.pitch;
-                            }
-                        }
-                    }
+                int tone = song.lyrics.getTimeIndex().toneAtWithHint(progressInMs, mIndexOfRefPitch);
+                if (tone >= 0) {
+                    mIndexOfRefPitch = tone;
+                    return song.lyrics.getTonePitch(tone);
                 }
             }
         }
@@ -718,9 +1130,14 @@ public class ScoringMachine {
      *
      * @param initialScore The initial score value
      */
-    public void setInitialScore(float initialScore) {
-        this.mCumulativeScore += initialScore;
-        this.mInitialScore = initialScore;
+    public void setInitialScore(final float initialScore) {
+        runOnScoringThread(new Runnable() {
+            @Override
+            public void run() {
+                mCumulativeScore += initialScore;
+                mInitialScore = initialScore;
+            }
+        });
     }
 
     /**
@@ -788,7 +1205,319 @@ public class ScoringMachine {
      * @return true if internal scoring is enabled, false otherwise
      */
     public boolean isUsingInternalScoring() {
-        return mUsingInternalScoring;
+        return mSong.usingInternalScoring;
+    }
+
+    /**
+     * Immutable state of the lyrics being scored, published as a whole so that a reader never mixes two songs
+     */
+    public static final class Song {
+        /**
+         * State before any lyrics is prepared
+         */
+        static final Song NONE = new Song(null, null, null, 100, 0, false, -1, 0, 0);
+
+        private final LyricModel lyricsModel;
+        private final CompactLyricModel lyrics;
+        private final List<LyricsPitchLineModel> pitchLines;
+        private final float minimumRefPitch;
+        private final float maximumRefPitch;
+        private final boolean usingInternalScoring;
+        private final long timestampOfFirstRefPitch;
+        private final long endTimeOfLyrics;
+        /**
+         * Changed by each prepare or reset, kept by an update of the same song
+         */
+        private final int generation;
+
+        private Song(LyricModel lyricsModel, CompactLyricModel lyrics, List<LyricsPitchLineModel> pitchLines,
+                     float minimumRefPitch, float maximumRefPitch, boolean usingInternalScoring,
+                     long timestampOfFirstRefPitch, long endTimeOfLyrics, int generation) {
+            this.lyricsModel = lyricsModel;
+            this.lyrics = lyrics;
+            this.pitchLines = pitchLines;
+            this.minimumRefPitch = minimumRefPitch;
+            this.maximumRefPitch = maximumRefPitch;
+            this.usingInternalScoring = usingInternalScoring;
+            this.timestampOfFirstRefPitch = timestampOfFirstRefPitch;
+            this.endTimeOfLyrics = endTimeOfLyrics;
+            this.generation = generation;
+        }
+
+        /**
+         * Builds a song from a lyrics model, computing the reference pitch range and the pitch lines
+         *
+         * @param model                The valid lyrics model to be processed
+         * @param usingInternalScoring Whether to use internal scoring algorithm
+         * @param generation           Generation of the song
+         * @return The song
+         */
+        private static Song of(LyricModel model, boolean usingInternalScoring, int generation) {
+            // Lines overlapping the previous one are fixed in a view of the frozen lyrics, the model itself is left unchanged
+            CompactLyricModel lyrics = model.freeze().normalized();
+            float minimumRefPitch = 100;
+            float maximumRefPitch = 0;
+            List<LyricsPitchLineModel> pitchLines = null;
+
+            if (model.hasPitch) {
+                // The pitch range is kept by the frozen lyrics, from the pitch track when it is parsed or else from the tones
+                if (lyrics.hasPitchValues()) {
+                    minimumRefPitch = Math.min(minimumRefPitch, lyrics.getMinimumPitch());
+                    maximumRefPitch = Math.max(maximumRefPitch, lyrics.getMaximumPitch());
+                }
+                pitchLines = new ArrayList<>(lyrics.getLineCount());
+                PitchTrack pitchTrack = lyrics.getPitchTrack();
+                if (pitchTrack != null) {
+                    // Single merge of the lines and the pitch segments, both sorted by start time
+                    int index = 0;
+                    long previousStartTime = Long.MIN_VALUE;
+                    for (int i = 0; i < lyrics.getLineCount(); i++) {
+                        LyricsPitchLineModel lineModel = new LyricsPitchLineModel();
+                        long startTime = lyrics.getLineStartTime(i);
+                        long endTime = lyrics.getLineEndTime(i);
+                        if (startTime < previousStartTime) {
+                            // A line out of order, such as a line without tones, restarts the merge
+                            index = pitchTrack.lowerBound(startTime);
+                        } else {
+                            while (index < pitchTrack.size() && pitchTrack.getStartTime(index) < startTime) {
+                                index++;
+                            }
+                        }
+                        previousStartTime = startTime;
+                        // The segments of the line are not consumed, an overlapping next line may include them too
+                        for (int segment = index; segment < pitchTrack.size() && pitchTrack.getStartTime(segment) < endTime; segment++) {
+                            LyricsPitchLineModel.Pitch pitch = new LyricsPitchLineModel.Pitch();
+                            pitch.begin = pitchTrack.getStartTime(segment);
+                            pitch.end = pitchTrack.getEndTime(segment);
+                            pitch.pitch = (int) pitchTrack.getPitch(segment);
+                            lineModel.pitches.add(pitch);
+                        }
+                        pitchLines.add(lineModel);
+                    }
+                } else {
+                    for (int i = 0; i < lyrics.getLineCount(); i++) {
+                        LyricsPitchLineModel lineModel = new LyricsPitchLineModel();
+                        int firstTone = lyrics.getFirstToneIndex(i);
+                        int endTone = firstTone + lyrics.getToneCount(i);
+                        for (int tone = firstTone; tone < endTone; tone++) {
+                            LyricsPitchLineModel.Pitch pitch = new LyricsPitchLineModel.Pitch();
+                            pitch.begin = lyrics.getToneBegin(tone);
+                            pitch.end = lyrics.getToneEnd(tone);
+                            pitch.pitch = lyrics.getTonePitch(tone);
+                            lineModel.pitches.add(pitch);
+                        }
+                        pitchLines.add(lineModel);
+                    }
+                }
+                pitchLines = Collections.unmodifiableList(pitchLines);
+            }
+
+            LogUtils.d("prepare mMinimumRefPitch:" + minimumRefPitch + ",mMaximumRefPitch:" + maximumRefPitch);
+            return new Song(model, lyrics, pitchLines, minimumRefPitch, maximumRefPitch, usingInternalScoring,
+                    model.preludeEndPosition, lyrics.getLineEndTime(lyrics.getLineCount() - 1), generation);
+        }
+
+        /**
+         * @return The lyrics model, or null if not prepared
+         */
+        public LyricModel getLyricsModel() {
+            return lyricsModel;
+        }
+
+        /**
+         * @return The normalized view of the lyrics model, as used for scoring, or null if not prepared
+         */
+        public CompactLyricModel getCompactLyrics() {
+            return lyrics;
+        }
+
+        /**
+         * @return Unmodifiable list of pitch line models, or null if the song has no pitch data
+         */
+        public List<LyricsPitchLineModel> getPitchLines() {
+            return pitchLines;
+        }
+
+        /**
+         * @return The minimum reference pitch value
+         */
+        public float getMinimumRefPitch() {
+            return minimumRefPitch;
+        }
+
+        /**
+         * @return The maximum reference pitch value
+         */
+        public float getMaximumRefPitch() {
+            return maximumRefPitch;
+        }
+
+        /**
+         * @return true if pitch data is available, false otherwise
+         */
+        public boolean hasPitchData() {
+            return lyricsModel != null && lyricsModel.hasPitch;
+        }
+
+        /**
+         * @param lineIndex The index of the line
+         * @return The start time in milliseconds, or 0 if index is invalid
+         */
+        public long getLineStartTime(int lineIndex) {
+            if (lyrics == null || lineIndex < 0 || lineIndex >= lyrics.getLineCount()) {
+                return 0;
+            }
+            return lyrics.getLineStartTime(lineIndex);
+        }
+
+        /**
+         * @return Whether the song is scored by the internal scoring algorithm
+         */
+        public boolean isUsingInternalScoring() {
+            return usingInternalScoring;
+        }
+    }
+
+    /**
+     * Progress and score of the last pitch as read by {@link #getProgress(Progress)}, reusable from frame to frame
+     */
+    public static final class Progress {
+        /**
+         * The song the progress belongs to
+         */
+        public Song song = Song.NONE;
+        /**
+         * Pitch progress in milliseconds, or the lyrics progress before the first pitch
+         */
+        public long pitchProgress;
+        /**
+         * Cumulative score, including the initial score
+         */
+        public float cumulativeScore;
+        /**
+         * Index of the current line
+         */
+        public int indexOfCurrentLine;
+    }
+
+    /**
+     * Result of a reference pitch lookup about the line switch, reset before each lookup
+     */
+    private static final class LineSwitch {
+        /**
+         * Whether a new line has started
+         */
+        boolean newLine;
+        /**
+         * Index of the most recent line, or -1
+         */
+        int indexOfMostRecentLine = -1;
+
+        void reset() {
+            newLine = false;
+            indexOfMostRecentLine = -1;
+        }
+    }
+
+    /**
+     * Pitches set while another thread owned the scoring state, appended by the pitch thread and taken by the owner
+     * Neither side waits: the pitch thread keeps appending to the pitches not taken yet, and drops its pitches in the
+     * rare case it comes while the owner is swapping the buffers.
+     */
+    private static final class PitchHandoff {
+        private static final int EMPTY = 0;
+        private static final int WRITING = 1;
+        private static final int FULL = 2;
+        private static final int TAKING = 3;
+
+        private final AtomicInteger mState = new AtomicInteger(EMPTY);
+
+        /**
+         * Pitches being appended, only accessed in the WRITING and TAKING states
+         */
+        private float[] mSpeakerPitches = new float[8];
+        private float[] mPitchScores = new float[8];
+        private int[] mProgressesInMs = new int[8];
+        private int[] mLyricProgressesInMs = new int[8];
+        private int mCount;
+
+        /**
+         * Pitches taken by the owner, only accessed by the owner
+         */
+        float[] speakerPitches = new float[8];
+        float[] pitchScores = new float[8];
+        int[] progressesInMs = new int[8];
+        /**
+         * Progress of each pitch for the internal scoring, placed at the lyrics progress when it was set
+         */
+        int[] lyricProgressesInMs = new int[8];
+        int count;
+
+        boolean isFull() {
+            return mState.get() == FULL;
+        }
+
+        /**
+         * Starts appending pitches, called on the pitch thread
+         *
+         * @return false if the owner is taking the pitches at this moment
+         */
+        boolean beginOffer() {
+            if (mState.compareAndSet(FULL, WRITING)) {
+                return true;
+            }
+            if (mState.compareAndSet(EMPTY, WRITING)) {
+                mCount = 0;
+                return true;
+            }
+            return false;
+        }
+
+        void append(float speakerPitch, float pitchScore, int progressInMs, int lyricProgressInMs) {
+            if (mCount == mSpeakerPitches.length) {
+                int capacity = mCount * 2;
+                mSpeakerPitches = Arrays.copyOf(mSpeakerPitches, capacity);
+                mPitchScores = Arrays.copyOf(mPitchScores, capacity);
+                mProgressesInMs = Arrays.copyOf(mProgressesInMs, capacity);
+                mLyricProgressesInMs = Arrays.copyOf(mLyricProgressesInMs, capacity);
+            }
+            mSpeakerPitches[mCount] = speakerPitch;
+            mPitchScores[mCount] = pitchScore;
+            mProgressesInMs[mCount] = progressInMs;
+            mLyricProgressesInMs[mCount] = lyricProgressInMs;
+            mCount++;
+        }
+
+        void endOffer() {
+            mState.set(FULL);
+        }
+
+        /**
+         * Takes the pitches appended so far into the public fields, called by the owner
+         *
+         * @return false if there is no pitch to take
+         */
+        boolean take() {
+            if (!mState.compareAndSet(FULL, TAKING)) {
+                return false;
+            }
+            float[] floats = speakerPitches;
+            speakerPitches = mSpeakerPitches;
+            mSpeakerPitches = floats;
+            floats = pitchScores;
+            pitchScores = mPitchScores;
+            mPitchScores = floats;
+            int[] ints = progressesInMs;
+            progressesInMs = mProgressesInMs;
+            mProgressesInMs = ints;
+            ints = lyricProgressesInMs;
+            lyricProgressesInMs = mLyricProgressesInMs;
+            mLyricProgressesInMs = ints;
+            count = mCount;
+            mCount = 0;
+            mState.set(EMPTY);
+            return true;
+        }
     }
 
     /**
@@ -0,0 +1,220 @@
+package io.agora.karaoke_view_ex.internal.lyric.cache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+
+import io.agora.karaoke_view_ex.internal.constants.LyricType;
+import io.agora.karaoke_view_ex.internal.utils.LogUtils;
+import io.agora.karaoke_view_ex.model.LyricModel;
+
+/**
+ * Disk cache of compiled lyrics
+ * <p>
+ * After a successful parse, the LyricModel is written once in the binary format of {@link CompiledLyricsCodec}.
+ * Later loads of the same lyrics and pitch content with the same parse arguments memory-map that file
+ * and rebuild the LyricModel without any text parsing.
+ * The cache is disabled until a directory is set with {@link #setCacheDir(File)}.
+ */
+public class CompiledLyricsCache {
+    private static final String FILE_EXTENSION = ".klyc";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static volatile File sCacheDir;
+
+    /**
+     * Sets the directory holding compiled lyrics
+     *
+     * @param cacheDir The cache directory, created if needed, or null to disable the cache
+     */
+    public static void setCacheDir(File cacheDir) {
+        if (cacheDir != null && !cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            LogUtils.e("CompiledLyricsCache unable to create cache dir " + cacheDir);
+            cacheDir = null;
+        }
+        sCacheDir = cacheDir;
+    }
+
+    /**
+     * Removes all compiled lyrics from the cache directory
+     */
+    public static void clear() {
+        File cacheDir = sCacheDir;
+        File[] files = cacheDir != null ? cacheDir.listFiles() : null;
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if ((name.endsWith(FILE_EXTENSION) || name.endsWith(TEMP_FILE_EXTENSION)) && !file.delete()) {
+                LogUtils.e("CompiledLyricsCache unable to delete " + file);
+            }
+        }
+    }
+
+    /**
+     * Computes the cache key of lyrics and pitch files
+     *
+     * @param lyricFile                The lyrics file
+     * @param pitchFile                The pitch data file, may be null
+     * @param type                     The lyrics type the files are parsed as
+     * @param includeCopyrightSentence Whether copyright sentences are included
+     * @param lyricOffset              Time offset applied to lyrics (in milliseconds)
+     * @return The cache key, or null if the cache is disabled or the files can not be read
+     */
+    public static String keyOf(File lyricFile, File pitchFile, LyricType type, boolean includeCopyrightSentence, int lyricOffset) {
+        if (sCacheDir == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = newDigest(type, includeCopyrightSentence, lyricOffset);
+            byte[] buffer = new byte[8192];
+            update(digest, lyricFile, buffer);
+            update(digest, pitchFile != null && pitchFile.exists() ? pitchFile : null, buffer);
+            return toHex(digest.digest());
+        } catch (Exception e) {
+            LogUtils.e("CompiledLyricsCache keyOf error: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Computes the cache key of lyrics and pitch data
+     *
+     * @param lyricData                The byte array containing lyrics data
+     * @param pitchData                The byte array containing pitch data, may be null
+     * @param type                     The lyrics type the data is parsed as
+     * @param includeCopyrightSentence Whether copyright sentences are included
+     * @param lyricOffset              Time offset applied to lyrics (in milliseconds)
+     * @return The cache key, or null if the cache is disabled
+     */
+    public static String keyOf(byte[] lyricData, byte[] pitchData, LyricType type, boolean includeCopyrightSentence, int lyricOffset) {
+        if (sCacheDir == null || lyricData == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = newDigest(type, includeCopyrightSentence, lyricOffset);
+            update(digest, lyricData);
+            update(digest, pitchData);
+            return toHex(digest.digest());
+        } catch (Exception e) {
+            LogUtils.e("CompiledLyricsCache keyOf error: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Loads compiled lyrics
+     *
+     * @param key The cache key from keyOf, may be null
+     * @return A new LyricModel rebuilt from the compiled lyrics, or null if there is none
+     */
+    public static LyricModel load(String key) {
+        File file = fileOf(key);
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return CompiledLyricsCodec.decode(buffer);
+        } catch (Exception e) {
+            LogUtils.e("CompiledLyricsCache load error: " + e.getMessage());
+            // Stale or damaged, it is written again after the next parse
+            if (!file.delete()) {
+                LogUtils.e("CompiledLyricsCache unable to delete " + file);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores compiled lyrics, replacing any previous version atomically
+     *
+     * @param key   The cache key from keyOf, may be null
+     * @param model The parsed LyricModel, nothing is stored if null
+     */
+    public static void store(String key, LyricModel model) {
+        File file = fileOf(key);
+        if (file == null || model == null) {
+            return;
+        }
+        File tempFile = null;
+        try {
+            // Unique, as the same lyrics may be stored from several threads
+            tempFile = File.createTempFile(key, TEMP_FILE_EXTENSION, file.getParentFile());
+            ByteBuffer buffer = CompiledLyricsCodec.encode(model);
+            try (FileOutputStream out = new FileOutputStream(tempFile)) {
+                FileChannel channel = out.getChannel();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            if (!tempFile.renameTo(file)) {
+                LogUtils.e("CompiledLyricsCache unable to rename " + tempFile);
+                tempFile.delete();
+            }
+        } catch (Exception e) {
+            LogUtils.e("CompiledLyricsCache store error: " + e.getMessage());
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private static File fileOf(String key) {
+        File cacheDir = sCacheDir;
+        if (cacheDir == null || key == null) {
+            return null;
+        }
+        return new File(cacheDir, key + FILE_EXTENSION);
+    }
+
+    private static MessageDigest newDigest(LyricType type, boolean includeCopyrightSentence, int lyricOffset) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        // The same content may be parsed as another type, depending on the file name
+        digest.update(ByteBuffer.allocate(13)
+                .putInt(CompiledLyricsCodec.FORMAT_VERSION)
+                .putInt(type.ordinal())
+                .put((byte) (includeCopyrightSentence ? 1 : 0))
+                .putInt(lyricOffset)
+                .array());
+        return digest;
+    }
+
+    private static void update(MessageDigest digest, byte[] data) {
+        // The length keeps the lyrics and pitch contents apart
+        digest.update(ByteBuffer.allocate(8).putLong(data != null ? data.length : -1).array());
+        if (data != null) {
+            digest.update(data);
+        }
+    }
+
+    private static void update(MessageDigest digest, File file, byte[] buffer) throws Exception {
+        digest.update(ByteBuffer.allocate(8).putLong(file != null ? file.length() : -1).array());
+        if (file == null) {
+            return;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
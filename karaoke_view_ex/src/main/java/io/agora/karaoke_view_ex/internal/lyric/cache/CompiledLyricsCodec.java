@@ -0,0 +1,303 @@
+package io.agora.karaoke_view_ex.internal.lyric.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.agora.karaoke_view_ex.internal.constants.LyricType;
+import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
+import io.agora.karaoke_view_ex.internal.model.PitchTrack;
+import io.agora.karaoke_view_ex.model.LyricModel;
+
+/**
+ * Binary "compiled lyrics" format
+ * <p>
+ * All values are little-endian and every section starts on an 8-byte boundary:
+ * <pre>
+ * header   64 bytes, see the HEADER_* offsets
+ * lines    lineCount x (long duration, int firstTone, int toneCount or -1 for null tones)
+ * tones    toneCount x (long begin, long end, int word, int pitch, int flags, int reserved)
+ * strings  (stringCount + 1) int offsets into the chars, then stringCharCount UTF-16 chars
+ * pitches  pitchCount floats, then pitchCount int start times, then pitchCount int durations
+ * </pre>
+ * Strings are pooled, a tone word or the name/singer refers to its index, -1 stands for null.
+ */
+class CompiledLyricsCodec {
+    private static final int MAGIC = 0x4359_4C4B; // "KLYC"
+
+    /**
+     * Bump whenever the layout changes so that older compiled files are ignored
+     */
+    static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_TYPE = 8;
+    private static final int HEADER_FLAGS = 12;
+    private static final int HEADER_PRELUDE_END_POSITION = 16;
+    private static final int HEADER_DURATION = 24;
+    private static final int HEADER_COPYRIGHT_SENTENCE_LINE_COUNT = 32;
+    private static final int HEADER_NAME = 36;
+    private static final int HEADER_SINGER = 40;
+    private static final int HEADER_LINE_COUNT = 44;
+    private static final int HEADER_TONE_COUNT = 48;
+    private static final int HEADER_STRING_COUNT = 52;
+    private static final int HEADER_STRING_CHAR_COUNT = 56;
+    private static final int HEADER_PITCH_COUNT = 60;
+
+    private static final int LINE_RECORD_SIZE = 16;
+    private static final int TONE_RECORD_SIZE = 32;
+
+    private static final int FLAG_HAS_PITCH = 1;
+    private static final int FLAG_HAS_LINES = 1 << 1;
+    private static final int FLAG_HAS_PITCH_DATA_LIST = 1 << 2;
+
+    private static final int TONE_FLAG_LANG_MASK = 0xFF;
+    private static final int TONE_FLAG_FULL_LINE = 1 << 8;
+    private static final int TONE_FLAG_MONOLOG = 1 << 9;
+
+    private static final int NO_STRING = -1;
+
+    /**
+     * Encodes a LyricModel into the compiled format
+     *
+     * @param model The LyricModel to encode
+     * @return A buffer holding the encoded model, positioned at 0
+     */
+    static ByteBuffer encode(LyricModel model) {
+        List<LyricsLineModel> lines = model.lines;
+        PitchTrack pitchTrack = model.pitchDataList != null ? PitchTrack.of(model.pitchDataList) : null;
+
+        // Pool the strings first, repeated words share one entry
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        int stringCharCount = 0;
+        int lineCount = lines != null ? lines.size() : 0;
+        int toneCount = 0;
+        for (int i = 0; i < lineCount; i++) {
+            List<LyricsLineModel.Tone> tones = lines.get(i).tones;
+            if (tones == null) {
+                continue;
+            }
+            toneCount += tones.size();
+            for (LyricsLineModel.Tone tone : tones) {
+                stringCharCount += pool(tone.word, strings, stringIndexes);
+            }
+        }
+        stringCharCount += pool(model.name, strings, stringIndexes);
+        stringCharCount += pool(model.singer, strings, stringIndexes);
+        int pitchCount = pitchTrack != null ? pitchTrack.size() : 0;
+
+        int linesOffset = HEADER_SIZE;
+        int tonesOffset = linesOffset + lineCount * LINE_RECORD_SIZE;
+        int stringOffsetsOffset = tonesOffset + toneCount * TONE_RECORD_SIZE;
+        int charsOffset = align(stringOffsetsOffset + (strings.size() + 1) * 4);
+        int pitchesOffset = align(charsOffset + stringCharCount * 2);
+        int size = pitchesOffset + pitchCount * 12;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        int flags = (model.hasPitch ? FLAG_HAS_PITCH : 0)
+                | (lines != null ? FLAG_HAS_LINES : 0)
+                | (pitchTrack != null ? FLAG_HAS_PITCH_DATA_LIST : 0);
+        buffer.putInt(HEADER_MAGIC, MAGIC);
+        buffer.putInt(HEADER_VERSION, FORMAT_VERSION);
+        buffer.putInt(HEADER_TYPE, model.type != null ? model.type.ordinal() : -1);
+        buffer.putInt(HEADER_FLAGS, flags);
+        buffer.putLong(HEADER_PRELUDE_END_POSITION, model.preludeEndPosition);
+        buffer.putLong(HEADER_DURATION, model.duration);
+        buffer.putInt(HEADER_COPYRIGHT_SENTENCE_LINE_COUNT, model.copyrightSentenceLineCount);
+        buffer.putInt(HEADER_NAME, indexOf(model.name, stringIndexes));
+        buffer.putInt(HEADER_SINGER, indexOf(model.singer, stringIndexes));
+        buffer.putInt(HEADER_LINE_COUNT, lineCount);
+        buffer.putInt(HEADER_TONE_COUNT, toneCount);
+        buffer.putInt(HEADER_STRING_COUNT, strings.size());
+        buffer.putInt(HEADER_STRING_CHAR_COUNT, stringCharCount);
+        buffer.putInt(HEADER_PITCH_COUNT, pitchCount);
+
+        int toneIndex = 0;
+        for (int i = 0; i < lineCount; i++) {
+            LyricsLineModel line = lines.get(i);
+            int lineOffset = linesOffset + i * LINE_RECORD_SIZE;
+            buffer.putLong(lineOffset, line.duration);
+            buffer.putInt(lineOffset + 8, toneIndex);
+            buffer.putInt(lineOffset + 12, line.tones != null ? line.tones.size() : -1);
+            if (line.tones == null) {
+                continue;
+            }
+            for (LyricsLineModel.Tone tone : line.tones) {
+                int toneOffset = tonesOffset + toneIndex * TONE_RECORD_SIZE;
+                int toneFlags = (tone.lang != null ? tone.lang.ordinal() : TONE_FLAG_LANG_MASK)
+                        | (tone.isFullLine ? TONE_FLAG_FULL_LINE : 0)
+                        | (tone instanceof LyricsLineModel.Monolog ? TONE_FLAG_MONOLOG : 0);
+                buffer.putLong(toneOffset, tone.begin);
+                buffer.putLong(toneOffset + 8, tone.end);
+                buffer.putInt(toneOffset + 16, indexOf(tone.word, stringIndexes));
+                buffer.putInt(toneOffset + 20, tone.pitch);
+                buffer.putInt(toneOffset + 24, toneFlags);
+                toneIndex++;
+            }
+        }
+
+        int charPosition = charsOffset;
+        for (int i = 0; i < strings.size(); i++) {
+            String value = strings.get(i);
+            buffer.putInt(stringOffsetsOffset + i * 4, (charPosition - charsOffset) / 2);
+            for (int c = 0; c < value.length(); c++) {
+                buffer.putChar(charPosition, value.charAt(c));
+                charPosition += 2;
+            }
+        }
+        buffer.putInt(stringOffsetsOffset + strings.size() * 4, stringCharCount);
+
+        for (int i = 0; i < pitchCount; i++) {
+            buffer.putFloat(pitchesOffset + i * 4, pitchTrack.getPitch(i));
+            buffer.putInt(pitchesOffset + pitchCount * 4 + i * 4, pitchTrack.getStartTime(i));
+            buffer.putInt(pitchesOffset + pitchCount * 8 + i * 4, pitchTrack.getDuration(i));
+        }
+        return buffer;
+    }
+
+    /**
+     * Decodes a LyricModel from the compiled format, every call builds new model objects
+     *
+     * @param source The buffer holding the encoded model, from position 0 to its limit
+     * @return The decoded LyricModel
+     * @throws IllegalStateException If the content is not a valid compiled model of this version
+     */
+    static LyricModel decode(ByteBuffer source) {
+        ByteBuffer buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int size = buffer.limit();
+        check(size >= HEADER_SIZE && buffer.getInt(HEADER_MAGIC) == MAGIC
+                && buffer.getInt(HEADER_VERSION) == FORMAT_VERSION, "unknown header");
+
+        int typeOrdinal = buffer.getInt(HEADER_TYPE);
+        int flags = buffer.getInt(HEADER_FLAGS);
+        int lineCount = buffer.getInt(HEADER_LINE_COUNT);
+        int toneCount = buffer.getInt(HEADER_TONE_COUNT);
+        int stringCount = buffer.getInt(HEADER_STRING_COUNT);
+        int stringCharCount = buffer.getInt(HEADER_STRING_CHAR_COUNT);
+        int pitchCount = buffer.getInt(HEADER_PITCH_COUNT);
+        check(typeOrdinal >= -1 && typeOrdinal < LyricType.values().length && lineCount >= 0 && toneCount >= 0
+                && stringCount >= 0 && stringCharCount >= 0 && pitchCount >= 0, "invalid counts");
+
+        long linesOffset = HEADER_SIZE;
+        long tonesOffset = linesOffset + (long) lineCount * LINE_RECORD_SIZE;
+        long stringOffsetsOffset = tonesOffset + (long) toneCount * TONE_RECORD_SIZE;
+        long charsOffset = align(stringOffsetsOffset + (stringCount + 1L) * 4);
+        long pitchesOffset = align(charsOffset + stringCharCount * 2L);
+        check(pitchesOffset + pitchCount * 12L == size, "unexpected size " + size);
+
+        // Strings, decoded in one go from the UTF-16 section
+        char[] chars = new char[stringCharCount];
+        buffer.position((int) charsOffset);
+        buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asCharBuffer().get(chars);
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            int start = buffer.getInt((int) stringOffsetsOffset + i * 4);
+            int end = buffer.getInt((int) stringOffsetsOffset + (i + 1) * 4);
+            check(start >= 0 && start <= end && end <= stringCharCount, "invalid string " + i);
+            strings[i] = new String(chars, start, end - start);
+        }
+
+        LyricModel model = new LyricModel(typeOrdinal >= 0 ? LyricType.values()[typeOrdinal] : null);
+        model.name = stringAt(strings, buffer.getInt(HEADER_NAME));
+        model.singer = stringAt(strings, buffer.getInt(HEADER_SINGER));
+        model.preludeEndPosition = buffer.getLong(HEADER_PRELUDE_END_POSITION);
+        model.duration = buffer.getLong(HEADER_DURATION);
+        model.hasPitch = (flags & FLAG_HAS_PITCH) != 0;
+        model.copyrightSentenceLineCount = buffer.getInt(HEADER_COPYRIGHT_SENTENCE_LINE_COUNT);
+
+        if ((flags & FLAG_HAS_LINES) != 0) {
+            LyricsLineModel.Lang[] langs = LyricsLineModel.Lang.values();
+            List<LyricsLineModel> lines = new ArrayList<>(lineCount);
+            for (int i = 0; i < lineCount; i++) {
+                int lineOffset = (int) linesOffset + i * LINE_RECORD_SIZE;
+                int firstTone = buffer.getInt(lineOffset + 8);
+                int lineToneCount = buffer.getInt(lineOffset + 12);
+                check(lineToneCount >= -1 && firstTone >= 0 && firstTone + Math.max(lineToneCount, 0) <= toneCount,
+                        "invalid line " + i);
+
+                List<LyricsLineModel.Tone> tones = null;
+                if (lineToneCount >= 0) {
+                    tones = new ArrayList<>(lineToneCount);
+                    for (int t = firstTone; t < firstTone + lineToneCount; t++) {
+                        int toneOffset = (int) tonesOffset + t * TONE_RECORD_SIZE;
+                        int toneFlags = buffer.getInt(toneOffset + 24);
+                        int lang = toneFlags & TONE_FLAG_LANG_MASK;
+                        check(lang < langs.length || lang == TONE_FLAG_LANG_MASK, "invalid tone " + t);
+
+                        LyricsLineModel.Tone tone = (toneFlags & TONE_FLAG_MONOLOG) != 0
+                                ? new LyricsLineModel.Monolog() : new LyricsLineModel.Tone();
+                        tone.begin = buffer.getLong(toneOffset);
+                        tone.end = buffer.getLong(toneOffset + 8);
+                        tone.word = stringAt(strings, buffer.getInt(toneOffset + 16));
+                        tone.pitch = buffer.getInt(toneOffset + 20);
+                        tone.lang = lang < langs.length ? langs[lang] : null;
+                        tone.isFullLine = (toneFlags & TONE_FLAG_FULL_LINE) != 0;
+                        tones.add(tone);
+                    }
+                }
+                LyricsLineModel line = new LyricsLineModel(tones);
+                line.duration = buffer.getLong(lineOffset);
+                lines.add(line);
+            }
+            model.lines = lines;
+        }
+
+        if ((flags & FLAG_HAS_PITCH_DATA_LIST) != 0) {
+            float[] pitches = new float[pitchCount];
+            int[] startTimes = new int[pitchCount];
+            int[] durations = new int[pitchCount];
+            buffer.position((int) pitchesOffset);
+            ByteBuffer pitchBuffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            pitchBuffer.asFloatBuffer().get(pitches);
+            pitchBuffer.position(pitchCount * 4);
+            pitchBuffer.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(startTimes);
+            pitchBuffer.position(pitchCount * 8);
+            pitchBuffer.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(durations);
+
+            PitchTrack track = new PitchTrack(pitchCount);
+            for (int i = 0; i < pitchCount; i++) {
+                track.add(pitches[i], startTimes[i], durations[i]);
+            }
+            model.pitchDataList = track.asPitchDataList();
+        }
+        return model;
+    }
+
+    private static int pool(String value, List<String> strings, Map<String, Integer> stringIndexes) {
+        if (value == null || stringIndexes.containsKey(value)) {
+            return 0;
+        }
+        stringIndexes.put(value, strings.size());
+        strings.add(value);
+        return value.length();
+    }
+
+    private static int indexOf(String value, Map<String, Integer> stringIndexes) {
+        return value != null ? stringIndexes.get(value) : NO_STRING;
+    }
+
+    private static String stringAt(String[] strings, int index) {
+        check(index >= NO_STRING && index < strings.length, "invalid string index " + index);
+        return index != NO_STRING ? strings[index] : null;
+    }
+
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Invalid compiled lyrics: " + message);
+        }
+    }
+}
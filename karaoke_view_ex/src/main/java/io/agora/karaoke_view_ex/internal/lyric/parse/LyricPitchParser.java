@@ -3,15 +3,25 @@ package io.agora.karaoke_view_ex.internal.lyric.parse;
 import android.text.TextUtils;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.regex.Pattern;
 
 import io.agora.karaoke_view_ex.constants.Constants;
 import io.agora.karaoke_view_ex.internal.constants.LyricType;
+import io.agora.karaoke_view_ex.internal.lyric.cache.CompiledLyricsCache;
 import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
-import io.agora.karaoke_view_ex.internal.model.PitchData;
+import io.agora.karaoke_view_ex.internal.model.PitchTrack;
 import io.agora.karaoke_view_ex.internal.model.XmlPitchData;
+import io.agora.karaoke_view_ex.internal.utils.ExecutorFactory;
 import io.agora.karaoke_view_ex.internal.utils.LogUtils;
 import io.agora.karaoke_view_ex.internal.utils.Utils;
 import io.agora.karaoke_view_ex.model.LyricModel;
@@ -35,6 +45,204 @@ public class LyricPitchParser {
      */
     public static final Pattern KRC_PATTERN_LINE = Pattern.compile("\\[(\\w+):([^]]*)]");
 
+    /**
+     * Maximum number of pitch files decoded at the same time in the background
+     */
+    private static final int MAX_PITCH_THREAD_NUM = 2;
+
+    /**
+     * Maximum number of pitch files waiting to be decoded in the background
+     */
+    private static final int MAX_PITCH_QUEUE_SIZE = 16;
+
+    /**
+     * Executor decoding pitch data in parallel mode, created on first use
+     * A decoding rejected because the queue is full runs on the parsing thread instead
+     */
+    private static class PitchExecutorHolder {
+        private static final ExecutorService EXECUTOR = ExecutorFactory.newBoundedExecutor("LyricPitchParser-pitch-",
+                MAX_PITCH_THREAD_NUM, MAX_PITCH_QUEUE_SIZE, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Check of the cancellation of a parsing, polled by the parsers between two lines or pitch records
+     */
+    public interface CancellationCheck {
+        /**
+         * Called on the parsing threads, it must be cheap and thread safe
+         *
+         * @return true to stop the parsing with a {@link CancellationException}
+         */
+        boolean isCancelled();
+    }
+
+    /**
+     * Stops the parsing if it has been cancelled
+     *
+     * @param cancellation The cancellation check of the parsing, may be null
+     * @throws CancellationException if the parsing has been cancelled
+     */
+    static void throwIfCancelled(CancellationCheck cancellation) {
+        if (cancellation != null && cancellation.isCancelled()) {
+            throw new CancellationException("Lyrics parsing cancelled");
+        }
+    }
+
+    /**
+     * Prepares the decoding of pitch data, started right away in the background in parallel mode
+     *
+     * @param decoding     The pitch data decoding
+     * @param parallel     Whether to decode in the background while the lyrics are parsed
+     * @param cancellation The cancellation check of the parsing, may be null
+     * @return The decoding task, to be joined with {@link #awaitPitch(FutureTask)}
+     */
+    private static <T> FutureTask<T> parsePitchAsync(final Callable<T> decoding, boolean parallel, final CancellationCheck cancellation) {
+        FutureTask<T> task = new FutureTask<>(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                // A queued decoding of a cancelled parsing does not even read the pitch file
+                throwIfCancelled(cancellation);
+                return decoding.call();
+            }
+        });
+        if (parallel) {
+            try {
+                PitchExecutorHolder.EXECUTOR.execute(task);
+            } catch (RejectedExecutionException e) {
+                // The pool is busy, the decoding runs on the parsing thread once the lyrics are parsed
+                LogUtils.d("parsePitchAsync rejected: " + e.getMessage());
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Joins the decoding of pitch data
+     * A decoding not started yet runs on the calling thread, so a busy pool never delays the load
+     *
+     * @param task The decoding task from {@link #parsePitchAsync(Callable, boolean, CancellationCheck)}
+     * @return The decoded pitch data
+     */
+    private static <T> T awaitPitch(FutureTask<T> task) {
+        // Does nothing if the task has already been started by the pool
+        task.run();
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            LogUtils.e("awaitPitch error: " + cause);
+        } catch (InterruptedException e) {
+            LogUtils.e("awaitPitch interrupted");
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static FutureTask<PitchTrack> parseKrcPitchAsync(final byte[] pitchData, boolean parallel,
+                                                             final CancellationCheck cancellation) {
+        return parsePitchAsync(new Callable<PitchTrack>() {
+            @Override
+            public PitchTrack call() {
+                return PitchParser.doParseKrcPitchTrack(pitchData, cancellation);
+            }
+        }, parallel, cancellation);
+    }
+
+    private static FutureTask<PitchTrack> parseKrcPitchAsync(final File pitchFile, boolean parallel,
+                                                             final CancellationCheck cancellation) {
+        return parsePitchAsync(new Callable<PitchTrack>() {
+            @Override
+            public PitchTrack call() {
+                return PitchParser.doParseKrcPitchTrack(Utils.getFileBytes(pitchFile), cancellation);
+            }
+        }, parallel, cancellation);
+    }
+
+    private static FutureTask<XmlPitchData> parseXmlPitchAsync(final byte[] pitchData, boolean parallel,
+                                                               final CancellationCheck cancellation) {
+        return parsePitchAsync(new Callable<XmlPitchData>() {
+            @Override
+            public XmlPitchData call() {
+                return pitchData != null ? PitchParser.doParseXml(pitchData, cancellation) : null;
+            }
+        }, parallel, cancellation);
+    }
+
+    private static FutureTask<XmlPitchData> parseXmlPitchAsync(final File pitchFile, boolean parallel,
+                                                               final CancellationCheck cancellation) {
+        return parsePitchAsync(new Callable<XmlPitchData>() {
+            @Override
+            public XmlPitchData call() {
+                byte[] pitchData = Utils.getFileBytes(pitchFile);
+                return pitchData != null ? PitchParser.doParseXml(pitchData, cancellation) : null;
+            }
+        }, parallel, cancellation);
+    }
+
+    /**
+     * Listener of a progressive parsing, called on the parsing thread
+     */
+    public interface OnLyricsProgressListener {
+        /**
+         * Called when more lines are available, before the whole file has been parsed
+         *
+         * @param model A new LyricModel holding the lines parsed so far, its lines are complete and never modified by the parser
+         */
+        void onLinesParsed(LyricModel model);
+    }
+
+    /**
+     * Publishes snapshots of the lines of an XML file while it is parsed,
+     * first with the requested number of lines, then each time the number of lines has doubled
+     */
+    private static class XmlProgressPublisher implements LyricsParserXml.OnParseProgressListener {
+        private final OnLyricsProgressListener mListener;
+        private final List<LyricsLineModel> mLines = new ArrayList<>();
+        private LyricsParserXml.SongGeneral mGeneral;
+        private int mNextPublishCount;
+
+        XmlProgressPublisher(int numberOfFirstLines, OnLyricsProgressListener listener) {
+            this.mNextPublishCount = Math.max(numberOfFirstLines, 1);
+            this.mListener = listener;
+        }
+
+        @Override
+        public void onGeneralParsed(LyricsParserXml.SongGeneral general) {
+            mGeneral = general;
+        }
+
+        @Override
+        public void onLinesParsed(List<LyricsLineModel> lines) {
+            mLines.addAll(lines);
+            if (mLines.size() < mNextPublishCount) {
+                return;
+            }
+            // Same properties as the model of the whole file, see LyricsParserXml
+            LyricsLineModel firstLine = mLines.get(0);
+            LyricsLineModel lastLine = mLines.get(mLines.size() - 1);
+            if (firstLine.tones.isEmpty() || firstLine.getStartTime() < 0 || lastLine.getEndTime() <= 0) {
+                return;
+            }
+            LyricModel model = new LyricModel(LyricType.XML);
+            model.lines = new ArrayList<>(mLines);
+            model.duration = lastLine.getEndTime();
+            model.preludeEndPosition = firstLine.getStartTime();
+            if (mGeneral != null) {
+                model.name = mGeneral.name;
+                model.singer = mGeneral.singer;
+            }
+            model.hasPitch = firstLine.tones.get(0).pitch != 0;
+            mNextPublishCount = mLines.size() * 2;
+            mListener.onLinesParsed(model);
+        }
+    }
+
     /**
      * Validates file parameters for parsing
      *
@@ -75,41 +283,80 @@ public class LyricPitchParser {
         } else if (fileName.endsWith(Constants.FILE_EXTENSION_KRC)) {
             type = LyricType.KRC;
         } else {
-            type = probeLyricsFileType(Utils.getFileBytes(lyricFile));
+            type = LyricsFileProbe.probe(lyricFile).type;
         }
         return type;
     }
 
     /**
-     * Determines the lyrics file type based on file content
+     * Parses lyrics and pitch data from files
      *
-     * @param lyricData The byte array containing lyrics file data
-     * @return The detected LyricType
+     * @param lyricFile                The lyrics file
+     * @param pitchFile                The pitch data file
+     * @param includeCopyrightSentence Whether to include copyright sentences in the output
+     * @param lyricOffset              Time offset to apply to lyrics (in milliseconds)
+     * @return A LyricModel containing the parsed lyrics and pitch data
      */
-    private static LyricType probeLyricsFileType(byte[] lyricData) {
-        LyricType type = LyricType.LRC;
-        try {
-            String fileContent = new String(lyricData, Constants.UTF_8);
-            String[] lines = fileContent.split("\\n|\\r\\n");
-            if (lines.length > 0) {
-                String firstLine = lines[0].trim();
-                if (!TextUtils.isEmpty(firstLine)) {
-                    firstLine = Utils.removeStringBom(firstLine);
-                    if (firstLine.contains(Constants.FILE_EXTENSION_XML) || firstLine.contains("<song>")) {
-                        type = LyricType.XML;
-                    } else if (LRC_PATTERN_LINE.matcher(firstLine).matches()) {
-                        return LyricType.LRC;
-                    } else if (KRC_PATTERN_LINE.matcher(firstLine).matches()) {
-                        type = LyricType.KRC;
-                    } else {
-                        LogUtils.i("probeLyricsFileType unknown lyric type");
-                    }
-                }
-            }
-        } catch (Exception e) {
-            LogUtils.e("probeLyricsFileType error: " + e.getMessage());
-        }
-        return type;
+    public static LyricModel parseFile(File lyricFile, File pitchFile, boolean includeCopyrightSentence, int lyricOffset) {
+        return parseFile(lyricFile, pitchFile, includeCopyrightSentence, lyricOffset, 0, null, false, null);
+    }
+
+    /**
+     * Parses lyrics and pitch data from files, stopping as soon as the parsing is cancelled
+     *
+     * @param lyricFile                The lyrics file
+     * @param pitchFile                The pitch data file
+     * @param includeCopyrightSentence Whether to include copyright sentences in the output
+     * @param lyricOffset              Time offset to apply to lyrics (in milliseconds)
+     * @param parallel                 Whether to decode the pitch data in the background while the lyrics are parsed
+     * @param cancellation             Cancellation check polled between two lines or pitch records, may be null
+     * @return A LyricModel containing the parsed lyrics and pitch data
+     * @throws CancellationException if the parsing has been cancelled
+     */
+    public static LyricModel parseFile(File lyricFile, File pitchFile, boolean includeCopyrightSentence, int lyricOffset,
+                                       boolean parallel, CancellationCheck cancellation) {
+        return parseFile(lyricFile, pitchFile, includeCopyrightSentence, lyricOffset, 0, null, parallel, cancellation);
+    }
+
+    /**
+     * Parses lyrics and pitch data from files, publishing the first lines before the whole file is parsed
+     * <p>
+     * XML lyrics are published as soon as the first lines are read, then each time the number of lines has doubled,
+     * so the time to the first lines does not grow with the size of the file.
+     * Other formats, and lyrics found in the compiled lyrics cache, are only returned as a whole.
+     *
+     * @param lyricFile                The lyrics file
+     * @param pitchFile                The pitch data file
+     * @param includeCopyrightSentence Whether to include copyright sentences in the output
+     * @param lyricOffset              Time offset to apply to lyrics (in milliseconds)
+     * @param numberOfFirstLines       Number of lines of the first published model
+     * @param listener                 Listener receiving the partial models
+     * @return A LyricModel containing the parsed lyrics and pitch data
+     */
+    public static LyricModel parseFileProgressively(File lyricFile, File pitchFile, boolean includeCopyrightSentence, int lyricOffset,
+                                                    int numberOfFirstLines, OnLyricsProgressListener listener) {
+        return parseFile(lyricFile, pitchFile, includeCopyrightSentence, lyricOffset, numberOfFirstLines, listener, false, null);
+    }
+
+    /**
+     * Parses lyrics and pitch data from files, publishing the first lines before the whole file is parsed
+     * and stopping as soon as the parsing is cancelled, see {@link #parseFileProgressively(File, File, boolean, int, int, OnLyricsProgressListener)}
+     *
+     * @param lyricFile                The lyrics file
+     * @param pitchFile                The pitch data file
+     * @param includeCopyrightSentence Whether to include copyright sentences in the output
+     * @param lyricOffset              Time offset to apply to lyrics (in milliseconds)
+     * @param numberOfFirstLines       Number of lines of the first published model
+     * @param listener                 Listener receiving the partial models
+     * @param parallel                 Whether to decode the pitch data in the background while the lyrics are parsed
+     * @param cancellation             Cancellation check polled between two lines or pitch records, may be null
+     * @return A LyricModel containing the parsed lyrics and pitch data
+     * @throws CancellationException if the parsing has been cancelled
+     */
+    public static LyricModel parseFileProgressively(File lyricFile, File pitchFile, boolean includeCopyrightSentence, int lyricOffset,
+                                                    int numberOfFirstLines, OnLyricsProgressListener listener,
+                                                    boolean parallel, CancellationCheck cancellation) {
+        return parseFile(lyricFile, pitchFile, includeCopyrightSentence, lyricOffset, numberOfFirstLines, listener, parallel, cancellation);
     }
 
     /**
@@ -119,22 +366,46 @@ public class LyricPitchParser {
      * @param pitchFile                The pitch data file
      * @param includeCopyrightSentence Whether to include copyright sentences in the output
      * @param lyricOffset              Time offset to apply to lyrics (in milliseconds)
+     * @param numberOfFirstLines       Number of lines of the first published model
+     * @param listener                 Listener receiving the partial models, may be null
+     * @param parallel                 Whether to decode the pitch data in the background while the lyrics are parsed
+     * @param cancellation             Cancellation check polled between two lines or pitch records, may be null
      * @return A LyricModel containing the parsed lyrics and pitch data
      */
-    public static LyricModel parseFile(File lyricFile, File pitchFile, boolean includeCopyrightSentence, int lyricOffset) {
+    private static LyricModel parseFile(File lyricFile, File pitchFile, boolean includeCopyrightSentence, int lyricOffset,
+                                        int numberOfFirstLines, OnLyricsProgressListener listener,
+                                        boolean parallel, CancellationCheck cancellation) {
         checkFileParameters(lyricFile);
         LyricType type = probeLyricsFileType(lyricFile);
+        String cacheKey = CompiledLyricsCache.keyOf(lyricFile, pitchFile, type, includeCopyrightSentence, lyricOffset);
+        LyricModel model = CompiledLyricsCache.load(cacheKey);
+        if (model != null) {
+            return freeze(model);
+        }
+
+        // In parallel mode the pitch file is read and decoded while the lyrics are parsed
         if (type == LyricType.KRC) {
-            return parseKrcLyricData(Utils.getFileBytes(lyricFile), Utils.getFileBytes(pitchFile), includeCopyrightSentence, lyricOffset);
+            FutureTask<PitchTrack> pitchTask = parseKrcPitchAsync(pitchFile, parallel, cancellation);
+            byte[] lyricData = Utils.getFileBytes(lyricFile);
+            LyricModel lyricsModel = LyricsParserKrc.parseKrc(lyricData, contentOffsetOf(lyricData), lyricOffset, cancellation);
+            model = parseKrcLyricData(lyricsModel, awaitPitch(pitchTask), includeCopyrightSentence);
         } else if (type == LyricType.LRC) {
-            return parseLrcLyricData(Utils.getFileBytes(lyricFile), Utils.getFileBytes(pitchFile), includeCopyrightSentence, lyricOffset);
+            FutureTask<XmlPitchData> pitchTask = parseXmlPitchAsync(pitchFile, parallel, cancellation);
+            byte[] lyricData = Utils.getFileBytes(lyricFile);
+            LyricModel lyricsModel = LyricsParserLrc.parseLrc(lyricData, contentOffsetOf(lyricData), cancellation);
+            model = parseLrcLyricData(lyricsModel, awaitPitch(pitchTask), includeCopyrightSentence, lyricOffset);
         } else if (type == LyricType.XML) {
-            return parseXmlLyricData(Utils.getFileBytes(lyricFile), Utils.getFileBytes(pitchFile), includeCopyrightSentence, lyricOffset);
+            FutureTask<XmlPitchData> pitchTask = parseXmlPitchAsync(pitchFile, parallel, cancellation);
+            // XML lyrics are streamed from disk rather than loaded into memory first
+            LyricModel lyricsModel = LyricsParserXml.parseXml(lyricFile,
+                    listener != null ? new XmlProgressPublisher(numberOfFirstLines, listener) : null, cancellation);
+            model = parseXmlLyricData(lyricsModel, awaitPitch(pitchTask), includeCopyrightSentence, lyricOffset);
         } else {
             LogUtils.e("Do not support the lyrics file type " + type);
         }
 
-        return null;
+        CompiledLyricsCache.store(cacheKey, model);
+        return freeze(model);
     }
 
     /**
@@ -147,17 +418,50 @@ public class LyricPitchParser {
      * @return A LyricModel containing the parsed lyrics and pitch data
      */
     public static LyricModel parseLyricData(byte[] lyricData, byte[] pitchData, boolean includeCopyrightSentence, int lyricOffset) {
-        LyricType type = probeLyricsFileType(lyricData);
+        return parseLyricData(lyricData, pitchData, includeCopyrightSentence, lyricOffset, false, null);
+    }
+
+    /**
+     * Parses lyrics and pitch data from byte arrays, stopping as soon as the parsing is cancelled
+     *
+     * @param lyricData                The byte array containing lyrics data
+     * @param pitchData                The byte array containing pitch data
+     * @param includeCopyrightSentence Whether to include copyright sentences in the output
+     * @param lyricOffset              Time offset to apply to lyrics (in milliseconds)
+     * @param parallel                 Whether to decode the pitch data in the background while the lyrics are parsed
+     * @param cancellation             Cancellation check polled between two lines or pitch records, may be null
+     * @return A LyricModel containing the parsed lyrics and pitch data
+     * @throws CancellationException if the parsing has been cancelled
+     */
+    public static LyricModel parseLyricData(byte[] lyricData, byte[] pitchData, boolean includeCopyrightSentence, int lyricOffset,
+                                            boolean parallel, CancellationCheck cancellation) {
+        LyricsFileProbe probe = LyricsFileProbe.probe(lyricData);
+        LyricType type = probe.type;
+        String cacheKey = CompiledLyricsCache.keyOf(lyricData, pitchData, type, includeCopyrightSentence, lyricOffset);
+        LyricModel model = CompiledLyricsCache.load(cacheKey);
+        if (model != null) {
+            return freeze(model);
+        }
+
+        // The parsers start right after the BOM found by the probe
         if (type == LyricType.KRC) {
-            return parseKrcLyricData(lyricData, pitchData, includeCopyrightSentence, lyricOffset);
+            FutureTask<PitchTrack> pitchTask = parseKrcPitchAsync(pitchData, parallel, cancellation);
+            LyricModel lyricsModel = LyricsParserKrc.parseKrc(lyricData, probe.contentOffset, lyricOffset, cancellation);
+            model = parseKrcLyricData(lyricsModel, awaitPitch(pitchTask), includeCopyrightSentence);
         } else if (type == LyricType.LRC) {
-            return parseLrcLyricData(lyricData, pitchData, includeCopyrightSentence, lyricOffset);
+            FutureTask<XmlPitchData> pitchTask = parseXmlPitchAsync(pitchData, parallel, cancellation);
+            LyricModel lyricsModel = LyricsParserLrc.parseLrc(lyricData, probe.contentOffset, cancellation);
+            model = parseLrcLyricData(lyricsModel, awaitPitch(pitchTask), includeCopyrightSentence, lyricOffset);
         } else if (type == LyricType.XML) {
-            return parseXmlLyricData(lyricData, pitchData, includeCopyrightSentence, lyricOffset);
+            FutureTask<XmlPitchData> pitchTask = parseXmlPitchAsync(pitchData, parallel, cancellation);
+            LyricModel lyricsModel = LyricsParserXml.parseXml(lyricData, probe.contentOffset, cancellation);
+            model = parseXmlLyricData(lyricsModel, awaitPitch(pitchTask), includeCopyrightSentence, lyricOffset);
         } else {
             LogUtils.e("Do not support the lyrics file type " + type);
         }
-        return null;
+
+        CompiledLyricsCache.store(cacheKey, model);
+        return freeze(model);
     }
 
     /**
@@ -170,12 +474,48 @@ public class LyricPitchParser {
      * @return A LyricModel containing the parsed lyrics and pitch data
      */
     public static LyricModel parseKrcLyricData(byte[] krcData, byte[] pitchData, boolean includeCopyrightSentence, int lyricOffset) {
+        FutureTask<PitchTrack> pitchTask = parseKrcPitchAsync(pitchData, false, null);
         LyricModel lyricsModel = LyricParser.doParseKrc(krcData, lyricOffset);
-        List<PitchData> pitchDataList = PitchParser.doParseKrc(pitchData);
-        lyricsModel.pitchDataList = pitchDataList;
-        lyricsModel.hasPitch = pitchDataList != null && !pitchDataList.isEmpty();
+        return freeze(parseKrcLyricData(lyricsModel, awaitPitch(pitchTask), includeCopyrightSentence));
+    }
+
+    /**
+     * Gets the index of the first byte of content of a file, after any BOM
+     *
+     * @param data The content of the file, may be null
+     * @return The index of the first byte of content
+     */
+    private static int contentOffsetOf(byte[] data) {
+        return Utils.hasUtf8Bom(data) ? 3 : 0;
+    }
+
+    /**
+     * Freezes a parsed model, so its line bounds and pitch range are computed on the parsing thread
+     *
+     * @param model The parsed LyricModel, may be null
+     * @return The same LyricModel
+     */
+    private static LyricModel freeze(LyricModel model) {
+        if (model != null) {
+            model.freeze();
+        }
+        return model;
+    }
+
+    /**
+     * Applies pitch data to parsed KRC format lyrics
+     *
+     * @param lyricsModel              The LyricModel parsed from KRC lyrics
+     * @param pitchTrack               The decoded pitch data, may be null
+     * @param includeCopyrightSentence Whether to include copyright sentences in the output
+     * @return A LyricModel containing the parsed lyrics and pitch data
+     */
+    private static LyricModel parseKrcLyricData(LyricModel lyricsModel, PitchTrack pitchTrack, boolean includeCopyrightSentence) {
+        // The model holds the track itself, the frozen state takes it back without any PitchData
+        lyricsModel.pitchDataList = pitchTrack != null ? pitchTrack.asPitchDataList() : null;
+        lyricsModel.hasPitch = pitchTrack != null && !pitchTrack.isEmpty();
         if (lyricsModel.hasPitch) {
-            lyricsModel.preludeEndPosition = pitchDataList.get(0).startTime;
+            lyricsModel.preludeEndPosition = pitchTrack.getStartTime(0);
         }
 
         // Remove copyright information sentences
@@ -196,25 +536,19 @@ public class LyricPitchParser {
     }
 
     /**
-     * Parses LRC format lyrics and pitch data
+     * Applies pitch data to parsed LRC format lyrics
      *
-     * @param lyricData                The byte array containing LRC lyrics data
-     * @param pitchData                The byte array containing pitch data
+     * @param model                    The LyricModel parsed from LRC lyrics, may be null
+     * @param pitchesModel             The decoded pitch data, may be null
      * @param includeCopyrightSentence Whether to include copyright sentences in the output
      * @param lyricOffset              Time offset to apply to lyrics (in milliseconds)
      * @return A LyricModel containing the parsed lyrics and pitch data
      */
-    private static LyricModel parseLrcLyricData(byte[] lyricData, byte[] pitchData, boolean includeCopyrightSentence, int lyricOffset) {
-        XmlPitchData pitchesModel = null;
-        if (pitchData != null) {
-            pitchesModel = PitchParser.doParseXml(pitchData);
-        }
-
-        LyricModel model = LyricParser.doParseLrc(lyricData);
+    private static LyricModel parseLrcLyricData(LyricModel model, XmlPitchData pitchesModel, boolean includeCopyrightSentence, int lyricOffset) {
         if (model == null) {
             return null;
         }
-        model.hasPitch = pitchesModel != null && !pitchesModel.pitches.isEmpty();
+        model.hasPitch = pitchesModel != null && pitchesModel.pitches.length > 0;
 
         // Replace tones and set the pitch value
         // Each tone lasts for 100ms
@@ -246,21 +580,15 @@ public class LyricPitchParser {
     }
 
     /**
-     * Parses XML format lyrics and pitch data
+     * Applies pitch data to parsed XML format lyrics
      *
-     * @param lyricData                The byte array containing XML lyrics data
-     * @param pitchData                The byte array containing pitch data
+     * @param model                    The LyricModel parsed from XML lyrics, may be null
+     * @param pitchesModel             The decoded pitch data, may be null
      * @param includeCopyrightSentence Whether to include copyright sentences in the output
      * @param lyricOffset              Time offset to apply to lyrics (in milliseconds)
      * @return A LyricModel containing the parsed lyrics and pitch data
      */
-    private static LyricModel parseXmlLyricData(byte[] lyricData, byte[] pitchData, boolean includeCopyrightSentence, int lyricOffset) {
-        XmlPitchData pitchesModel = null;
-        if (pitchData != null) {
-            pitchesModel = PitchParser.doParseXml(pitchData);
-        }
-
-        LyricModel model = LyricParser.doParseXml(lyricData);
+    private static LyricModel parseXmlLyricData(LyricModel model, XmlPitchData pitchesModel, boolean includeCopyrightSentence, int lyricOffset) {
         if (model == null) {
             return null;
         }
@@ -0,0 +1,197 @@
+package io.agora.karaoke_view_ex.internal.lyric.parse;
+
+import java.io.File;
+import java.io.FileInputStream;
+
+import io.agora.karaoke_view_ex.constants.Constants;
+import io.agora.karaoke_view_ex.internal.constants.LyricType;
+import io.agora.karaoke_view_ex.internal.utils.LogUtils;
+import io.agora.karaoke_view_ex.internal.utils.Utils;
+
+/**
+ * Lyrics format prober
+ * Guesses the lyrics type from the first non-blank line within a bounded prefix of the raw bytes,
+ * without decoding the file content
+ */
+class LyricsFileProbe {
+    /**
+     * Maximum number of bytes looked at after the BOM
+     */
+    private static final int MAX_PROBE_LENGTH = 4096;
+
+    private static final byte[] XML_MARKER = Constants.FILE_EXTENSION_XML.getBytes();
+    private static final byte[] SONG_TAG_MARKER = "<song>".getBytes();
+
+    /**
+     * The detected lyrics type
+     */
+    final LyricType type;
+
+    /**
+     * Index of the first byte of content, after any UTF-8 BOM
+     */
+    final int contentOffset;
+
+    private LyricsFileProbe(LyricType type, int contentOffset) {
+        this.type = type;
+        this.contentOffset = contentOffset;
+    }
+
+    /**
+     * Probes the lyrics type of a file, only reading its first bytes
+     *
+     * @param lyricFile The lyrics file to analyze
+     * @return The probe result
+     */
+    static LyricsFileProbe probe(File lyricFile) {
+        byte[] header = new byte[MAX_PROBE_LENGTH + 3];
+        int length = 0;
+        try (FileInputStream in = new FileInputStream(lyricFile)) {
+            int read;
+            while (length < header.length && (read = in.read(header, length, header.length - length)) != -1) {
+                length += read;
+            }
+        } catch (Exception e) {
+            LogUtils.e("probeLyricsFileType error: " + e.getMessage());
+        }
+        return probe(header, length);
+    }
+
+    /**
+     * Probes the lyrics type of file content
+     *
+     * @param lyricData The byte array containing lyrics file data
+     * @return The probe result
+     */
+    static LyricsFileProbe probe(byte[] lyricData) {
+        return probe(lyricData, lyricData != null ? lyricData.length : 0);
+    }
+
+    /**
+     * Probes the lyrics type from the first bytes of file content
+     *
+     * @param data   The byte array containing the start of lyrics file data
+     * @param length Number of valid bytes in data
+     * @return The probe result
+     */
+    private static LyricsFileProbe probe(byte[] data, int length) {
+        if (data == null || length <= 0) {
+            return new LyricsFileProbe(LyricType.LRC, 0);
+        }
+        int contentOffset = length >= 3 && Utils.hasUtf8Bom(data) ? 3 : 0;
+        int limit = Math.min(length, contentOffset + MAX_PROBE_LENGTH);
+
+        // First non-blank line, trimmed like String.trim()
+        int start = contentOffset;
+        while (start < limit && isBlank(data[start])) {
+            start++;
+        }
+        // Without a BOM at the very start, one may still follow leading blanks
+        if (contentOffset == 0 && limit - start >= 3
+                && (data[start] & 0xFF) == 0xEF && (data[start + 1] & 0xFF) == 0xBB && (data[start + 2] & 0xFF) == 0xBF) {
+            start += 3;
+        }
+        int end = start;
+        while (end < limit && data[end] != '\n') {
+            end++;
+        }
+        // Whether the end of the line has been seen, or only a prefix of it
+        boolean completeLine = end < limit || limit == length;
+        while (end > start && isBlank(data[end - 1])) {
+            end--;
+        }
+        if (start == end) {
+            return new LyricsFileProbe(LyricType.LRC, contentOffset);
+        }
+
+        LyricType type = LyricType.LRC;
+        if (contains(data, start, end, XML_MARKER) || contains(data, start, end, SONG_TAG_MARKER)) {
+            type = LyricType.XML;
+        } else if (isLrcLine(data, start, end)) {
+            type = LyricType.LRC;
+        } else if (completeLine && isKrcLine(data, start, end)) {
+            type = LyricType.KRC;
+        } else {
+            LogUtils.i("probeLyricsFileType unknown lyric type");
+        }
+        return new LyricsFileProbe(type, contentOffset);
+    }
+
+    /**
+     * Same as {@link LyricPitchParser#LRC_PATTERN_LINE}: one or more `[mm:ss.xx]` time tags followed by text
+     */
+    private static boolean isLrcLine(byte[] data, int start, int end) {
+        int numberOfTimeTags = 0;
+        int position = start;
+        int timeTagEnd;
+        while ((timeTagEnd = timeTagEnd(data, position, end)) != -1) {
+            position = timeTagEnd;
+            numberOfTimeTags++;
+        }
+        // Without text after the tags, the last tag is taken as text
+        return numberOfTimeTags > 0 && (position < end || numberOfTimeTags > 1);
+    }
+
+    /**
+     * Same as {@link LyricPitchParser#KRC_PATTERN_LINE}: a whole line such as `[ti:title]`
+     */
+    private static boolean isKrcLine(byte[] data, int start, int end) {
+        if (data[start] != '[' || data[end - 1] != ']') {
+            return false;
+        }
+        int position = start + 1;
+        while (position < end && isWordCharacter(data[position])) {
+            position++;
+        }
+        if (position == start + 1 || position >= end || data[position] != ':') {
+            return false;
+        }
+        for (int i = position + 1; i < end - 1; i++) {
+            if (data[i] == ']') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int timeTagEnd(byte[] data, int start, int end) {
+        if (start + 10 > end || data[start] != '['
+                || !isDigit(data[start + 1]) || !isDigit(data[start + 2]) || data[start + 3] != ':'
+                || !isDigit(data[start + 4]) || !isDigit(data[start + 5]) || data[start + 6] != '.'
+                || !isDigit(data[start + 7]) || !isDigit(data[start + 8])) {
+            return -1;
+        }
+        if (data[start + 9] == ']') {
+            return start + 10;
+        }
+        if (start + 11 <= end && isDigit(data[start + 9]) && data[start + 10] == ']') {
+            return start + 11;
+        }
+        return -1;
+    }
+
+    private static boolean contains(byte[] data, int start, int end, byte[] target) {
+        for (int i = start; i <= end - target.length; i++) {
+            int j = 0;
+            while (j < target.length && data[i + j] == target[j]) {
+                j++;
+            }
+            if (j == target.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isWordCharacter(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_';
+    }
+}
@@ -0,0 +1,383 @@
+package io.agora.karaoke_view_ex.internal.lyric.parse;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import io.agora.karaoke_view_ex.constants.Constants;
+import io.agora.karaoke_view_ex.internal.constants.LyricType;
+import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
+import io.agora.karaoke_view_ex.internal.utils.LogUtils;
+import io.agora.karaoke_view_ex.internal.utils.Utils;
+import io.agora.karaoke_view_ex.model.LyricModel;
+
+/**
+ * KRC format lyrics parser
+ * Tokenizes the UTF-8 encoded file content directly from the byte array in a single pass,
+ * only decoding the words and the title/artist metadata into strings
+ */
+class LyricsParserKrc {
+    private static final Charset UTF_8 = Charset.forName(Constants.UTF_8);
+
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte SPACE = ' ';
+    private static final byte BRACKET_OPEN = '[';
+    private static final byte BRACKET_CLOSE = ']';
+    private static final byte ANGLE_OPEN = '<';
+    private static final byte ANGLE_CLOSE = '>';
+    private static final byte COLON = ':';
+    private static final byte COMMA = ',';
+
+    /**
+     * Maximum number of fields kept by {@link #split(byte[], int, int, byte, int[])}
+     */
+    private static final int MAX_FIELDS = 3;
+
+    /**
+     * Parse lyrics from KRC file content as byte array
+     *
+     * @param krcFileData Byte array containing KRC file data
+     * @param lyricOffset Time offset to apply to lyrics (in milliseconds)
+     * @return LyricModel object containing parsed lyrics
+     */
+    public static LyricModel parseKrc(byte[] krcFileData, int lyricOffset) {
+        return parseKrc(krcFileData, Utils.hasUtf8Bom(krcFileData) ? 3 : 0, lyricOffset, null);
+    }
+
+    /**
+     * Parse lyrics from KRC file content as byte array, starting at a known content offset
+     *
+     * @param krcFileData   Byte array containing KRC file data
+     * @param contentOffset Index of the first byte of content, after any BOM
+     * @param lyricOffset   Time offset to apply to lyrics (in milliseconds)
+     * @param cancellation  Cancellation check polled before each line, may be null
+     * @return LyricModel object containing parsed lyrics
+     * @throws CancellationException if the parsing has been cancelled
+     */
+    static LyricModel parseKrc(byte[] krcFileData, int contentOffset, int lyricOffset, LyricPitchParser.CancellationCheck cancellation) {
+        byte[] data = krcFileData != null ? krcFileData : new byte[0];
+        List<LyricsLineModel> lineModels = new ArrayList<>();
+        String title = null;
+        String singer = null;
+
+        // Reusable holder for the [start, end) ranges of split fields
+        int[] fields = new int[MAX_FIELDS * 2];
+
+        int position = contentOffset;
+        while (position < data.length) {
+            LyricPitchParser.throwIfCancelled(cancellation);
+            int lineEnd = indexOf(data, LINE_FEED, position, data.length);
+            int nextPosition;
+            if (lineEnd == -1) {
+                lineEnd = data.length;
+                nextPosition = data.length;
+            } else {
+                nextPosition = lineEnd + 1;
+                // Lines are separated by `\n` or `\r\n`
+                if (lineEnd > position && data[lineEnd - 1] == CARRIAGE_RETURN) {
+                    lineEnd--;
+                }
+            }
+
+            int lineStart = position;
+            position = nextPosition;
+            try {
+                if (lineStart == lineEnd) {
+                    continue;
+                }
+                if (data[lineStart] != BRACKET_OPEN) {
+                    LogUtils.i("ignore line: " + decode(data, lineStart, lineEnd));
+                    continue;
+                }
+                if (indexOf(data, ANGLE_OPEN, lineStart, lineEnd) != -1 && indexOf(data, ANGLE_CLOSE, lineStart, lineEnd) != -1) {
+                    LyricsLineModel lineModel = parseKrcLine(data, lineStart, lineEnd, lyricOffset, fields);
+                    if (lineModel != null) {
+                        lineModels.add(lineModel);
+                    } else {
+                        LogUtils.e("parseLine error");
+                    }
+                    continue;
+                }
+
+                // Process metadata section: `[ti:星晴]`
+                int colon = indexOf(data, COLON, lineStart, lineEnd);
+                if (colon == -1) {
+                    LogUtils.i("unknown metadata line: " + decode(data, lineStart, lineEnd));
+                    continue;
+                }
+                boolean isTitle = regionMatches(data, lineStart + 1, colon, 't', 'i');
+                boolean isSinger = regionMatches(data, lineStart + 1, colon, 'a', 'r');
+                if (!isTitle && !isSinger) {
+                    continue;
+                }
+                // Value, from after ":" to before "]"
+                String value = readMetadataValue(data, colon + 1, lineEnd);
+                if (value == null) {
+                    LogUtils.e("doParseKrc error: invalid metadata line: " + decode(data, lineStart, lineEnd));
+                } else if (isTitle) {
+                    title = value;
+                } else {
+                    singer = value;
+                }
+            } catch (Exception e) {
+                LogUtils.e("doParseKrc error: " + e.getMessage() + " line: " + decode(data, lineStart, lineEnd));
+            }
+        }
+
+        LyricModel lyrics = new LyricModel(LyricType.KRC);
+        lyrics.name = title != null ? title : "unknownTitle";
+        lyrics.singer = singer != null ? singer : "unknownSinger";
+        lyrics.lines = lineModels;
+        lyrics.preludeEndPosition = 0;
+        if (lineModels.isEmpty()) {
+            lyrics.duration = 0;
+        } else {
+            LyricsLineModel lastLine = lineModels.get(lineModels.size() - 1);
+            lyrics.duration = lastLine.getStartTime() + lastLine.duration;
+        }
+        return lyrics;
+    }
+
+    /**
+     * Parse a single KRC line such as `[0,1600]<0,177,0>星<177,200,0>晴`
+     *
+     * @param data   Byte array containing KRC file data
+     * @param start  Start index of the line (inclusive), pointing at `[`
+     * @param end    End index of the line (exclusive)
+     * @param offset Time offset to apply (in milliseconds)
+     * @param fields Reusable holder for split field ranges
+     * @return A LyricsLineModel representing the parsed line, or null if parsing fails
+     */
+    private static LyricsLineModel parseKrcLine(byte[] data, int start, int end, long offset, int[] fields) {
+        try {
+            int rangeEnd = indexOf(data, BRACKET_CLOSE, start, end);
+            if (rangeEnd == -1) {
+                return null;
+            }
+
+            // Process line time: `0,1600`
+            if (split(data, start + 1, rangeEnd, COMMA, fields) != 2) {
+                return null;
+            }
+            long startTimeOrigin = parseLong(data, trimStart(data, fields[0], fields[1]), trimEnd(data, fields[0], fields[1]));
+            long lineStartTime = startTimeOrigin >= offset ? startTimeOrigin - offset : startTimeOrigin;
+            long lineDuration = parseLong(data, trimStart(data, fields[2], fields[3]), trimEnd(data, fields[2], fields[3]));
+
+            int contentStart = trimStart(data, rangeEnd + 1, end);
+            int contentEnd = trimEnd(data, rangeEnd + 1, end);
+
+            // Parse line content, each tone starts with `<`
+            List<LyricsLineModel.Tone> tones = new ArrayList<>();
+            int toneStart = contentStart;
+            while (toneStart <= contentEnd) {
+                int toneEnd = indexOf(data, ANGLE_OPEN, toneStart, contentEnd);
+                if (toneEnd == -1) {
+                    toneEnd = contentEnd;
+                }
+                if (toneEnd > toneStart) {
+                    LyricsLineModel.Tone tone = parseKrcTone(data, toneStart, toneEnd, lineStartTime, fields);
+                    if (tone != null) {
+                        tones.add(tone);
+                    }
+                }
+                toneStart = toneEnd + 1;
+            }
+
+            LyricsLineModel lineModel = new LyricsLineModel(tones);
+            lineModel.duration = lineDuration;
+            return lineModel;
+        } catch (Exception e) {
+            LogUtils.e("parseKrcLine error: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Parse a single KRC tone without its leading `<`, such as `0,177,0>星`
+     *
+     * @param data          Byte array containing KRC file data
+     * @param start         Start index of the tone (inclusive)
+     * @param end           End index of the tone (exclusive)
+     * @param lineStartTime Start time of the line the tone belongs to (in milliseconds)
+     * @param fields        Reusable holder for split field ranges
+     * @return The parsed tone, or null if the tone is not well-formed
+     * @throws NumberFormatException If the timing or pitch of the tone is invalid
+     */
+    private static LyricsLineModel.Tone parseKrcTone(byte[] data, int start, int end, long lineStartTime, int[] fields) {
+        if (split(data, start, end, ANGLE_CLOSE, fields) != 2) {
+            return null;
+        }
+        int timeStart = fields[0];
+        int timeEnd = fields[1];
+        int wordStart = fields[2];
+        int wordEnd = fields[3];
+
+        if (split(data, timeStart, timeEnd, COMMA, fields) != 3) {
+            return null;
+        }
+        long startTime = lineStartTime + parseLong(data, fields[0], fields[1]);
+        long duration = parseLong(data, fields[2], fields[3]);
+        int pitch = parsePitch(data, fields[4], fields[5]);
+
+        LyricsLineModel.Tone tone = new LyricsLineModel.Tone();
+        tone.begin = startTime;
+        tone.end = startTime + duration;
+        tone.word = decode(data, wordStart, wordEnd);
+        tone.pitch = pitch;
+        tone.lang = LyricsLineModel.Lang.Chinese;
+        return tone;
+    }
+
+    /**
+     * Split the range by the separator, following the semantics of {@link String#split(String)}:
+     * trailing empty fields are dropped and an empty range yields a single empty field.
+     *
+     * @param data      Byte array to split
+     * @param start     Start index (inclusive)
+     * @param end       End index (exclusive)
+     * @param separator The separator byte
+     * @param fields    Output holder, receives the [start, end) pairs of the first {@link #MAX_FIELDS} fields
+     * @return The number of fields
+     */
+    private static int split(byte[] data, int start, int end, byte separator, int[] fields) {
+        if (start == end) {
+            fields[0] = start;
+            fields[1] = end;
+            return 1;
+        }
+
+        int count = 0;
+        int nonEmptyCount = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || data[i] == separator) {
+                if (count < MAX_FIELDS) {
+                    fields[count * 2] = fieldStart;
+                    fields[count * 2 + 1] = i;
+                }
+                count++;
+                if (i > fieldStart) {
+                    nonEmptyCount = count;
+                }
+                fieldStart = i + 1;
+            }
+        }
+        return nonEmptyCount;
+    }
+
+    /**
+     * Parse a long value following the semantics of {@link Long#parseLong(String)}
+     *
+     * @param data  Byte array containing the number
+     * @param start Start index (inclusive)
+     * @param end   End index (exclusive)
+     * @return The parsed value
+     * @throws NumberFormatException If the range does not contain a parsable long
+     */
+    private static long parseLong(byte[] data, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (data[i] == '-' || data[i] == '+')) {
+            negative = data[i] == '-';
+            i++;
+        }
+        // Fall back to the JDK for anything beyond plain ASCII digits that surely fit into a long
+        if (i == end || end - i > 18) {
+            return Long.parseLong(decode(data, start, end));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.parseLong(decode(data, start, end));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse the pitch of a tone, which is truncated from its double representation
+     *
+     * @param data  Byte array containing the pitch
+     * @param start Start index (inclusive)
+     * @param end   End index (exclusive)
+     * @return The parsed pitch
+     * @throws NumberFormatException If the range does not contain a parsable double
+     */
+    private static int parsePitch(byte[] data, int start, int end) {
+        // Plain integers are by far the most common case, others go through the JDK
+        if (end > start && end - start <= 9) {
+            int value = 0;
+            boolean plainInteger = true;
+            for (int i = start; i < end; i++) {
+                int digit = data[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    plainInteger = false;
+                    break;
+                }
+                value = value * 10 + digit;
+            }
+            if (plainInteger) {
+                return value;
+            }
+        }
+        return (int) Double.parseDouble(decode(data, start, end));
+    }
+
+    /**
+     * Read the metadata value up to the closing `]`, which is dropped as the last character of the line
+     *
+     * @param data  Byte array containing KRC file data
+     * @param start Start index of the value (inclusive)
+     * @param end   End index of the line (exclusive)
+     * @return The metadata value, or null if the line is too short to contain one
+     */
+    private static String readMetadataValue(byte[] data, int start, int end) {
+        if (start > end - 1) {
+            return null;
+        }
+        if (data[end - 1] >= 0) {
+            return decode(data, start, end - 1);
+        }
+        // The last character is not ASCII, drop it as a whole character
+        String value = decode(data, start, end);
+        return value.substring(0, value.length() - 1);
+    }
+
+    private static boolean regionMatches(byte[] data, int start, int end, char first, char second) {
+        return end - start == 2 && data[start] == first && data[start + 1] == second;
+    }
+
+    private static int indexOf(byte[] data, byte target, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (data[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Same as {@link String#trim()}, ASCII control characters and space never appear inside a UTF-8 multi-byte sequence
+     */
+    private static int trimStart(byte[] data, int start, int end) {
+        while (start < end && data[start] >= 0 && data[start] <= SPACE) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(byte[] data, int start, int end) {
+        while (end > start && data[end - 1] >= 0 && data[end - 1] <= SPACE) {
+            end--;
+        }
+        return end;
+    }
+
+    private static String decode(byte[] data, int start, int end) {
+        return new String(data, start, end - start, UTF_8);
+    }
+}
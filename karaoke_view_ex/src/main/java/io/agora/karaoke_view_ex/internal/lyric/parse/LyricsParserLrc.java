@@ -0,0 +1,336 @@
+package io.agora.karaoke_view_ex.internal.lyric.parse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import io.agora.karaoke_view_ex.constants.Constants;
+import io.agora.karaoke_view_ex.internal.constants.LyricType;
+import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
+import io.agora.karaoke_view_ex.internal.utils.LogUtils;
+import io.agora.karaoke_view_ex.internal.utils.Utils;
+import io.agora.karaoke_view_ex.model.LyricModel;
+
+/**
+ * LRC format lyrics parser
+ * Scans each line once for the leading `[mm:ss.xx]` time tags and the optional
+ * `<mm:ss.xxx>` word tags of enhanced LRC, without any regular expression
+ */
+class LyricsParserLrc {
+    /**
+     * Length of a word tag such as `<00:17.650>`
+     */
+    private static final int WORD_TAG_LENGTH = 11;
+
+    /**
+     * Parse lyrics from LRC file content as byte array
+     *
+     * @param fileData Byte array containing LRC file data
+     * @return LyricModel object containing parsed lyrics, or null if parsing fails
+     */
+    public static LyricModel parseLrc(byte[] fileData) {
+        return parseLrc(fileData, Utils.hasUtf8Bom(fileData) ? 3 : 0, null);
+    }
+
+    /**
+     * Parse lyrics from LRC file content as byte array, starting at a known content offset
+     *
+     * @param fileData      Byte array containing LRC file data
+     * @param contentOffset Index of the first byte of content, after any BOM
+     * @param cancellation  Cancellation check polled before each line, may be null
+     * @return LyricModel object containing parsed lyrics, or null if parsing fails
+     * @throws CancellationException if the parsing has been cancelled
+     */
+    static LyricModel parseLrc(byte[] fileData, int contentOffset, LyricPitchParser.CancellationCheck cancellation) {
+        if (null == fileData) {
+            return null;
+        }
+
+        List<LyricsLineModel> lines = new ArrayList<>();
+        try {
+            String content = new String(fileData, contentOffset, fileData.length - contentOffset, Constants.UTF_8);
+            int length = content.length();
+            int position = 0;
+            while (position < length) {
+                LyricPitchParser.throwIfCancelled(cancellation);
+                int lineEnd = content.indexOf('\n', position);
+                int nextPosition;
+                if (lineEnd == -1) {
+                    lineEnd = length;
+                    nextPosition = length;
+                } else {
+                    nextPosition = lineEnd + 1;
+                    // Lines are separated by `\n` or `\r\n`
+                    if (lineEnd > position && content.charAt(lineEnd - 1) == '\r') {
+                        lineEnd--;
+                    }
+                }
+                parseLrcLine(content, position, lineEnd, lines);
+                position = nextPosition;
+            }
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            LogUtils.e("doParse error: " + e.getMessage());
+        }
+
+        return parseLrcLines(lines);
+    }
+
+    /**
+     * Processes a list of parsed LRC lines into a complete LyricModel
+     *
+     * @param lines List of parsed LyricsLineModel objects
+     * @return A LyricModel containing the processed lyrics data
+     */
+    private static LyricModel parseLrcLines(List<LyricsLineModel> lines) {
+        LyricModel lyrics = new LyricModel(LyricType.LRC);
+        if (null == lines || lines.isEmpty()) {
+            return lyrics;
+        }
+        lyrics.lines = lines;
+        for (int i = 0; i < lines.size() - 1; i++) {
+            LyricsLineModel cur = lines.get(i);
+            LyricsLineModel next = lines.get(i + 1);
+
+            if (cur.tones == null || cur.tones.size() <= 0) {
+                continue;
+            }
+
+            LyricsLineModel.Tone first = cur.tones.get(0);
+            first.end = next.getStartTime();
+        }
+
+        if (!lines.isEmpty()) {
+            long faked = lines.get(lines.size() - 1).getStartTime() + 8765;
+            lines.get(lines.size() - 1).tones.get(0).end = faked;
+            // We do not know the last end timestamp of song
+            lyrics.duration = faked;
+        }
+        // Always the first line of lyrics
+        lyrics.preludeEndPosition = lines.get(0).getStartTime();
+
+        if (lyrics.duration <= 0 || lyrics.preludeEndPosition < 0) {
+            LogUtils.e("no sentence or unexpected timestamp of sentence: " + lyrics.preludeEndPosition + " " + lyrics.duration);
+            // Invalid lyrics
+            return null;
+        }
+        return lyrics;
+    }
+
+    /**
+     * Parses a single line from LRC format, such as `[00:17.65]让我掉下眼泪的`,
+     * `[00:17.65][01:20.10]让我掉下眼泪的` or `[00:17.65]<00:17.650>让<00:18.010>我`
+     *
+     * @param content The whole file content
+     * @param start   Start index of the line (inclusive)
+     * @param end     End index of the line (exclusive)
+     * @param out     List receiving the parsed lines
+     */
+    private static void parseLrcLine(String content, int start, int end, List<LyricsLineModel> out) {
+        // Same as String.trim()
+        while (start < end && content.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && content.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return;
+        }
+
+        // Leading time tags: [00:17.65]
+        int numberOfTimeTags = 0;
+        int textStart = start;
+        int lastTimeTagStart = start;
+        int timeTagEnd;
+        while ((timeTagEnd = timeTagEnd(content, textStart, end)) != -1) {
+            lastTimeTagStart = textStart;
+            textStart = timeTagEnd;
+            numberOfTimeTags++;
+        }
+        if (numberOfTimeTags == 0) {
+            return;
+        }
+        if (textStart == end) {
+            // A line only made of time tags takes its last tag as text
+            if (numberOfTimeTags == 1) {
+                return;
+            }
+            textStart = lastTimeTagStart;
+            numberOfTimeTags--;
+        }
+        for (int i = textStart; i < end; i++) {
+            if (isLineTerminator(content.charAt(i))) {
+                return;
+            }
+        }
+
+        if (wordTagEnd(content, textStart, end) != -1) {
+            // Enhanced LRC: <00:17.650>让<00:18.010>我
+            LyricsLineModel lineModel = new LyricsLineModel();
+            int wordTagStart = textStart;
+            while (wordTagStart != -1) {
+                int wordStart = wordTagStart + WORD_TAG_LENGTH;
+                int wordEnd = content.indexOf('<', wordStart);
+                if (wordEnd == -1 || wordEnd > end) {
+                    wordEnd = end;
+                }
+
+                LyricsLineModel.Tone tone = new LyricsLineModel.Tone();
+                tone.begin = parseTime(content, wordTagStart + 1, 3);
+                tone.word = removeQuotes(content, wordStart, wordEnd);
+                tone.lang = LyricsLineModel.Lang.Chinese;
+                lineModel.tones.add(tone);
+
+                wordTagStart = nextWordTag(content, wordEnd, end);
+            }
+            out.add(lineModel);
+            return;
+        }
+
+        // One line for each time tag, all sharing the same text
+        String text = content.substring(textStart, end);
+        int timeTagStart = start;
+        for (int i = 0; i < numberOfTimeTags; i++) {
+            timeTagEnd = timeTagEnd(content, timeTagStart, end);
+
+            LyricsLineModel.Tone tone = new LyricsLineModel.Tone();
+            tone.begin = parseTime(content, timeTagStart + 1, timeTagEnd - timeTagStart - 8);
+            tone.word = text;
+            tone.lang = LyricsLineModel.Lang.Chinese;
+            tone.isFullLine = true;
+            out.add(new LyricsLineModel(tone));
+
+            timeTagStart = timeTagEnd;
+        }
+    }
+
+    /**
+     * Matches a time tag `[mm:ss.xx]` or `[mm:ss.xxx]` at the given position
+     *
+     * @param content The whole file content
+     * @param start   Position of the expected `[`
+     * @param end     End index of the line (exclusive)
+     * @return The end index of the tag (exclusive), or -1 if there is no time tag
+     */
+    private static int timeTagEnd(String content, int start, int end) {
+        if (start + 10 > end || content.charAt(start) != '[' || !isTimestamp(content, start + 1)) {
+            return -1;
+        }
+        if (content.charAt(start + 9) == ']') {
+            return start + 10;
+        }
+        if (start + 11 <= end && isDigit(content.charAt(start + 9)) && content.charAt(start + 10) == ']') {
+            return start + 11;
+        }
+        return -1;
+    }
+
+    /**
+     * Matches a word tag `<mm:ss.xxx>` at the given position
+     *
+     * @param content The whole file content
+     * @param start   Position of the expected `<`
+     * @param end     End index of the line (exclusive)
+     * @return The end index of the tag (exclusive), or -1 if there is no word tag
+     */
+    private static int wordTagEnd(String content, int start, int end) {
+        if (start + WORD_TAG_LENGTH > end || content.charAt(start) != '<' || !isTimestamp(content, start + 1)
+                || !isDigit(content.charAt(start + 9)) || content.charAt(start + 10) != '>') {
+            return -1;
+        }
+        return start + WORD_TAG_LENGTH;
+    }
+
+    /**
+     * Finds the next word tag, text between a `<` and the next valid word tag is dropped
+     *
+     * @param content The whole file content
+     * @param start   Position to search from
+     * @param end     End index of the line (exclusive)
+     * @return The start index of the next word tag, or -1 if there is none
+     */
+    private static int nextWordTag(String content, int start, int end) {
+        int position = start;
+        while (position < end) {
+            position = content.indexOf('<', position);
+            if (position == -1 || position >= end) {
+                return -1;
+            }
+            if (wordTagEnd(content, position, end) != -1) {
+                return position;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks the `mm:ss.xx` part shared by time tags and word tags
+     */
+    private static boolean isTimestamp(String content, int start) {
+        return isDigit(content.charAt(start)) && isDigit(content.charAt(start + 1))
+                && content.charAt(start + 2) == ':'
+                && isDigit(content.charAt(start + 3)) && isDigit(content.charAt(start + 4))
+                && content.charAt(start + 5) == '.'
+                && isDigit(content.charAt(start + 6)) && isDigit(content.charAt(start + 7));
+    }
+
+    /**
+     * Converts a validated `mm:ss.xx` or `mm:ss.xxx` timestamp into milliseconds
+     *
+     * @param content                The whole file content
+     * @param start                  Index of the first minute digit
+     * @param numberOfFractionDigits 2 for hundredths, 3 for milliseconds
+     * @return The timestamp in milliseconds
+     */
+    private static long parseTime(String content, int start, int numberOfFractionDigits) {
+        long min = digitsAt(content, start, 2);
+        long sec = digitsAt(content, start + 3, 2);
+        long mil = digitsAt(content, start + 6, numberOfFractionDigits);
+        // If milliseconds is two digits, multiply by 10
+        if (numberOfFractionDigits == 2) {
+            mil = mil * 10;
+        }
+        return min * 60 * 1000 + sec * 1000 + mil;
+    }
+
+    private static int digitsAt(String content, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            value = value * 10 + (content.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Line terminators that are not matched by `.` in a regular expression
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Same as {@link io.agora.karaoke_view_ex.utils.Utils#removeQuotes(String)} on a range of the content
+     */
+    private static String removeQuotes(String content, int start, int end) {
+        StringBuilder builder = null;
+        for (int i = start; i < end; i++) {
+            char c = content.charAt(i);
+            if (c == '"' || c == '\'') {
+                if (builder == null) {
+                    builder = new StringBuilder(end - start);
+                    builder.append(content, start, i);
+                }
+            } else if (builder != null) {
+                builder.append(c);
+            }
+        }
+        return builder != null ? builder.toString() : content.substring(start, end);
+    }
+}
@@ -6,12 +6,14 @@ import android.util.Xml;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 import io.agora.karaoke_view_ex.constants.Constants;
 import io.agora.karaoke_view_ex.internal.constants.LyricType;
@@ -83,23 +85,54 @@ class LyricsParserXml {
     }
 
     /**
-     * Parse lyrics from an XML file
+     * Listener of the progress of an XML parsing, called on the parsing thread
+     */
+    interface OnParseProgressListener {
+        /**
+         * Called once the general song information has been read
+         *
+         * @param general General song information
+         */
+        void onGeneralParsed(SongGeneral general);
+
+        /**
+         * Called each time a sentence has been read, with the lines it is made of
+         *
+         * @param lines Lines of the sentence, complete and never modified afterwards
+         */
+        void onLinesParsed(List<LyricsLineModel> lines);
+    }
+
+    /**
+     * Parse lyrics from an XML file, streaming its content from disk
      *
      * @param xmlFile The XML file containing lyrics data
      * @return LyricModel object containing parsed lyrics, or null if parsing fails
      */
     public static LyricModel parseXml(File xmlFile) {
+        return parseXml(xmlFile, null, null);
+    }
+
+    /**
+     * Parse lyrics from an XML file, streaming its content from disk and reporting lines as soon as they are read
+     *
+     * @param xmlFile      The XML file containing lyrics data
+     * @param listener     Listener of the parsing progress, may be null
+     * @param cancellation Cancellation check polled before each sentence, may be null
+     * @return LyricModel object containing parsed lyrics, or null if parsing fails
+     * @throws CancellationException if the parsing has been cancelled
+     */
+    static LyricModel parseXml(File xmlFile, OnParseProgressListener listener, LyricPitchParser.CancellationCheck cancellation) {
         if (xmlFile == null || !xmlFile.exists()) {
             LogUtils.e("unexpected lyrics file " + xmlFile);
             return null;
         }
 
-        try (FileInputStream in = new FileInputStream(xmlFile)) {
-            XmlPullParser parser = Xml.newPullParser();
-            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
-            parser.setInput(in, null);
-            parser.nextTag();
-            return parseLrcByXmlParse(parser);
+        try (InputStream in = new FileInputStream(xmlFile)) {
+            // The pull parser detects the encoding from the BOM or the XML declaration
+            return parseXml(in, null, listener, cancellation);
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             LogUtils.e(Log.getStackTraceString(e));
         }
@@ -114,18 +147,48 @@ class LyricsParserXml {
      * @return LyricModel object containing parsed lyrics, or null if parsing fails
      */
     public static LyricModel parseXml(byte[] xmlFileData) {
-        if (xmlFileData == null || xmlFileData.length == 0) {
+        return parseXml(xmlFileData, 0, null);
+    }
+
+    /**
+     * Parse lyrics from XML file content as byte array, starting at a known content offset
+     *
+     * @param xmlFileData   Byte array containing XML file data
+     * @param contentOffset Index of the first byte of content, after any BOM
+     * @param cancellation  Cancellation check polled before each sentence, may be null
+     * @return LyricModel object containing parsed lyrics, or null if parsing fails
+     * @throws CancellationException if the parsing has been cancelled
+     */
+    static LyricModel parseXml(byte[] xmlFileData, int contentOffset, LyricPitchParser.CancellationCheck cancellation) {
+        if (xmlFileData == null || xmlFileData.length <= contentOffset) {
             LogUtils.e("lyrics file data is empty");
             return null;
         }
 
+        return parseXml(new ByteArrayInputStream(xmlFileData, contentOffset, xmlFileData.length - contentOffset), Constants.UTF_8, null, cancellation);
+    }
+
+    /**
+     * Parse lyrics from an XML input stream
+     * The content is decoded while the pull parser reads it, without copying it into a String first
+     *
+     * @param in           Input stream of the XML content, not closed by this method
+     * @param encoding     Encoding of the content, or null to detect it from the content
+     * @param listener     Listener of the parsing progress, may be null
+     * @param cancellation Cancellation check polled before each sentence, may be null
+     * @return LyricModel object containing parsed lyrics, or null if parsing fails
+     */
+    private static LyricModel parseXml(InputStream in, String encoding, OnParseProgressListener listener,
+                                       LyricPitchParser.CancellationCheck cancellation) {
         try {
             XmlPullParser parser = Xml.newPullParser();
             parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
-            parser.setInput(new StringReader(new String(xmlFileData, Constants.UTF_8)));
+            parser.setInput(in, encoding);
             parser.nextTag();
 
-            return parseLrcByXmlParse(parser);
+            return parseLrcByXmlParse(parser, listener, cancellation);
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             LogUtils.e(Log.getStackTraceString(e));
         }
@@ -136,12 +199,14 @@ class LyricsParserXml {
     /**
      * Parse lyrics from an XML parser
      *
-     * @param parser XmlPullParser with XML content
+     * @param parser       XmlPullParser with XML content
+     * @param listener     Listener of the parsing progress, may be null
+     * @param cancellation Cancellation check polled before each sentence, may be null
      * @return LyricModel object containing parsed lyrics, or null if parsing fails
      */
-    private static LyricModel parseLrcByXmlParse(XmlPullParser parser) {
+    private static LyricModel parseLrcByXmlParse(XmlPullParser parser, OnParseProgressListener listener, LyricPitchParser.CancellationCheck cancellation) {
         try {
-            Song song = readXml(parser);
+            Song song = readXml(parser, listener, cancellation);
             if (song.midi == null || song.midi.paragraphs == null) {
                 LogUtils.e(" no midi or paragraph");
                 return null;
@@ -170,6 +235,8 @@ class LyricsParserXml {
                 lyrics.hasPitch = lyrics.lines.get(0).tones.get(0).pitch != 0;
             }
             return lyrics;
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             LogUtils.e(Log.getStackTraceString(e));
         }
@@ -179,12 +246,14 @@ class LyricsParserXml {
     /**
      * Read XML content and parse into Song object
      *
-     * @param parser XmlPullParser with XML content
+     * @param parser       XmlPullParser with XML content
+     * @param listener     Listener of the parsing progress, may be null
+     * @param cancellation Cancellation check polled before each sentence, may be null
      * @return Song object containing parsed data
      * @throws XmlPullParserException If XML parsing fails
      * @throws IOException            If reading fails
      */
-    private static Song readXml(XmlPullParser parser) throws XmlPullParserException, IOException {
+    private static Song readXml(XmlPullParser parser, OnParseProgressListener listener, LyricPitchParser.CancellationCheck cancellation) throws XmlPullParserException, IOException {
         Song song = new Song();
 //        parser.require(XmlPullParser.START_TAG, null, "song");
         while (parser.next() != XmlPullParser.END_TAG) {
@@ -196,9 +265,12 @@ class LyricsParserXml {
             if (name.equals("general")) {
                 song.general = new SongGeneral();
                 readGeneral(parser, song.general);
+                if (listener != null) {
+                    listener.onGeneralParsed(song.general);
+                }
             } else if (name.equals("midi_lrc")) {
                 song.midi = new SongMidi();
-                readMidiLrc(parser, song.midi);
+                readMidiLrc(parser, song.midi, listener, cancellation);
             } else {
                 skip(parser);
             }
@@ -239,12 +311,15 @@ class LyricsParserXml {
     /**
      * Read MIDI lyrics data
      *
-     * @param parser XmlPullParser with XML content
-     * @param midi   SongMidi object to populate
+     * @param parser       XmlPullParser with XML content
+     * @param midi         SongMidi object to populate
+     * @param listener     Listener of the parsing progress, may be null
+     * @param cancellation Cancellation check polled before each sentence, may be null
      * @throws XmlPullParserException If XML parsing fails
      * @throws IOException            If reading fails
      */
-    private static void readMidiLrc(XmlPullParser parser, SongMidi midi) throws XmlPullParserException, IOException {
+    private static void readMidiLrc(XmlPullParser parser, SongMidi midi, OnParseProgressListener listener,
+                                    LyricPitchParser.CancellationCheck cancellation) throws XmlPullParserException, IOException {
         parser.require(XmlPullParser.START_TAG, null, "midi_lrc");
 
         midi.paragraphs = new ArrayList<>();
@@ -257,7 +332,7 @@ class LyricsParserXml {
             if (name.equals("paragraph")) {
                 Paragraph mParagraph = new Paragraph();
                 midi.paragraphs.add(mParagraph);
-                readParagraph(parser, mParagraph);
+                readParagraph(parser, mParagraph, listener, cancellation);
             } else {
                 skip(parser);
             }
@@ -267,12 +342,15 @@ class LyricsParserXml {
     /**
      * Read paragraph data
      *
-     * @param parser    XmlPullParser with XML content
-     * @param paragraph Paragraph object to populate
+     * @param parser       XmlPullParser with XML content
+     * @param paragraph    Paragraph object to populate
+     * @param listener     Listener of the parsing progress, may be null
+     * @param cancellation Cancellation check polled before each sentence, may be null
      * @throws XmlPullParserException If XML parsing fails
      * @throws IOException            If reading fails
      */
-    private static void readParagraph(XmlPullParser parser, Paragraph paragraph) throws XmlPullParserException, IOException {
+    private static void readParagraph(XmlPullParser parser, Paragraph paragraph, OnParseProgressListener listener,
+                                      LyricPitchParser.CancellationCheck cancellation) throws XmlPullParserException, IOException {
         parser.require(XmlPullParser.START_TAG, null, "paragraph");
 
         paragraph.lines = new ArrayList<>();
@@ -283,12 +361,16 @@ class LyricsParserXml {
 
             String name = parser.getName();
             if (name.equals("sentence")) {
+                LyricPitchParser.throwIfCancelled(cancellation);
                 List<LyricsLineModel> lines = new ArrayList<>();
                 readLines(parser, lines);
                 for (LyricsLineModel line : lines) {
                     line.duration = line.getEndTime() - line.getStartTime();
                 }
                 paragraph.lines.addAll(lines);
+                if (listener != null) {
+                    listener.onLinesParsed(lines);
+                }
             } else {
                 skip(parser);
             }
@@ -2,20 +2,27 @@ package io.agora.karaoke_view_ex.internal.lyric.parse;
 
 import androidx.annotation.NonNull;
 
-import com.google.gson.Gson;
-
-import org.json.JSONObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.nio.ByteBuffer;
-import java.text.DecimalFormat;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
+import io.agora.karaoke_view_ex.constants.Constants;
 import io.agora.karaoke_view_ex.internal.model.PitchData;
+import io.agora.karaoke_view_ex.internal.model.PitchTrack;
 import io.agora.karaoke_view_ex.internal.model.XmlPitchData;
 import io.agora.karaoke_view_ex.internal.utils.LogUtils;
+import io.agora.karaoke_view_ex.internal.utils.Utils;
 
 /**
  * Parser for pitch data in various formats.
@@ -23,6 +30,27 @@ import io.agora.karaoke_view_ex.internal.utils.LogUtils;
  * and convert them into standardized data structures for use in karaoke applications.
  */
 public class PitchParser {
+    /**
+     * Size in bytes of the header of a pitch file: version, interval and reserved as int32
+     */
+    private static final int XML_PITCH_HEADER_SIZE = 12;
+
+    /**
+     * Scaled pitch values below this bound are exactly representable as float,
+     * so they can be divided back without double rounding
+     */
+    private static final double MAX_EXACT_SCALED_PITCH = 1 << 24;
+
+    /**
+     * Scaled pitch values closer than this to a tie are rounded on their decimal representation
+     */
+    private static final double PITCH_TIE_TOLERANCE = 1e-6;
+
+    /**
+     * Number of pitch values decoded between two cancellation checks
+     */
+    private static final int PITCHES_PER_CANCELLATION_CHECK = 4096;
+
     /**
      * Parses XML format pitch data
      *
@@ -31,43 +59,81 @@ public class PitchParser {
      */
     @NonNull
     public static XmlPitchData doParseXml(byte[] fileData) {
-        XmlPitchData model = new XmlPitchData(new ArrayList<>());
+        return doParseXml(fileData, null);
+    }
+
+    /**
+     * Parses XML format pitch data, stopping if the parsing is cancelled
+     *
+     * @param fileData     The byte array containing XML pitch data
+     * @param cancellation Cancellation check polled while decoding, may be null
+     * @return An XmlPitchData object containing the parsed pitch data
+     * @throws CancellationException if the parsing has been cancelled
+     */
+    @NonNull
+    static XmlPitchData doParseXml(byte[] fileData, LyricPitchParser.CancellationCheck cancellation) {
+        XmlPitchData model = new XmlPitchData(new float[0]);
 
         if (null == fileData) {
             return model;
         }
 
-        ByteBuffer buffer = null;
         try {
-            buffer = ByteBuffer.wrap(fileData);
-            // Read int32 values until the end of the file
-            model.version = readLittleEndianInt(buffer);
+            ByteBuffer buffer = ByteBuffer.wrap(fileData).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < XML_PITCH_HEADER_SIZE) {
+                LogUtils.e("doParse error: pitch file too short, size " + fileData.length);
+                return model;
+            }
+            model.version = buffer.getInt();
             LogUtils.d("Version for the pitch file: " + model.version);
 
-            model.interval = readLittleEndianInt(buffer);
+            model.interval = buffer.getInt();
             LogUtils.d("Interval for the pitch file: " + model.interval);
 
-            model.reserved = readLittleEndianInt(buffer);
+            model.reserved = buffer.getInt();
             LogUtils.d("Reserved for the pitch file: " + model.reserved);
 
-            DecimalFormat formatter = new DecimalFormat("#.###");
-            while (buffer.remaining() >= 8) {
-                // Each pitch value at least takes 8 bits
-                double pitch = readLittleEndianDouble(buffer);
-                String formattedPitch = formatter.format(pitch);
-                model.pitches.add(Float.parseFloat(formattedPitch));
+            // Each pitch value is a little-endian double, trailing bytes are ignored
+            DoubleBuffer doubles = buffer.asDoubleBuffer();
+            float[] pitches = new float[doubles.remaining()];
+            for (int i = 0; i < pitches.length; i++) {
+                if (i % PITCHES_PER_CANCELLATION_CHECK == 0) {
+                    LyricPitchParser.throwIfCancelled(cancellation);
+                }
+                pitches[i] = roundPitch(doubles.get(i));
             }
+            model.pitches = pitches;
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             LogUtils.e("doParse error: " + e.getMessage());
-        } finally {
-            if (buffer != null) {
-                buffer.clear();
-            }
         }
 
         return model;
     }
 
+    /**
+     * Rounds a pitch value to 3 decimal places with HALF_EVEN, the same as formatting it
+     * with `DecimalFormat("#.###")` and parsing it back, without the string round-trip
+     *
+     * @param pitch The raw pitch value
+     * @return The rounded pitch value
+     */
+    static float roundPitch(double pitch) {
+        double scaled = pitch * 1000;
+        if (Math.abs(scaled) < MAX_EXACT_SCALED_PITCH) {
+            double rounded = Math.rint(scaled);
+            if (Math.abs(Math.abs(scaled - rounded) - 0.5) > PITCH_TIE_TOLERANCE) {
+                return (float) rounded / 1000f;
+            }
+        }
+        if (Double.isNaN(pitch) || Double.isInfinite(pitch)) {
+            return (float) pitch;
+        }
+        // Too large or too close to a tie, round the shortest decimal representation like the formatter does
+        return new BigDecimal(Double.toString(pitch)).setScale(3, RoundingMode.HALF_EVEN).floatValue();
+    }
+
     /**
      * Fetches the average pitch value within a specified time range
      *
@@ -76,76 +142,16 @@ public class PitchParser {
      * @param start            The start time of the range in milliseconds
      * @param end              The end time of the range in milliseconds
      * @return The average pitch value within the range, or 0 if no valid pitches found
+     * or the range is outside of the pitch data
      */
     public static double fetchPitchWithRange(XmlPitchData data, long startOfFirstTone, long start, long end) {
-        if (data == null) {
+        if (data == null || data.interval <= 0) {
             return 0d;
         }
 
         int fromIdx = (int) ((start - startOfFirstTone) / data.interval);
         int toIdx = (int) ((end - startOfFirstTone) / data.interval);
-
-        double total = 0d;
-        int numberOfValidPitches = 0;
-        for (int idx = fromIdx; idx < toIdx; idx++) {
-            double pitch = data.pitches.get(idx);
-            if (pitch > 0) { // Filter value <= 0
-                total += pitch;
-                numberOfValidPitches++;
-            }
-        }
-        if (numberOfValidPitches > 0) {
-            return total / numberOfValidPitches;
-        }
-        return 0d;
-    }
-
-    /**
-     * Reads a 32-bit integer in little-endian format from a ByteBuffer
-     *
-     * @param buffer The ByteBuffer to read from
-     * @return The integer value read
-     * @throws IOException If an I/O error occurs
-     */
-    private static int readLittleEndianInt(ByteBuffer buffer) throws IOException {
-        int b1 = getUnsignedByte(buffer);
-        int b2 = getUnsignedByte(buffer);
-        int b3 = getUnsignedByte(buffer);
-        int b4 = getUnsignedByte(buffer);
-
-        return (b4 << 24) | (b3 << 16) | (b2 << 8) | b1;
-    }
-
-    /**
-     * Reads a 64-bit double in little-endian format from a ByteBuffer
-     *
-     * @param buffer The ByteBuffer to read from
-     * @return The double value read
-     * @throws IOException If an I/O error occurs
-     */
-    private static double readLittleEndianDouble(ByteBuffer buffer) throws IOException {
-        long bits = readLittleEndianLong(buffer);
-        return Double.longBitsToDouble(bits);
-    }
-
-    /**
-     * Reads a 64-bit long in little-endian format from a ByteBuffer
-     *
-     * @param buffer The ByteBuffer to read from
-     * @return The long value read
-     * @throws IOException If an I/O error occurs
-     */
-    private static long readLittleEndianLong(ByteBuffer buffer) throws IOException {
-        long b1 = getUnsignedByte(buffer);
-        long b2 = getUnsignedByte(buffer);
-        long b3 = getUnsignedByte(buffer);
-        long b4 = getUnsignedByte(buffer);
-        long b5 = getUnsignedByte(buffer);
-        long b6 = getUnsignedByte(buffer);
-        long b7 = getUnsignedByte(buffer);
-        long b8 = getUnsignedByte(buffer);
-
-        return (b8 << 56) | (b7 << 48) | (b6 << 40) | (b5 << 32) | (b4 << 24) | (b3 << 16) | (b2 << 8) | b1;
+        return data.getAveragePitch(fromIdx, toIdx);
     }
 
     /**
@@ -186,23 +192,111 @@ public class PitchParser {
      * Parses KRC format pitch data
      *
      * @param fileData The byte array containing KRC pitch data
-     * @return A list of PitchData objects, or null if parsing fails
+     * @return A list view of the pitch track sorted by start time, see {@link PitchTrack#asPitchDataList()}, or null if parsing fails
      */
     public static List<PitchData> doParseKrc(byte[] fileData) {
+        PitchTrack track = doParseKrcPitchTrack(fileData, null);
+        return track != null ? track.asPitchDataList() : null;
+    }
+
+    /**
+     * Parses KRC format pitch data such as `{"pitchDatas":[{"pitch":50,"startTime":15203,"duration":241}]}`
+     * into a PitchTrack, streaming through the JSON content without building any intermediate tree
+     *
+     * @param fileData The byte array containing KRC pitch data
+     * @return A PitchTrack holding the pitch segments, or null if parsing fails
+     */
+    public static PitchTrack doParseKrcPitchTrack(byte[] fileData) {
+        return doParseKrcPitchTrack(fileData, null);
+    }
+
+    /**
+     * Parses KRC format pitch data into a PitchTrack, stopping if the parsing is cancelled
+     *
+     * @param fileData     The byte array containing KRC pitch data
+     * @param cancellation Cancellation check polled before each pitch record, may be null
+     * @return A PitchTrack holding the pitch segments, or null if parsing fails
+     * @throws CancellationException if the parsing has been cancelled
+     */
+    // Lenient like Gson.fromJson, which parsed the pitch files before
+    @SuppressWarnings("deprecation")
+    static PitchTrack doParseKrcPitchTrack(byte[] fileData, LyricPitchParser.CancellationCheck cancellation) {
         if (fileData == null || fileData.length == 0) {
             return null;
         }
-        try {
-            String jsonData = new String(fileData);
-            JSONObject jsonObject = new JSONObject(jsonData);
-            if (jsonObject.has("pitchDatas")) {
-                jsonData = jsonObject.getString("pitchDatas");
-                Gson gson = new Gson();
-                return Arrays.asList(gson.fromJson(jsonData, PitchData[].class));
+        int offset = Utils.hasUtf8Bom(fileData) ? 3 : 0;
+        try (JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(fileData, offset, fileData.length - offset), Constants.UTF_8))) {
+            reader.setLenient(true);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"pitchDatas".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                JsonToken token = reader.peek();
+                if (token == JsonToken.STRING) {
+                    // Pitch data given as an encoded JSON array
+                    try (JsonReader nested = new JsonReader(new StringReader(reader.nextString()))) {
+                        nested.setLenient(true);
+                        return readPitchTrack(nested, fileData.length, cancellation);
+                    }
+                }
+                if (token != JsonToken.BEGIN_ARRAY) {
+                    LogUtils.e("doParse error: unexpected pitchDatas " + token);
+                    return null;
+                }
+                return readPitchTrack(reader, fileData.length, cancellation);
             }
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             LogUtils.e("doParse error: " + e.getMessage());
         }
         return null;
     }
+
+    /**
+     * Reads an array of pitch objects into a PitchTrack
+     *
+     * @param reader       The reader positioned before the array
+     * @param dataSize     Size of the pitch file, used to estimate the number of pitch segments
+     * @param cancellation Cancellation check polled before each pitch object, may be null
+     * @return A PitchTrack holding the pitch segments
+     * @throws IOException If the content is not a valid array of pitch objects
+     */
+    private static PitchTrack readPitchTrack(JsonReader reader, int dataSize, LyricPitchParser.CancellationCheck cancellation) throws IOException {
+        // Each pitch object takes at least 40 bytes once formatted
+        PitchTrack track = new PitchTrack(dataSize / 40);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            LyricPitchParser.throwIfCancelled(cancellation);
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            float pitch = 0;
+            int startTime = 0;
+            int duration = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                } else if ("pitch".equals(name)) {
+                    pitch = (float) reader.nextDouble();
+                } else if ("startTime".equals(name)) {
+                    startTime = reader.nextInt();
+                } else if ("duration".equals(name)) {
+                    duration = reader.nextInt();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            track.add(pitch, startTime, duration);
+        }
+        reader.endArray();
+        return track;
+    }
 }
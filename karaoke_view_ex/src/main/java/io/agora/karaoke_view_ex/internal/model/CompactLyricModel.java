@@ -0,0 +1,598 @@
+package io.agora.karaoke_view_ex.internal.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.agora.karaoke_view_ex.internal.constants.LyricType;
+import io.agora.karaoke_view_ex.model.LyricModel;
+
+/**
+ * Compact and immutable lyrics model backed by parallel primitive arrays.
+ * Holds the same information as a {@link LyricModel} without one object per line and per tone:
+ * the tones of all lines are stored one after the other, the tones of line i being in the range
+ * [getFirstToneIndex(i), getFirstToneIndex(i) + getToneCount(i)).
+ * The words of all tones share a single character pool, so the words of a line are contiguous.
+ * Times are stored in milliseconds as int, which covers songs of more than 24 days.
+ */
+public final class CompactLyricModel {
+    private static final byte FLAG_ENGLISH = 1;
+    private static final byte FLAG_FULL_LINE = 1 << 1;
+    private static final byte FLAG_MONOLOG = 1 << 2;
+    private static final byte FLAG_NO_WORD = 1 << 3;
+    private static final int[] EMPTY_INTS = new int[0];
+
+    private final LyricType type;
+    private final String name;
+    private final String singer;
+    private final long preludeEndPosition;
+    private final long duration;
+    private final boolean hasPitch;
+    private final int copyrightSentenceLineCount;
+    private final PitchTrack pitchTrack;
+    private final float minimumPitch;
+    private final float maximumPitch;
+
+    /**
+     * Index of the first tone of each line, followed by the total number of tones
+     */
+    private final int[] lineToneOffsets;
+    private final long[] lineDurations;
+
+    private final int[] toneBegins;
+    private final int[] toneEnds;
+    private final int[] tonePitches;
+    private final byte[] toneFlags;
+
+    /**
+     * Index of the first character of each word in the pool, followed by the size of the pool
+     */
+    private final int[] wordOffsets;
+    private final char[] wordPool;
+
+    /**
+     * Sparse overlay of adjusted tone bounds, sorted by tone index, empty if no tone is adjusted
+     * The tone arrays above are shared with the model the overlay was made from and are never changed
+     */
+    private final int[] adjustedTones;
+    private final int[] adjustedBegins;
+    private final int[] adjustedEnds;
+
+    /**
+     * Normalized view of the lyrics, built on first use
+     */
+    private CompactLyricModel normalized;
+
+    /**
+     * Time index of the lyrics, built on first use
+     */
+    private LyricsTimeIndex timeIndex;
+
+    private CompactLyricModel(LyricModel model, List<LyricsLineModel> lines) {
+        int numberOfLines = lines.size();
+        int numberOfTones = 0;
+        int numberOfChars = 0;
+        for (int i = 0; i < numberOfLines; i++) {
+            List<LyricsLineModel.Tone> tones = lines.get(i).tones;
+            if (tones == null) {
+                continue;
+            }
+            numberOfTones += tones.size();
+            for (LyricsLineModel.Tone tone : tones) {
+                if (tone.word != null) {
+                    numberOfChars += tone.word.length();
+                }
+            }
+        }
+
+        type = model.type;
+        name = model.name;
+        singer = model.singer;
+        preludeEndPosition = model.preludeEndPosition;
+        duration = model.duration;
+        hasPitch = model.hasPitch;
+        copyrightSentenceLineCount = model.copyrightSentenceLineCount;
+        pitchTrack = model.pitchDataList != null ? PitchTrack.of(model.pitchDataList) : null;
+
+        lineToneOffsets = new int[numberOfLines + 1];
+        lineDurations = new long[numberOfLines];
+        toneBegins = new int[numberOfTones];
+        toneEnds = new int[numberOfTones];
+        tonePitches = new int[numberOfTones];
+        toneFlags = new byte[numberOfTones];
+        wordOffsets = new int[numberOfTones + 1];
+        wordPool = new char[numberOfChars];
+
+        int toneIndex = 0;
+        int charIndex = 0;
+        for (int i = 0; i < numberOfLines; i++) {
+            LyricsLineModel line = lines.get(i);
+            lineToneOffsets[i] = toneIndex;
+            lineDurations[i] = line.duration;
+            if (line.tones == null) {
+                continue;
+            }
+            for (LyricsLineModel.Tone tone : line.tones) {
+                toneBegins[toneIndex] = toMillis(tone.begin);
+                toneEnds[toneIndex] = toMillis(tone.end);
+                tonePitches[toneIndex] = tone.pitch;
+                byte flags = 0;
+                if (tone.lang == LyricsLineModel.Lang.English) {
+                    flags |= FLAG_ENGLISH;
+                }
+                if (tone.isFullLine) {
+                    flags |= FLAG_FULL_LINE;
+                }
+                if (tone instanceof LyricsLineModel.Monolog) {
+                    flags |= FLAG_MONOLOG;
+                }
+                wordOffsets[toneIndex] = charIndex;
+                if (tone.word != null) {
+                    tone.word.getChars(0, tone.word.length(), wordPool, charIndex);
+                    charIndex += tone.word.length();
+                } else {
+                    flags |= FLAG_NO_WORD;
+                }
+                toneFlags[toneIndex] = flags;
+                toneIndex++;
+            }
+        }
+        lineToneOffsets[numberOfLines] = toneIndex;
+        wordOffsets[toneIndex] = charIndex;
+
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        if (pitchTrack != null) {
+            if (pitchTrack.size() > 0) {
+                min = pitchTrack.getMinimumPitch();
+                max = pitchTrack.getMaximumPitch();
+            }
+        } else {
+            for (int pitch : tonePitches) {
+                min = Math.min(min, pitch);
+                max = Math.max(max, pitch);
+            }
+        }
+        minimumPitch = min <= max ? min : 0;
+        maximumPitch = min <= max ? max : 0;
+        adjustedTones = EMPTY_INTS;
+        adjustedBegins = EMPTY_INTS;
+        adjustedEnds = EMPTY_INTS;
+    }
+
+    private CompactLyricModel(CompactLyricModel base, int[] adjustedTones, int[] adjustedBegins, int[] adjustedEnds) {
+        type = base.type;
+        name = base.name;
+        singer = base.singer;
+        preludeEndPosition = base.preludeEndPosition;
+        duration = base.duration;
+        hasPitch = base.hasPitch;
+        copyrightSentenceLineCount = base.copyrightSentenceLineCount;
+        pitchTrack = base.pitchTrack;
+        minimumPitch = base.minimumPitch;
+        maximumPitch = base.maximumPitch;
+        lineToneOffsets = base.lineToneOffsets;
+        lineDurations = base.lineDurations;
+        toneBegins = base.toneBegins;
+        toneEnds = base.toneEnds;
+        tonePitches = base.tonePitches;
+        toneFlags = base.toneFlags;
+        wordOffsets = base.wordOffsets;
+        wordPool = base.wordPool;
+        this.adjustedTones = adjustedTones;
+        this.adjustedBegins = adjustedBegins;
+        this.adjustedEnds = adjustedEnds;
+        normalized = this;
+    }
+
+    /**
+     * Creates the compact representation of a lyrics model
+     *
+     * @param model The lyrics model, its lines may be null
+     * @return A new CompactLyricModel holding a copy of the model data
+     */
+    @NonNull
+    public static CompactLyricModel of(@NonNull LyricModel model) {
+        List<LyricsLineModel> lines = model.lines != null ? model.lines : Collections.<LyricsLineModel>emptyList();
+        return new CompactLyricModel(model, lines);
+    }
+
+    /**
+     * Creates the compact representation of a single lyrics line, without song information
+     *
+     * @param line The lyrics line
+     * @return A new CompactLyricModel holding a copy of the line as its only line
+     */
+    @NonNull
+    public static CompactLyricModel of(@NonNull LyricsLineModel line) {
+        return new CompactLyricModel(new LyricModel(LyricType.LRC), Collections.singletonList(line));
+    }
+
+    private static int toMillis(long time) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, time));
+    }
+
+    /**
+     * @return Type of lyrics (e.g., LRC, XML, KRC)
+     */
+    public LyricType getType() {
+        return type;
+    }
+
+    /**
+     * @return Name of the song
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Name of the singer/artist
+     */
+    public String getSinger() {
+        return singer;
+    }
+
+    /**
+     * @return End time of the song's prelude in milliseconds
+     */
+    public long getPreludeEndPosition() {
+        return preludeEndPosition;
+    }
+
+    /**
+     * @return Total duration of the lyrics in milliseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return Whether the lyrics contain pitch information
+     */
+    public boolean hasPitch() {
+        return hasPitch;
+    }
+
+    /**
+     * @return Number of lines containing copyright information
+     */
+    public int getCopyrightSentenceLineCount() {
+        return copyrightSentenceLineCount;
+    }
+
+    /**
+     * Gets the pitch data of the song, it must not be modified
+     *
+     * @return The pitch track, or null if the song has no separate pitch data
+     */
+    public PitchTrack getPitchTrack() {
+        return pitchTrack;
+    }
+
+    /**
+     * @return Whether the song has any reference pitch value, in its pitch track or else in its tones
+     */
+    public boolean hasPitchValues() {
+        return pitchTrack != null ? pitchTrack.size() > 0 : tonePitches.length > 0;
+    }
+
+    /**
+     * Gets the lowest reference pitch of the song, taken from the pitch track if there is one or else from the tones
+     *
+     * @return The lowest pitch value, or 0 if there is no pitch value
+     */
+    public float getMinimumPitch() {
+        return minimumPitch;
+    }
+
+    /**
+     * Gets the highest reference pitch of the song, taken from the pitch track if there is one or else from the tones
+     *
+     * @return The highest pitch value, or 0 if there is no pitch value
+     */
+    public float getMaximumPitch() {
+        return maximumPitch;
+    }
+
+    /**
+     * @return Number of lines
+     */
+    public int getLineCount() {
+        return lineDurations.length;
+    }
+
+    /**
+     * @return Number of tones of all lines
+     */
+    public int getToneCount() {
+        return toneBegins.length;
+    }
+
+    /**
+     * Gets the index of the first tone of a line
+     *
+     * @param line Index of the line
+     * @return Index of the first tone, the tones of a line being contiguous
+     */
+    public int getFirstToneIndex(int line) {
+        return lineToneOffsets[line];
+    }
+
+    /**
+     * Gets the number of tones of a line
+     *
+     * @param line Index of the line
+     * @return Number of tones of the line
+     */
+    public int getToneCount(int line) {
+        return lineToneOffsets[line + 1] - lineToneOffsets[line];
+    }
+
+    /**
+     * Gets the start time of a line, same as {@link LyricsLineModel#getStartTime()}
+     *
+     * @param line Index of the line
+     * @return Start time in milliseconds, or 0 if the line has no tone
+     */
+    public long getLineStartTime(int line) {
+        int first = lineToneOffsets[line];
+        return first < lineToneOffsets[line + 1] ? getToneBegin(first) : 0;
+    }
+
+    /**
+     * Gets the end time of a line, same as {@link LyricsLineModel#getEndTime()}
+     *
+     * @param line Index of the line
+     * @return End time in milliseconds, or 0 if the line has no tone
+     */
+    public long getLineEndTime(int line) {
+        int end = lineToneOffsets[line + 1];
+        return lineToneOffsets[line] < end ? getToneEnd(end - 1) : 0;
+    }
+
+    /**
+     * Gets the duration of a line as set by the parser, see {@link LyricsLineModel#duration}
+     *
+     * @param line Index of the line
+     * @return Duration in milliseconds
+     */
+    public long getLineDuration(int line) {
+        return lineDurations[line];
+    }
+
+    /**
+     * Gets the text of a line, the words of its tones one after the other
+     *
+     * @param line Index of the line
+     * @return A new String holding the text of the line
+     */
+    @NonNull
+    public String getLineText(int line) {
+        int start = wordOffsets[lineToneOffsets[line]];
+        return new String(wordPool, start, wordOffsets[lineToneOffsets[line + 1]] - start);
+    }
+
+    /**
+     * @param tone Index of the tone
+     * @return Start time of the tone in milliseconds
+     */
+    public int getToneBegin(int tone) {
+        if (adjustedTones.length > 0) {
+            int adjusted = Arrays.binarySearch(adjustedTones, tone);
+            if (adjusted >= 0) {
+                return adjustedBegins[adjusted];
+            }
+        }
+        return toneBegins[tone];
+    }
+
+    /**
+     * @param tone Index of the tone
+     * @return End time of the tone in milliseconds
+     */
+    public int getToneEnd(int tone) {
+        if (adjustedTones.length > 0) {
+            int adjusted = Arrays.binarySearch(adjustedTones, tone);
+            if (adjusted >= 0) {
+                return adjustedEnds[adjusted];
+            }
+        }
+        return toneEnds[tone];
+    }
+
+    /**
+     * @param tone Index of the tone
+     * @return Pitch value of the tone
+     */
+    public int getTonePitch(int tone) {
+        return tonePitches[tone];
+    }
+
+    /**
+     * @param tone Index of the tone
+     * @return Language of the tone
+     */
+    public LyricsLineModel.Lang getToneLang(int tone) {
+        return (toneFlags[tone] & FLAG_ENGLISH) != 0 ? LyricsLineModel.Lang.English : LyricsLineModel.Lang.Chinese;
+    }
+
+    /**
+     * @param tone Index of the tone
+     * @return Whether the tone represents a full line of lyrics
+     */
+    public boolean isFullLine(int tone) {
+        return (toneFlags[tone] & FLAG_FULL_LINE) != 0;
+    }
+
+    /**
+     * Gets the word of a tone
+     *
+     * @param tone Index of the tone
+     * @return A new String holding the word, or null if the tone has none
+     */
+    public String getWord(int tone) {
+        if ((toneFlags[tone] & FLAG_NO_WORD) != 0) {
+            return null;
+        }
+        return new String(wordPool, wordOffsets[tone], wordOffsets[tone + 1] - wordOffsets[tone]);
+    }
+
+    /**
+     * Appends the word of a tone, without creating any String
+     *
+     * @param tone    Index of the tone
+     * @param builder Where to append the word, nothing is appended if the tone has none
+     */
+    public void appendWord(int tone, @NonNull StringBuilder builder) {
+        builder.append(wordPool, wordOffsets[tone], wordOffsets[tone + 1] - wordOffsets[tone]);
+    }
+
+    /**
+     * Gets a view of the lyrics where lines do not overlap
+     * The tones of a line beginning before the end of the previous line are moved to that end,
+     * their end being moved as well if it would come before their beginning.
+     * Only the moved tones are recorded, on top of the arrays of this model which are shared and left unchanged.
+     *
+     * @return The normalized lyrics, this model itself if no tone needs to be moved
+     */
+    @NonNull
+    public CompactLyricModel normalized() {
+        CompactLyricModel result = normalized;
+        if (result == null) {
+            // Concurrent callers may both build it, either result is valid
+            result = normalize();
+            normalized = result;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the time index of the lyrics, to find the line or tone at a time in O(log n)
+     *
+     * @return The time index, built once and shared by all readers of this model
+     */
+    @NonNull
+    public LyricsTimeIndex getTimeIndex() {
+        LyricsTimeIndex result = timeIndex;
+        if (result == null) {
+            // Concurrent callers may both build it, either result is valid
+            result = new LyricsTimeIndex(this);
+            timeIndex = result;
+        }
+        return result;
+    }
+
+    private CompactLyricModel normalize() {
+        int[] tones = EMPTY_INTS;
+        int[] begins = EMPTY_INTS;
+        int[] ends = EMPTY_INTS;
+        int count = 0;
+        long endTimeOfPreviousLine = getLineCount() > 0 ? getLineEndTime(0) : 0;
+        for (int line = 1; line < getLineCount(); line++) {
+            int first = lineToneOffsets[line];
+            int end = lineToneOffsets[line + 1];
+            long endTimeOfLine = first < end ? toneEnds[end - 1] : 0;
+            for (int tone = first; tone < end && toneBegins[tone] < endTimeOfPreviousLine; tone++) {
+                if (count == tones.length) {
+                    int capacity = Math.max(8, count * 2);
+                    tones = Arrays.copyOf(tones, capacity);
+                    begins = Arrays.copyOf(begins, capacity);
+                    ends = Arrays.copyOf(ends, capacity);
+                }
+                tones[count] = tone;
+                begins[count] = (int) endTimeOfPreviousLine;
+                ends[count] = Math.max(toneEnds[tone], begins[count]);
+                if (tone == end - 1) {
+                    endTimeOfLine = ends[count];
+                }
+                count++;
+            }
+            endTimeOfPreviousLine = endTimeOfLine;
+        }
+        if (count == 0) {
+            return this;
+        }
+        return new CompactLyricModel(this, Arrays.copyOf(tones, count), Arrays.copyOf(begins, count), Arrays.copyOf(ends, count));
+    }
+
+    /**
+     * Checks if the bounds of a tone differ from the model the normalized view was made from
+     *
+     * @param tone Index of the tone
+     * @return true if the tone was moved by {@link #normalized()}
+     */
+    public boolean isAdjusted(int tone) {
+        return adjustedTones.length > 0 && Arrays.binarySearch(adjustedTones, tone) >= 0;
+    }
+
+    /**
+     * Creates a LyricsLineModel holding a copy of a line, for the APIs based on LyricsLineModel
+     *
+     * @param line Index of the line
+     * @return A new LyricsLineModel
+     */
+    @NonNull
+    public LyricsLineModel getLine(int line) {
+        int first = lineToneOffsets[line];
+        int end = lineToneOffsets[line + 1];
+        List<LyricsLineModel.Tone> tones = new ArrayList<>(end - first);
+        for (int i = first; i < end; i++) {
+            LyricsLineModel.Tone tone = (toneFlags[i] & FLAG_MONOLOG) != 0 ? new LyricsLineModel.Monolog() : new LyricsLineModel.Tone();
+            tone.begin = getToneBegin(i);
+            tone.end = getToneEnd(i);
+            tone.word = getWord(i);
+            tone.lang = getToneLang(i);
+            tone.pitch = tonePitches[i];
+            tone.isFullLine = isFullLine(i);
+            tones.add(tone);
+        }
+        LyricsLineModel lineModel = new LyricsLineModel(tones);
+        lineModel.duration = lineDurations[line];
+        return lineModel;
+    }
+
+    /**
+     * Creates a LyricModel holding a copy of all the data, for the APIs based on LyricModel
+     *
+     * @return A new LyricModel
+     */
+    @NonNull
+    public LyricModel toLyricModel() {
+        LyricModel model = new LyricModel(type);
+        model.name = name;
+        model.singer = singer;
+        model.preludeEndPosition = preludeEndPosition;
+        model.duration = duration;
+        model.hasPitch = hasPitch;
+        model.copyrightSentenceLineCount = copyrightSentenceLineCount;
+        model.lines = new ArrayList<>(getLineCount());
+        for (int i = 0; i < getLineCount(); i++) {
+            model.lines.add(getLine(i));
+        }
+        if (pitchTrack != null) {
+            model.pitchDataList = pitchTrack.asPitchDataList();
+        }
+        return model;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "CompactLyricModel{" +
+                "name='" + name + '\'' +
+                ", singer='" + singer + '\'' +
+                ", type=" + type +
+                ", lines=" + getLineCount() +
+                ", tones=" + getToneCount() +
+                ", preludeEndPosition=" + preludeEndPosition +
+                ", duration=" + duration +
+                ", hasPitch=" + hasPitch +
+                ", pitchTrack=" + pitchTrack +
+                ", adjustedTones=" + adjustedTones.length +
+                '}';
+    }
+}
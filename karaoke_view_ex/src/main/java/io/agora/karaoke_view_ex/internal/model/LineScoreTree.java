@@ -0,0 +1,195 @@
+package io.agora.karaoke_view_ex.internal.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Scores of the lines of a song by index, backed by primitive arrays and a Fenwick (binary indexed) tree.
+ * Setting or removing the score of a line and summing the scores of the first lines take O(log n).
+ * Dropping the scores from a line onwards, as done when seeking backwards, takes O(1): the dropped scores
+ * are cleared from the tree by the next score set after them, so each score is cleared at most once.
+ */
+public final class LineScoreTree {
+    private float[] scores;
+    private boolean[] scored;
+    /**
+     * Fenwick tree of the scores, 1-based, summed in double so that the sums do not depend on the tree layout
+     */
+    private double[] tree;
+    /**
+     * Lines at or after this index have no score, whatever the arrays still hold for them
+     */
+    private int limit;
+    /**
+     * Lines at or after this index are not in the tree
+     */
+    private int end;
+
+    /**
+     * Constructor for a LineScoreTree with no score
+     *
+     * @param lineCount Number of lines
+     */
+    public LineScoreTree(int lineCount) {
+        scores = new float[lineCount];
+        scored = new boolean[lineCount];
+        tree = new double[lineCount + 1];
+    }
+
+    /**
+     * @return Number of lines
+     */
+    public int getLineCount() {
+        return scores.length;
+    }
+
+    /**
+     * Makes room for more lines, keeping the scores
+     *
+     * @param lineCount Number of lines, ignored if not more than the current one
+     */
+    public void ensureLineCount(int lineCount) {
+        if (lineCount <= scores.length) {
+            return;
+        }
+        float[] newScores = new float[lineCount];
+        boolean[] newScored = new boolean[lineCount];
+        System.arraycopy(scores, 0, newScores, 0, limit);
+        System.arraycopy(scored, 0, newScored, 0, limit);
+        scores = newScores;
+        scored = newScored;
+        // Linear build of the tree, each node passes its sum to its parent
+        tree = new double[lineCount + 1];
+        for (int i = 1; i <= lineCount; i++) {
+            tree[i] += scored[i - 1] ? scores[i - 1] : 0;
+            int parent = i + (i & -i);
+            if (parent <= lineCount) {
+                tree[parent] += tree[i];
+            }
+        }
+        end = limit;
+    }
+
+    /**
+     * @param line Index of the line
+     * @return Whether the line has a score
+     */
+    public boolean isScored(int line) {
+        return line >= 0 && line < limit && scored[line];
+    }
+
+    /**
+     * @param line Index of the line
+     * @return Score of the line, or 0 if it has none
+     */
+    public float getScore(int line) {
+        return isScored(line) ? scores[line] : 0;
+    }
+
+    /**
+     * Sets the score of a line, making room for it if needed
+     *
+     * @param line  Index of the line
+     * @param score The score
+     */
+    public void setScore(int line, float score) {
+        if (line < 0) {
+            throw new IndexOutOfBoundsException("Line: " + line);
+        }
+        ensureLineCount(line + 1);
+        if (line >= limit) {
+            // Clear the dropped scores up to the line, the ones after it stay out of the sums
+            for (int i = limit; i < Math.min(line + 1, end); i++) {
+                if (scored[i]) {
+                    add(i, -scores[i]);
+                    scores[i] = 0;
+                    scored[i] = false;
+                }
+            }
+            limit = line + 1;
+            end = Math.max(end, limit);
+        }
+        add(line, score - scores[line]);
+        scores[line] = score;
+        scored[line] = true;
+    }
+
+    /**
+     * Removes the score of a line
+     *
+     * @param line Index of the line
+     */
+    public void removeScore(int line) {
+        if (isScored(line)) {
+            add(line, -scores[line]);
+            scores[line] = 0;
+            scored[line] = false;
+        }
+    }
+
+    /**
+     * Removes the scores of a line and of all the lines after it
+     *
+     * @param line Index of the first line to remove
+     */
+    public void removeScoresFrom(int line) {
+        limit = Math.max(0, Math.min(limit, line));
+    }
+
+    /**
+     * Removes all scores, keeping the arrays for later use
+     */
+    public void clear() {
+        limit = 0;
+    }
+
+    /**
+     * @param count Number of lines from the first one
+     * @return Sum of the scores of those lines
+     */
+    public float getPrefixSum(int count) {
+        double sum = 0;
+        for (int i = Math.min(count, limit); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return (float) sum;
+    }
+
+    /**
+     * @return Sum of the scores of all lines
+     */
+    public float getSum() {
+        return getPrefixSum(limit);
+    }
+
+    /**
+     * Copies the scores of the lines
+     *
+     * @return A new array holding the score of each line, 0 for a line with no score
+     */
+    @NonNull
+    public float[] toArray() {
+        float[] snapshot = new float[scores.length];
+        for (int i = 0; i < limit; i++) {
+            snapshot[i] = scored[i] ? scores[i] : 0;
+        }
+        return snapshot;
+    }
+
+    private void add(int line, double delta) {
+        for (int i = line + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "LineScoreTree{" +
+                "lines=" + scores.length +
+                ", scores=" + Arrays.toString(Arrays.copyOf(toArray(), limit)) +
+                ", sum=" + getSum() +
+                '}';
+    }
+}
@@ -0,0 +1,481 @@
+package io.agora.karaoke_view_ex.internal.model;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Immutable time index over the lines and tones of a {@link CompactLyricModel}, answering time lookups in O(log n).
+ * Every lookup returns the first line or tone, in order, matching it, the same result as checking them one by one.
+ * The lines overlapping a time range are found by {@link #linesOverlapping(long, long)}.
+ * Line starts and tone begins are expected in increasing order, as the parsers and
+ * {@link CompactLyricModel#normalized()} produce them. Lookups fall back to a linear scan for lyrics that are not.
+ */
+public final class LyricsTimeIndex {
+    /**
+     * Lines or tones a cursor steps over before it searches instead
+     */
+    private static final int MAX_CURSOR_STEPS = 8;
+
+    private final long[] lineStarts;
+    private final long[] lineEnds;
+    /**
+     * Highest end time of the lines up to each index, it never decreases
+     */
+    private final long[] lineMaxEnds;
+
+    private final int[] lineToneOffsets;
+    private final int[] toneBegins;
+    private final int[] toneEnds;
+    /**
+     * Highest end time of the tones up to each index, it never decreases
+     */
+    private final int[] toneMaxEnds;
+    /**
+     * Highest end time of the tones of the same line up to each index, it never decreases within a line
+     */
+    private final int[] lineToneMaxEnds;
+
+    private final boolean linesInOrder;
+    private final boolean lineEndsInOrder;
+    private final boolean tonesInOrder;
+
+    LyricsTimeIndex(@NonNull CompactLyricModel lyrics) {
+        int numberOfLines = lyrics.getLineCount();
+        int numberOfTones = lyrics.getToneCount();
+
+        lineStarts = new long[numberOfLines];
+        lineEnds = new long[numberOfLines];
+        lineMaxEnds = new long[numberOfLines];
+        lineToneOffsets = new int[numberOfLines + 1];
+        boolean startsInOrder = true;
+        boolean endsInOrder = true;
+        for (int i = 0; i < numberOfLines; i++) {
+            lineStarts[i] = lyrics.getLineStartTime(i);
+            lineEnds[i] = lyrics.getLineEndTime(i);
+            lineMaxEnds[i] = i > 0 ? Math.max(lineMaxEnds[i - 1], lineEnds[i]) : lineEnds[i];
+            lineToneOffsets[i] = lyrics.getFirstToneIndex(i);
+            if (i > 0) {
+                startsInOrder &= lineStarts[i - 1] <= lineStarts[i];
+                endsInOrder &= lineEnds[i - 1] <= lineEnds[i];
+            }
+        }
+        lineToneOffsets[numberOfLines] = numberOfTones;
+        linesInOrder = startsInOrder;
+        lineEndsInOrder = endsInOrder;
+
+        toneBegins = new int[numberOfTones];
+        toneEnds = new int[numberOfTones];
+        toneMaxEnds = new int[numberOfTones];
+        lineToneMaxEnds = new int[numberOfTones];
+        boolean beginsInOrder = true;
+        for (int line = 0; line < numberOfLines; line++) {
+            for (int tone = lineToneOffsets[line]; tone < lineToneOffsets[line + 1]; tone++) {
+                toneBegins[tone] = lyrics.getToneBegin(tone);
+                toneEnds[tone] = lyrics.getToneEnd(tone);
+                toneMaxEnds[tone] = tone > 0 ? Math.max(toneMaxEnds[tone - 1], toneEnds[tone]) : toneEnds[tone];
+                lineToneMaxEnds[tone] = tone > lineToneOffsets[line] ? Math.max(lineToneMaxEnds[tone - 1], toneEnds[tone]) : toneEnds[tone];
+                if (tone > 0) {
+                    beginsInOrder &= toneBegins[tone - 1] <= toneBegins[tone];
+                }
+            }
+        }
+        tonesInOrder = beginsInOrder;
+    }
+
+    /**
+     * Checks whether the line starts are in increasing order
+     * Only then do the lines from {@link #firstLineStartingAtOrAfter(long)} of a time all start at or after it.
+     *
+     * @return true if the lines are in order
+     */
+    public boolean isSorted() {
+        return linesInOrder;
+    }
+
+    /**
+     * Finds the first line covering a time, both ends of a line included
+     *
+     * @param time The time in milliseconds
+     * @return Index of the line, or -1 if no line covers the time
+     */
+    public int lineAt(long time) {
+        if (!linesInOrder) {
+            for (int i = 0; i < lineStarts.length; i++) {
+                if (lineStarts[i] <= time && time <= lineEnds[i]) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        // The first line ending at or after the time is the only candidate before the lines starting after it
+        int line = firstLineEndingAtOrAfter(time);
+        return line < lineStarts.length && lineStarts[line] <= time ? line : -1;
+    }
+
+    /**
+     * Finds the first tone covering a time, both ends of a tone included
+     *
+     * @param time The time in milliseconds
+     * @return Index of the tone, or -1 if no tone covers the time
+     */
+    public int toneAt(long time) {
+        return toneAt(0, toneBegins.length, toneMaxEnds, time);
+    }
+
+    /**
+     * Finds the first tone covering a time, checking first the tone found by a previous call
+     * Successive times usually fall in the same tone, which is then found in O(1).
+     *
+     * @param time The time in milliseconds
+     * @param hint Index returned by a previous call, or -1
+     * @return Index of the tone, or -1 if no tone covers the time
+     */
+    public int toneAtWithHint(long time, int hint) {
+        if (tonesInOrder && hint >= 0 && hint < toneBegins.length && toneBegins[hint] <= time && time <= toneEnds[hint]
+                && (hint == 0 || toneMaxEnds[hint - 1] < time)) {
+            return hint;
+        }
+        return toneAt(time);
+    }
+
+    /**
+     * Finds the first tone of a line covering a time, both ends of a tone included
+     *
+     * @param line Index of the line
+     * @param time The time in milliseconds
+     * @return Index of the tone, or -1 if no tone of the line covers the time
+     */
+    public int toneAt(int line, long time) {
+        return toneAt(lineToneOffsets[line], lineToneOffsets[line + 1], lineToneMaxEnds, time);
+    }
+
+    private int toneAt(int from, int to, int[] maxEnds, long time) {
+        if (!tonesInOrder) {
+            for (int i = from; i < to; i++) {
+                if (toneBegins[i] <= time && time <= toneEnds[i]) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int tone = lowerBound(maxEnds, from, to, time);
+        return tone < to && toneBegins[tone] <= time ? tone : -1;
+    }
+
+    /**
+     * Finds the first line starting after a time, the line following the one being sung at that time
+     *
+     * @param time The time in milliseconds
+     * @return Index of the line, or the number of lines if no line starts after the time
+     */
+    public int firstLineStartingAfter(long time) {
+        return firstLineStartingAtOrAfter(time == Long.MAX_VALUE ? time : time + 1);
+    }
+
+    /**
+     * Finds the first line starting at or after a time
+     *
+     * @param time The time in milliseconds
+     * @return Index of the line, or the number of lines if no line starts at or after the time
+     */
+    public int firstLineStartingAtOrAfter(long time) {
+        if (!linesInOrder) {
+            for (int i = 0; i < lineStarts.length; i++) {
+                if (lineStarts[i] >= time) {
+                    return i;
+                }
+            }
+            return lineStarts.length;
+        }
+        return lowerBound(lineStarts, time);
+    }
+
+    /**
+     * Finds the first line ending at or after a time, the lines before it all end before the time
+     *
+     * @param time The time in milliseconds
+     * @return Index of the line, or the number of lines if every line ends before the time
+     */
+    public int firstLineEndingAtOrAfter(long time) {
+        return lowerBound(lineMaxEnds, time);
+    }
+
+    /**
+     * Finds the range of lines overlapping a time range, both ends of a line and of the time range included
+     * Every overlapping line is in the range and the first line of a range that is not empty overlaps.
+     * Lines in between may not, such as a short line ending before the time range while an earlier line goes on.
+     *
+     * @param from Start of the time range in milliseconds
+     * @param to   End of the time range in milliseconds
+     * @return The range of lines, empty if no line overlaps or if the time range is empty
+     */
+    @NonNull
+    public LineRange linesOverlapping(long from, long to) {
+        if (from > to) {
+            return LineRange.EMPTY;
+        }
+        if (!linesInOrder) {
+            int first = -1;
+            int last = -1;
+            for (int i = 0; i < lineStarts.length; i++) {
+                if (lineStarts[i] <= to && lineEnds[i] >= from) {
+                    if (first < 0) {
+                        first = i;
+                    }
+                    last = i;
+                }
+            }
+            return first >= 0 ? new LineRange(first, last + 1) : LineRange.EMPTY;
+        }
+        // The lines before the first one ending at or after the start all end before it, using the highest end so far
+        int first = firstLineEndingAtOrAfter(from);
+        int last = firstLineStartingAfter(to);
+        return first < last ? new LineRange(first, last) : LineRange.EMPTY;
+    }
+
+    /**
+     * Finds the first line whose start is the closest to a time
+     *
+     * @param time The time in milliseconds
+     * @return Index of the line, or -1 if there is no line
+     */
+    public int nearestLineStart(long time) {
+        return nearest(lineStarts, linesInOrder, time);
+    }
+
+    /**
+     * Finds the first line whose end is the closest to a time
+     *
+     * @param time The time in milliseconds
+     * @return Index of the line, or -1 if there is no line
+     */
+    public int nearestLineEnd(long time) {
+        return nearest(lineEnds, lineEndsInOrder, time);
+    }
+
+    private static int nearest(long[] times, boolean inOrder, long time) {
+        if (!inOrder) {
+            int index = -1;
+            long gap = Long.MAX_VALUE;
+            for (int i = 0; i < times.length; i++) {
+                long currentGap = Math.abs(times[i] - time);
+                if (currentGap < gap) {
+                    gap = currentGap;
+                    index = i;
+                }
+            }
+            return index;
+        }
+        if (times.length == 0) {
+            return -1;
+        }
+        int after = lowerBound(times, time);
+        if (after == times.length || (after > 0 && time - times[after - 1] <= times[after] - time)) {
+            // First of the lines sharing the closest time before
+            return lowerBound(times, times[after - 1]);
+        }
+        return after;
+    }
+
+    /**
+     * Creates a cursor over this index, for lookups at increasing times such as the playback progress
+     *
+     * @return A new cursor, before the first line
+     */
+    @NonNull
+    public Cursor newCursor() {
+        return new Cursor();
+    }
+
+    private static int lowerBound(int[] times, int from, int to, long time) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(long[] times, long time) {
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "LyricsTimeIndex{" +
+                "lines=" + lineStarts.length +
+                ", tones=" + toneBegins.length +
+                ", linesInOrder=" + linesInOrder +
+                ", tonesInOrder=" + tonesInOrder +
+                '}';
+    }
+
+    /**
+     * Range of lines [first, last), the last index excluded
+     */
+    public static final class LineRange {
+        static final LineRange EMPTY = new LineRange(0, 0);
+
+        private final int first;
+        private final int last;
+
+        LineRange(int first, int last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        /**
+         * @return Index of the first line of the range
+         */
+        public int getFirst() {
+            return first;
+        }
+
+        /**
+         * @return Index after the last line of the range
+         */
+        public int getLast() {
+            return last;
+        }
+
+        /**
+         * @return true if the range has no line
+         */
+        public boolean isEmpty() {
+            return first >= last;
+        }
+
+        /**
+         * Checks if a line is in the range
+         *
+         * @param line Index of the line
+         * @return true if first <= line < last
+         */
+        public boolean contains(int line) {
+            return first <= line && line < last;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "[" + first + ", " + last + ")";
+        }
+    }
+
+    /**
+     * Stateful lookup of the line and tone at a time, with the same results as {@link #lineAt(long)} and
+     * {@link #toneAt(int, long)}
+     * While the time increases in small steps, as the playback progress does, the cursor moves forward
+     * in amortized O(1). It searches the index only when the time goes backwards or jumps forward.
+     * A cursor is not thread safe.
+     */
+    public final class Cursor {
+        private long time = Long.MIN_VALUE;
+        /**
+         * First line ending at or after the time, or the number of lines
+         */
+        private int endingLine;
+        /**
+         * First tone of that line ending at or after the time, or the end of its tones
+         */
+        private int endingTone;
+        private int line = -1;
+        private int tone = -1;
+
+        private Cursor() {
+        }
+
+        /**
+         * Moves the cursor to a time
+         *
+         * @param time The time in milliseconds
+         * @return Index of the line at the time, or -1 if no line covers it
+         */
+        public int moveTo(long time) {
+            if (!linesInOrder || !tonesInOrder) {
+                this.time = time;
+                line = lineAt(time);
+                tone = line >= 0 ? toneAt(line, time) : -1;
+                return line;
+            }
+
+            int numberOfLines = lineStarts.length;
+            int previousLine = endingLine;
+            if (time < this.time) {
+                endingLine = firstLineEndingAtOrAfter(time);
+            } else {
+                int steps = 0;
+                while (endingLine < numberOfLines && lineMaxEnds[endingLine] < time) {
+                    if (++steps > MAX_CURSOR_STEPS) {
+                        endingLine = firstLineEndingAtOrAfter(time);
+                        break;
+                    }
+                    endingLine++;
+                }
+            }
+
+            if (endingLine < numberOfLines) {
+                int toneEnd = lineToneOffsets[endingLine + 1];
+                if (time < this.time || endingLine != previousLine) {
+                    endingTone = lowerBound(lineToneMaxEnds, lineToneOffsets[endingLine], toneEnd, time);
+                } else {
+                    int steps = 0;
+                    while (endingTone < toneEnd && lineToneMaxEnds[endingTone] < time) {
+                        if (++steps > MAX_CURSOR_STEPS) {
+                            endingTone = lowerBound(lineToneMaxEnds, endingTone, toneEnd, time);
+                            break;
+                        }
+                        endingTone++;
+                    }
+                }
+                line = lineStarts[endingLine] <= time ? endingLine : -1;
+                tone = line >= 0 && endingTone < toneEnd && toneBegins[endingTone] <= time ? endingTone : -1;
+            } else {
+                line = -1;
+                tone = -1;
+            }
+            this.time = time;
+            return line;
+        }
+
+        /**
+         * @return Index of the line at the time of the last move, or -1 if no line covers it
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * @return Index of the tone of that line at the time of the last move, or -1 if no tone of the line covers it
+         */
+        public int getTone() {
+            return tone;
+        }
+
+        /**
+         * Moves the cursor back before the first line, the next move searches the index
+         */
+        public void reset() {
+            time = Long.MIN_VALUE;
+            endingLine = 0;
+            endingTone = 0;
+            line = -1;
+            tone = -1;
+        }
+    }
+}
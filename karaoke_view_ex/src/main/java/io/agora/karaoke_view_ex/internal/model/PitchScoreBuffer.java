@@ -0,0 +1,181 @@
+package io.agora.karaoke_view_ex.internal.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reusable ring buffer of pitch scores by timestamp, backed by primitive arrays.
+ * Holds the same information as a {@code LinkedHashMap<Long, Float>} in insertion order: putting a score
+ * for a timestamp already in the buffer replaces its score and keeps its position.
+ * Scores are added at the end and consumed from the start; the arrays only grow, so once they are large
+ * enough for the longest line nothing is allocated.
+ */
+public final class PitchScoreBuffer {
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private long[] timestamps;
+    private float[] scores;
+    /**
+     * Position of the first score in the arrays, whose length is a power of two
+     */
+    private int head;
+    private int size;
+    /**
+     * Whether the timestamps increase from the first score to the last one
+     */
+    private boolean inOrder = true;
+
+    /**
+     * Constructor for an empty PitchScoreBuffer
+     */
+    public PitchScoreBuffer() {
+        timestamps = new long[DEFAULT_CAPACITY];
+        scores = new float[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Puts the score of a timestamp, same as {@link LinkedHashMap#put(Object, Object)}
+     *
+     * @param timestamp The timestamp in milliseconds
+     * @param score     The score, -1 for a timestamp having a reference pitch but no score yet
+     */
+    public void put(long timestamp, float score) {
+        // Timestamps usually increase, then a repeated one can only be among the last ones
+        for (int i = size - 1; i >= 0; i--) {
+            int position = (head + i) & (timestamps.length - 1);
+            if (timestamps[position] == timestamp) {
+                scores[position] = score;
+                return;
+            }
+            if (inOrder && timestamps[position] < timestamp) {
+                break;
+            }
+        }
+        if (size > 0 && timestamps[(head + size - 1) & (timestamps.length - 1)] > timestamp) {
+            inOrder = false;
+        }
+        if (size == timestamps.length) {
+            grow();
+        }
+        int position = (head + size) & (timestamps.length - 1);
+        timestamps[position] = timestamp;
+        scores[position] = score;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        long[] newTimestamps = new long[capacity];
+        float[] newScores = new float[capacity];
+        int first = Math.min(size, timestamps.length - head);
+        System.arraycopy(timestamps, head, newTimestamps, 0, first);
+        System.arraycopy(scores, head, newScores, 0, first);
+        System.arraycopy(timestamps, 0, newTimestamps, first, size - first);
+        System.arraycopy(scores, 0, newScores, first, size - first);
+        timestamps = newTimestamps;
+        scores = newScores;
+        head = 0;
+    }
+
+    /**
+     * @return Number of scores in the buffer
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Whether the buffer holds no score
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param index Index of the score, 0 being the oldest one
+     * @return Timestamp of the score in milliseconds
+     */
+    public long getTimestamp(int index) {
+        checkIndex(index);
+        return timestamps[(head + index) & (timestamps.length - 1)];
+    }
+
+    /**
+     * @param index Index of the score, 0 being the oldest one
+     * @return The score, -1 for a timestamp having a reference pitch but no score
+     */
+    public float getScore(int index) {
+        checkIndex(index);
+        return scores[(head + index) & (timestamps.length - 1)];
+    }
+
+    /**
+     * Removes the oldest scores
+     *
+     * @param count Number of scores to remove
+     */
+    public void removeFirst(int count) {
+        if (count < 0 || count > size) {
+            throw new IndexOutOfBoundsException("Count: " + count + ", Size: " + size);
+        }
+        head = (head + count) & (timestamps.length - 1);
+        size -= count;
+    }
+
+    /**
+     * Removes all scores, keeping the arrays for later use
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+        inOrder = true;
+    }
+
+    /**
+     * Copies the scores into a map, for the APIs based on LinkedHashMap
+     *
+     * @return A new map holding the scores in order
+     */
+    @NonNull
+    public LinkedHashMap<Long, Float> toLinkedHashMap() {
+        LinkedHashMap<Long, Float> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(getTimestamp(i), getScore(i));
+        }
+        return map;
+    }
+
+    /**
+     * Replaces the scores of the buffer with the scores of a map
+     *
+     * @param map The scores, in order
+     */
+    public void setAll(@NonNull LinkedHashMap<Long, Float> map) {
+        clear();
+        Iterator<Map.Entry<Long, Float>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Float> entry = iterator.next();
+            Float score = entry.getValue();
+            // A null score is skipped by the scoring like -1
+            put(entry.getKey(), score != null ? score : -1f);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "PitchScoreBuffer{" +
+                "size=" + size +
+                ", capacity=" + timestamps.length +
+                '}';
+    }
+}
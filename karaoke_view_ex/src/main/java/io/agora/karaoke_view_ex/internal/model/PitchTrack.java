@@ -0,0 +1,431 @@
+package io.agora.karaoke_view_ex.internal.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Compact pitch track backed by parallel primitive arrays.
+ * Holds the same information as a list of {@link PitchData} without one object per pitch segment.
+ * Pitch segments are kept sorted by start time, segments with the same start time in the order they were added,
+ * so a segment can be found by binary search.
+ */
+public class PitchTrack {
+    private static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Order of pitch data by start time
+     */
+    private static final Comparator<PitchData> START_TIME_ORDER = new Comparator<PitchData>() {
+        @Override
+        public int compare(PitchData a, PitchData b) {
+            return a.startTime < b.startTime ? -1 : (a.startTime == b.startTime ? 0 : 1);
+        }
+    };
+
+    private float[] pitches;
+    private int[] startTimes;
+    private int[] durations;
+    /**
+     * Highest end time of the segments up to each index, it never decreases
+     */
+    private int[] maxEndTimes;
+    private int size;
+
+    private float minimumPitch;
+    private float maximumPitch;
+
+    /**
+     * Constructor for an empty PitchTrack
+     */
+    public PitchTrack() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor for an empty PitchTrack
+     *
+     * @param capacity Initial number of pitch segments the track can hold without growing
+     */
+    public PitchTrack(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.pitches = new float[capacity];
+        this.startTimes = new int[capacity];
+        this.durations = new int[capacity];
+        this.maxEndTimes = new int[capacity];
+    }
+
+    /**
+     * Builds a pitch track from a list of pitch data
+     * A view from {@link #asPitchDataList()} that has not been read or changed gives back its track, without any copy.
+     *
+     * @param pitchDataList The pitch data, in any order
+     * @return A track holding the pitch data sorted by start time, pitch data with the same start time in list order
+     */
+    @NonNull
+    public static PitchTrack of(@NonNull List<PitchData> pitchDataList) {
+        if (pitchDataList instanceof PitchDataList && ((PitchDataList) pitchDataList).isUntouched()) {
+            return ((PitchDataList) pitchDataList).track;
+        }
+        if (!isSortedByStartTime(pitchDataList)) {
+            // Sorted once with a stable sort, so every segment is then appended without shifting the arrays
+            PitchData[] sorted = pitchDataList.toArray(new PitchData[0]);
+            Arrays.sort(sorted, START_TIME_ORDER);
+            pitchDataList = Arrays.asList(sorted);
+        }
+        PitchTrack track = new PitchTrack(pitchDataList.size());
+        for (PitchData data : pitchDataList) {
+            track.add(data.pitch, data.startTime, data.duration);
+        }
+        return track;
+    }
+
+    private static boolean isSortedByStartTime(List<PitchData> pitchDataList) {
+        int previousStartTime = Integer.MIN_VALUE;
+        for (PitchData data : pitchDataList) {
+            if (data.startTime < previousStartTime) {
+                return false;
+            }
+            previousStartTime = data.startTime;
+        }
+        return true;
+    }
+
+    /**
+     * Adds a pitch segment, after the segments starting at or before it
+     * Adding segments in order of start time is the fast path, taken by the parsers and {@link #of(List)},
+     * a segment added out of order shifts the following ones in O(n)
+     *
+     * @param pitch     The pitch value
+     * @param startTime Start time of the pitch segment in milliseconds
+     * @param duration  Duration of the pitch segment in milliseconds
+     */
+    public void add(float pitch, int startTime, int duration) {
+        if (size == pitches.length) {
+            int capacity = size + (size >> 1) + 1;
+            pitches = Arrays.copyOf(pitches, capacity);
+            startTimes = Arrays.copyOf(startTimes, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            maxEndTimes = Arrays.copyOf(maxEndTimes, capacity);
+        }
+        int index = size;
+        if (size > 0 && startTimes[size - 1] > startTime) {
+            index = upperBound(startTime);
+            System.arraycopy(pitches, index, pitches, index + 1, size - index);
+            System.arraycopy(startTimes, index, startTimes, index + 1, size - index);
+            System.arraycopy(durations, index, durations, index + 1, size - index);
+        }
+        pitches[index] = pitch;
+        startTimes[index] = startTime;
+        durations[index] = duration;
+        size++;
+        for (int i = index; i < size; i++) {
+            int endTime = startTimes[i] + durations[i];
+            maxEndTimes[i] = i > 0 ? Math.max(maxEndTimes[i - 1], endTime) : endTime;
+        }
+
+        minimumPitch = size > 1 ? Math.min(minimumPitch, pitch) : pitch;
+        maximumPitch = size > 1 ? Math.max(maximumPitch, pitch) : pitch;
+    }
+
+    /**
+     * Gets the number of pitch segments
+     *
+     * @return Number of pitch segments
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the track holds no pitch segment
+     *
+     * @return true if the track is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the pitch value of a pitch segment
+     *
+     * @param index Index of the pitch segment
+     * @return The pitch value
+     */
+    public float getPitch(int index) {
+        checkIndex(index);
+        return pitches[index];
+    }
+
+    /**
+     * Gets the start time of a pitch segment
+     *
+     * @param index Index of the pitch segment
+     * @return Start time in milliseconds
+     */
+    public int getStartTime(int index) {
+        checkIndex(index);
+        return startTimes[index];
+    }
+
+    /**
+     * Gets the duration of a pitch segment
+     *
+     * @param index Index of the pitch segment
+     * @return Duration in milliseconds
+     */
+    public int getDuration(int index) {
+        checkIndex(index);
+        return durations[index];
+    }
+
+    /**
+     * Gets the end time of a pitch segment, its start time plus its duration
+     *
+     * @param index Index of the pitch segment
+     * @return End time in milliseconds
+     */
+    public int getEndTime(int index) {
+        checkIndex(index);
+        return startTimes[index] + durations[index];
+    }
+
+    /**
+     * @return The lowest pitch value, or 0 if the track is empty
+     */
+    public float getMinimumPitch() {
+        return minimumPitch;
+    }
+
+    /**
+     * @return The highest pitch value, or 0 if the track is empty
+     */
+    public float getMaximumPitch() {
+        return maximumPitch;
+    }
+
+    /**
+     * Finds the first pitch segment covering a time, both ends of a segment included
+     * Same result as checking every segment in order, in O(log n)
+     *
+     * @param time The time in milliseconds
+     * @return Index of the pitch segment, or -1 if no segment covers the time
+     */
+    public int indexAt(long time) {
+        // The first segment ending at or after the time is the only candidate before the segments starting after it
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (maxEndTimes[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < size && startTimes[low] <= time ? low : -1;
+    }
+
+    /**
+     * Finds the first pitch segment covering a time, checking first the segment found by a previous call
+     * Successive times usually fall in the same segment, which is then found in O(1).
+     *
+     * @param time The time in milliseconds
+     * @param hint Index returned by a previous call, or -1
+     * @return Index of the pitch segment, or -1 if no segment covers the time
+     */
+    public int indexAtWithHint(long time, int hint) {
+        if (hint >= 0 && hint < size && startTimes[hint] <= time && time <= startTimes[hint] + durations[hint]
+                && (hint == 0 || maxEndTimes[hint - 1] < time)) {
+            return hint;
+        }
+        return indexAt(time);
+    }
+
+    /**
+     * Finds the first pitch segment starting at or after a time, to iterate over the segments of a time range
+     *
+     * @param time The time in milliseconds
+     * @return Index of the pitch segment, or size() if every segment starts before the time
+     */
+    public int lowerBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startTimes[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startTimes[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Copies a list of pitch data, a view from {@link #asPitchDataList()} that has not been read or changed
+     * is copied as a new view of the same track
+     *
+     * @param pitchDataList The pitch data
+     * @return A new list holding the same pitch data
+     */
+    @NonNull
+    public static List<PitchData> copyOf(@NonNull List<PitchData> pitchDataList) {
+        if (pitchDataList instanceof PitchDataList && ((PitchDataList) pitchDataList).isUntouched()) {
+            return new PitchDataList(((PitchDataList) pitchDataList).track);
+        }
+        return new ArrayList<>(pitchDataList);
+    }
+
+    /**
+     * Gets a list view of the track, for the APIs based on a list of PitchData such as the pitch data of a LyricModel
+     * The PitchData of a segment is created the first time it is read, then the same one is returned.
+     * The list can be changed like any list, the changes are kept by the view and never reach the track.
+     * The track must not be changed once it has a view.
+     *
+     * @return A new list view of the track
+     */
+    @NonNull
+    public List<PitchData> asPitchDataList() {
+        return new PitchDataList(this);
+    }
+
+    /**
+     * Converts the track into a list of PitchData objects
+     *
+     * @return A new list holding one PitchData for each pitch segment
+     */
+    @NonNull
+    public List<PitchData> toPitchDataList() {
+        List<PitchData> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(newPitchData(i));
+        }
+        return list;
+    }
+
+    private PitchData newPitchData(int index) {
+        PitchData data = new PitchData();
+        data.pitch = pitches[index];
+        data.startTime = startTimes[index];
+        data.duration = durations[index];
+        return data;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "PitchTrack{" +
+                "size=" + size +
+                '}';
+    }
+
+    /**
+     * List view of a track, creating the PitchData of a segment when it is first read
+     * It is synchronized, as reading it creates the PitchData.
+     */
+    private static final class PitchDataList extends AbstractList<PitchData> implements RandomAccess {
+        private final PitchTrack track;
+        /**
+         * PitchData read or set so far, null until the first one
+         */
+        private PitchData[] elements;
+        /**
+         * Copy of the whole list once an element has been added or removed, null until then
+         */
+        private List<PitchData> list;
+
+        PitchDataList(PitchTrack track) {
+            this.track = track;
+        }
+
+        /**
+         * @return true if no PitchData has been read or changed, so the list still holds the track as it is
+         */
+        synchronized boolean isUntouched() {
+            return elements == null && list == null;
+        }
+
+        @Override
+        public synchronized PitchData get(int index) {
+            if (list != null) {
+                return list.get(index);
+            }
+            track.checkIndex(index);
+            if (elements == null) {
+                elements = new PitchData[track.size];
+            }
+            PitchData data = elements[index];
+            if (data == null) {
+                data = track.newPitchData(index);
+                elements[index] = data;
+            }
+            return data;
+        }
+
+        @Override
+        public synchronized PitchData set(int index, PitchData data) {
+            if (list != null) {
+                return list.set(index, data);
+            }
+            PitchData previous = get(index);
+            elements[index] = data;
+            return previous;
+        }
+
+        @Override
+        public synchronized void add(int index, PitchData data) {
+            toList().add(index, data);
+            modCount++;
+        }
+
+        @Override
+        public synchronized PitchData remove(int index) {
+            PitchData previous = toList().remove(index);
+            modCount++;
+            return previous;
+        }
+
+        @Override
+        public synchronized int size() {
+            return list != null ? list.size() : track.size;
+        }
+
+        private List<PitchData> toList() {
+            if (list == null) {
+                List<PitchData> copy = new ArrayList<>(track.size + 1);
+                for (int i = 0; i < track.size; i++) {
+                    copy.add(get(i));
+                }
+                list = copy;
+                elements = null;
+            }
+            return list;
+        }
+    }
+}
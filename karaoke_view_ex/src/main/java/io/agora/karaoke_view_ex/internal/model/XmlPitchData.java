@@ -1,18 +1,16 @@
 package io.agora.karaoke_view_ex.internal.model;
 
-import java.util.ArrayList;
-
 /**
  * Model class representing pitch data in XML format.
- * Contains version information, timing interval, and a list of pitch values.
+ * Contains version information, timing interval, and an array of pitch values.
  */
 public class XmlPitchData {
     /**
      * Constructor for XmlPitchData
      *
-     * @param pitches List of pitch values
+     * @param pitches Array of pitch values
      */
-    public XmlPitchData(ArrayList<Float> pitches) {
+    public XmlPitchData(float[] pitches) {
         this.pitches = pitches;
     }
 
@@ -32,7 +30,65 @@ public class XmlPitchData {
     public int reserved;
 
     /**
-     * List of pitch values
+     * Pitch values, one for each interval
+     */
+    public float[] pitches;
+
+    /**
+     * Prefix sums over the pitch values, built on first use and rebuilt if the pitches are replaced
+     */
+    private PitchIndex pitchIndex;
+
+    /**
+     * Gets the average of the valid (greater than 0) pitch values in a range of indices
+     * Indices outside of the pitch values are clamped
+     *
+     * @param fromIdx Index of the first pitch value (inclusive)
+     * @param toIdx   Index of the last pitch value (exclusive)
+     * @return The average pitch value, or 0 if there is no valid pitch in the range
      */
-    public ArrayList<Float> pitches;
+    public double getAveragePitch(int fromIdx, int toIdx) {
+        PitchIndex index = pitchIndex;
+        if (index == null || index.source != pitches) {
+            index = new PitchIndex(pitches);
+            pitchIndex = index;
+        }
+        fromIdx = Math.max(fromIdx, 0);
+        toIdx = Math.min(toIdx, index.validPitchCounts.length - 1);
+        if (fromIdx >= toIdx) {
+            return 0d;
+        }
+        int numberOfValidPitches = index.validPitchCounts[toIdx] - index.validPitchCounts[fromIdx];
+        if (numberOfValidPitches > 0) {
+            return (index.pitchSums[toIdx] - index.pitchSums[fromIdx]) / numberOfValidPitches;
+        }
+        return 0d;
+    }
+
+    /**
+     * Prefix sums and counts of the valid pitch values, entry i covers the values before index i
+     */
+    private static final class PitchIndex {
+        final float[] source;
+        final double[] pitchSums;
+        final int[] validPitchCounts;
+
+        PitchIndex(float[] pitches) {
+            int length = pitches != null ? pitches.length : 0;
+            source = pitches;
+            pitchSums = new double[length + 1];
+            validPitchCounts = new int[length + 1];
+            double total = 0d;
+            int count = 0;
+            for (int i = 0; i < length; i++) {
+                double pitch = pitches[i];
+                if (pitch > 0) { // Filter value <= 0
+                    total += pitch;
+                    count++;
+                }
+                pitchSums[i + 1] = total;
+                validPitchCounts[i + 1] = count;
+            }
+        }
+    }
 }
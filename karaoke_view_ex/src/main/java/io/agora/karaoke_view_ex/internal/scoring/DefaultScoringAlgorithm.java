@@ -10,7 +10,9 @@ import io.agora.karaoke_view_ex.IScoringAlgorithm;
 import io.agora.karaoke_view_ex.constants.Constants;
 import io.agora.karaoke_view_ex.internal.ai.AIAlgorithmScoreNative;
 import io.agora.karaoke_view_ex.internal.config.Config;
+import io.agora.karaoke_view_ex.internal.model.CompactLyricModel;
 import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
+import io.agora.karaoke_view_ex.internal.model.PitchScoreBuffer;
 import io.agora.logging.LogManager;
 
 /**
@@ -135,6 +137,139 @@ public class DefaultScoringAlgorithm implements IScoringAlgorithm {
         return 0;
     }
 
+    /**
+     * Calculates the overall score for a completed line of compact lyrics, same as
+     * {@link #getLineScore(LinkedHashMap, int, LyricsLineModel)} without creating any Tone
+     *
+     * @param pitchesForLine          Map of timestamps to pitch scores for the line
+     * @param indexOfLineJustFinished Index of the line that was just finished
+     * @param lyrics                  The lyrics containing the line that was just finished
+     * @return The calculated score for the line (0-100)
+     */
+    @Override
+    public int getLineScore(final LinkedHashMap<Long, Float> pitchesForLine, final int indexOfLineJustFinished, final CompactLyricModel lyrics) {
+        if (Config.DEBUG) {
+            debugScoringAlgo(pitchesForLine, indexOfLineJustFinished);
+        }
+
+        int firstTone = lyrics.getFirstToneIndex(indexOfLineJustFinished);
+        int numberOfTones = lyrics.getToneCount(indexOfLineJustFinished);
+
+        // Average score of each finished tone, summed in tone order
+        float totalScoreForThisLine = 0f;
+        int numberOfScoredTones = 0;
+
+        int toneIndex = 0;
+        float totalScoreForTone = 0f;
+        int scoreCountForTone = 0;
+        Float scoreForOnePitch = null;
+        Iterator<Map.Entry<Long, Float>> iterator = pitchesForLine.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Float> entry = iterator.next();
+            long myKeyTimestamp = entry.getKey();
+            do {
+                if (toneIndex >= numberOfTones) {
+                    break;
+                }
+                if (myKeyTimestamp >= lyrics.getToneBegin(firstTone + toneIndex) && myKeyTimestamp <= lyrics.getToneEnd(firstTone + toneIndex)) {
+                    scoreForOnePitch = entry.getValue();
+                    break;
+                } else {
+                    totalScoreForThisLine += scoreCountForTone > 0 ? totalScoreForTone / scoreCountForTone : 0f;
+                    numberOfScoredTones++;
+                    toneIndex++;
+                    totalScoreForTone = 0f;
+                    scoreCountForTone = 0;
+                    scoreForOnePitch = null;
+                }
+            } while (toneIndex < numberOfTones);
+
+            iterator.remove();
+
+            if (scoreForOnePitch != null && scoreForOnePitch != -1f) {
+                totalScoreForTone += scoreForOnePitch;
+                scoreCountForTone++;
+            }
+        }
+
+        if (toneIndex < numberOfTones) {
+            totalScoreForThisLine += scoreCountForTone > 0 ? totalScoreForTone / scoreCountForTone : 0f;
+            numberOfScoredTones++;
+        }
+
+        if (numberOfScoredTones > 0) {
+            return (int) (totalScoreForThisLine / numberOfScoredTones);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Calculates the overall score for a completed line of compact lyrics from a buffer of pitch scores, same as
+     * {@link #getLineScore(LinkedHashMap, int, CompactLyricModel)} without allocating
+     *
+     * @param pitchesForLine          Buffer of the pitch scores by timestamp for the line, emptied by the call
+     * @param indexOfLineJustFinished Index of the line that was just finished
+     * @param lyrics                  The lyrics containing the line that was just finished
+     * @return The calculated score for the line (0-100)
+     */
+    @Override
+    public int getLineScore(final PitchScoreBuffer pitchesForLine, final int indexOfLineJustFinished, final CompactLyricModel lyrics) {
+        if (Config.DEBUG) {
+            debugScoringAlgo(pitchesForLine, indexOfLineJustFinished);
+        }
+
+        int firstTone = lyrics.getFirstToneIndex(indexOfLineJustFinished);
+        int numberOfTones = lyrics.getToneCount(indexOfLineJustFinished);
+
+        // Average score of each finished tone, summed in tone order
+        float totalScoreForThisLine = 0f;
+        int numberOfScoredTones = 0;
+
+        int toneIndex = 0;
+        float totalScoreForTone = 0f;
+        int scoreCountForTone = 0;
+        for (int i = 0; i < pitchesForLine.size(); i++) {
+            long myKeyTimestamp = pitchesForLine.getTimestamp(i);
+            boolean hasScoreForOnePitch = false;
+            float scoreForOnePitch = 0f;
+            do {
+                if (toneIndex >= numberOfTones) {
+                    break;
+                }
+                if (myKeyTimestamp >= lyrics.getToneBegin(firstTone + toneIndex) && myKeyTimestamp <= lyrics.getToneEnd(firstTone + toneIndex)) {
+                    hasScoreForOnePitch = true;
+                    scoreForOnePitch = pitchesForLine.getScore(i);
+                    break;
+                } else {
+                    totalScoreForThisLine += scoreCountForTone > 0 ? totalScoreForTone / scoreCountForTone : 0f;
+                    numberOfScoredTones++;
+                    toneIndex++;
+                    totalScoreForTone = 0f;
+                    scoreCountForTone = 0;
+                }
+            } while (toneIndex < numberOfTones);
+
+            if (hasScoreForOnePitch && scoreForOnePitch != -1f) {
+                totalScoreForTone += scoreForOnePitch;
+                scoreCountForTone++;
+            }
+        }
+        // Every pitch score is consumed
+        pitchesForLine.clear();
+
+        if (toneIndex < numberOfTones) {
+            totalScoreForThisLine += scoreCountForTone > 0 ? totalScoreForTone / scoreCountForTone : 0f;
+            numberOfScoredTones++;
+        }
+
+        if (numberOfScoredTones > 0) {
+            return (int) (totalScoreForThisLine / numberOfScoredTones);
+        }
+
+        return 0;
+    }
+
     /**
      * Outputs debug information about the scoring algorithm
      *
@@ -155,6 +290,21 @@ public class DefaultScoringAlgorithm implements IScoringAlgorithm {
         LogManager.instance().debug(TAG, "debugScoringAlgo/mPitchesForLine: numberOfPitches=" + pitches.size() + ", cumulativeScoreForLine=" + cumulativeScoreForLine + ", mIndexOfCurrentLine=" + indexOfLineJustFinished);
     }
 
+    /**
+     * Outputs debug information about the scoring algorithm
+     *
+     * @param pitches                 Buffer of pitch scores by timestamp
+     * @param indexOfLineJustFinished Index of the line that was just finished
+     */
+    private void debugScoringAlgo(PitchScoreBuffer pitches, int indexOfLineJustFinished) {
+        double cumulativeScoreForLine = 0;
+        for (int i = 0; i < pitches.size(); i++) {
+            cumulativeScoreForLine += pitches.getScore(i);
+            LogManager.instance().debug(TAG, "debugScoringAlgo/mPitchesForLine: timestamp=" + pitches.getTimestamp(i) + ", scoreForPitch=" + pitches.getScore(i));
+        }
+        LogManager.instance().debug(TAG, "debugScoringAlgo/mPitchesForLine: numberOfPitches=" + pitches.size() + ", cumulativeScoreForLine=" + cumulativeScoreForLine + ", mIndexOfCurrentLine=" + indexOfLineJustFinished);
+    }
+
     /**
      * Gets the maximum possible score for a line
      *
@@ -0,0 +1,45 @@
+package io.agora.karaoke_view_ex.internal.utils;
+
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory of the background executors used for parsing
+ */
+public class ExecutorFactory {
+    /**
+     * Time after which an idle thread is stopped, in seconds
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Creates a fixed pool of daemon threads with a bounded queue
+     * Idle threads are stopped, so the pool costs nothing once the songs are loaded
+     *
+     * @param threadNamePrefix Prefix of the thread names, followed by the thread number
+     * @param threadCount      Maximum number of tasks run at the same time
+     * @param queueCapacity    Maximum number of tasks waiting for a thread
+     * @param rejectionHandler Handler of the tasks submitted while the queue is full
+     * @return The executor
+     */
+    public static ThreadPoolExecutor newBoundedExecutor(final String threadNamePrefix, int threadCount, int queueCapacity,
+                                                        RejectedExecutionHandler rejectionHandler) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingDeque<Runnable>(queueCapacity), new ThreadFactory() {
+            private final AtomicInteger mThreadNumber = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, threadNamePrefix + mThreadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, rejectionHandler);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
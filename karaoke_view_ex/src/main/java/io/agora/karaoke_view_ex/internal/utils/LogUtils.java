@@ -23,6 +23,11 @@ public class LogUtils {
      */
     private static final List<Logger> LOGGERS = new ArrayList<>(3);
 
+    /**
+     * Whether a logger is registered, read without locking by the callers building messages
+     */
+    private static volatile boolean sEnabled = false;
+
     /**
      * Initializes and configures the logging system
      *
@@ -55,6 +60,7 @@ public class LogUtils {
         } catch (Exception e) {
             Log.i(Constants.TAG, "initLog error:" + e.getMessage());
         }
+        sEnabled = !LOGGERS.isEmpty();
     }
 
     /**
@@ -65,6 +71,7 @@ public class LogUtils {
     public static void addLogger(Logger logger) {
         LogManager.instance().addLogger(logger);
         LOGGERS.add(logger);
+        sEnabled = true;
     }
 
     /**
@@ -75,6 +82,7 @@ public class LogUtils {
     public static void removeLogger(Logger logger) {
         LogManager.instance().removeLogger(logger);
         LOGGERS.remove(logger);
+        sEnabled = !LOGGERS.isEmpty();
     }
 
     /**
@@ -85,6 +93,16 @@ public class LogUtils {
             LogManager.instance().removeLogger(logger);
         }
         LOGGERS.clear();
+        sEnabled = false;
+    }
+
+    /**
+     * Checks whether messages are logged, so that a message costly to build on a hot path is built only when needed
+     *
+     * @return true if a logger is registered, false otherwise
+     */
+    public static boolean isEnabled() {
+        return sEnabled;
     }
 
     /**
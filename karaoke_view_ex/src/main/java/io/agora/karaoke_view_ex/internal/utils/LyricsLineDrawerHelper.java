@@ -9,9 +9,8 @@ import android.text.TextPaint;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.List;
-
 import io.agora.karaoke_view_ex.constants.Constants;
+import io.agora.karaoke_view_ex.internal.model.CompactLyricModel;
 import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
 
 /**
@@ -50,9 +49,19 @@ public class LyricsLineDrawerHelper {
     private Rect[] mTextRectDisplayLines;
 
     /**
-     * Current lyrics line data model
+     * Lyrics containing the current line
+     */
+    private final CompactLyricModel mLyrics;
+
+    /**
+     * Index of the first tone of the current line in the lyrics
      */
-    private final LyricsLineModel mLine;
+    private final int mFirstTone;
+
+    /**
+     * Number of tones of the current line
+     */
+    private final int mNumberOfTones;
 
     /**
      * Whether line wrapping is enabled for long lyrics
@@ -124,7 +133,26 @@ public class LyricsLineDrawerHelper {
      */
     public LyricsLineDrawerHelper(LyricsLineModel line, @Nullable TextPaint textPaintFg, @NonNull TextPaint textPaintBg,
                                   int width, Gravity gravity, boolean enableLineWrap, float widthRatio) {
-        this.mLine = line;
+        this(CompactLyricModel.of(line), 0, textPaintFg, textPaintBg, width, gravity, enableLineWrap, widthRatio);
+    }
+
+    /**
+     * Constructor for LyricsLineDrawerHelper reading a line of compact lyrics
+     *
+     * @param lyrics         Lyrics containing the current line
+     * @param lineIndex      Index of the current line in the lyrics
+     * @param textPaintFg    Paint for foreground (highlighted) text
+     * @param textPaintBg    Paint for background text
+     * @param width          Available width for drawing
+     * @param gravity        Text alignment
+     * @param enableLineWrap Whether to enable line wrapping
+     * @param widthRatio     Scale factor for width adjustment
+     */
+    public LyricsLineDrawerHelper(CompactLyricModel lyrics, int lineIndex, @Nullable TextPaint textPaintFg, @NonNull TextPaint textPaintBg,
+                                  int width, Gravity gravity, boolean enableLineWrap, float widthRatio) {
+        this.mLyrics = lyrics;
+        this.mFirstTone = lyrics.getFirstToneIndex(lineIndex);
+        this.mNumberOfTones = lyrics.getToneCount(lineIndex);
         this.mEnableLineWrap = enableLineWrap;
         this.mWidthRatio = widthRatio > 0 ? widthRatio : 1.0f;
         this.init(textPaintFg, textPaintBg, width, gravity);
@@ -156,24 +184,17 @@ public class LyricsLineDrawerHelper {
         }
 
         StringBuilder sb = new StringBuilder();
-        List<LyricsLineModel.Tone> tones = mLine.tones;
-        mToneLineWordsWidth = new int[tones.size()];
+        mToneLineWordsWidth = new int[mNumberOfTones];
         String text;
-        for (int i = 0; i < tones.size(); i++) {
-            LyricsLineModel.Tone tone = tones.get(i);
-            String s = tone.word;
-            // Sometimes, lyrics/sentence contains no word-tag
-            if (s == null) {
-                s = "";
+        for (int i = 0; i < mNumberOfTones; i++) {
+            int tone = mFirstTone + i;
+            // Sometimes, lyrics/sentence contains no word-tag, nothing is appended then
+            mLyrics.appendWord(tone, sb);
+            if (mLyrics.getToneLang(tone) == LyricsLineModel.Lang.English || i == mNumberOfTones - 1) {
+                sb.append(' ');
             }
-            if (tone.lang == LyricsLineModel.Lang.English || i == tones.size() - 1) {
-                s = s + " ";
-            }
-            sb.append(s);
-
-            text = sb.toString();
 
-            float strWidth = textPaintBg.measureText(text);
+            float strWidth = textPaintBg.measureText(sb, 0, sb.length());
 
             mToneLineWordsWidth[i] = (int) strWidth;
         }
@@ -280,11 +301,10 @@ public class LyricsLineDrawerHelper {
         int doneLen = 0;
         float curLen = 0f;
 
-        List<LyricsLineModel.Tone> tones = mLine.tones;
-        for (int i = 0; i < tones.size(); i++) {
-            LyricsLineModel.Tone tone = tones.get(i);
-            if (time >= tone.end) {
-                if (i == tones.size() - 1) {
+        for (int i = 0; i < mNumberOfTones; i++) {
+            int tone = mFirstTone + i;
+            if (time >= mLyrics.getToneEnd(tone)) {
+                if (i == mNumberOfTones - 1) {
                     // Last syllable, highlight all
                     doneLen = Integer.MAX_VALUE;
                 } else {
@@ -298,17 +318,17 @@ public class LyricsLineDrawerHelper {
                     wordLen = mToneLineWordsWidth[i] - mToneLineWordsWidth[i - 1];
                 }
 
-                if (tone.isFullLine) {
+                if (mLyrics.isFullLine(tone)) {
                     //fix the bug that the last word is not displayed for lyric
                     curLen = wordLen;
                 } else {
-                    float percent = (time - tone.begin) / (float) (tone.end - tone.begin);
+                    float percent = (time - mLyrics.getToneBegin(tone)) / (float) (mLyrics.getToneEnd(tone) - mLyrics.getToneBegin(tone));
 
                     // Apply scale factor to progress calculation
                     curLen = wordLen * (percent > 0 ? percent : 0) * mWidthRatio;
 
                     // Add a small offset to ensure the last character is fully visible
-                    if (percent > 0.9f && i == tones.size() - 1) {
+                    if (percent > 0.9f && i == mNumberOfTones - 1) {
                         curLen += 2;
                     }
                 }
@@ -50,4 +50,15 @@ public class Utils {
         }
         return input;
     }
+
+    /**
+     * Checks whether a byte array starts with the UTF-8 Byte Order Mark (BOM)
+     *
+     * @param data The byte array to check
+     * @return true if the data starts with EF BB BF
+     */
+    public static boolean hasUtf8Bom(byte[] data) {
+        return data != null && data.length >= 3
+                && (data[0] & 0xFF) == 0xEF && (data[1] & 0xFF) == 0xBB && (data[2] & 0xFF) == 0xBF;
+    }
 }
@@ -6,8 +6,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 import io.agora.karaoke_view_ex.internal.constants.LyricType;
+import io.agora.karaoke_view_ex.internal.model.CompactLyricModel;
 import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
 import io.agora.karaoke_view_ex.internal.model.PitchData;
+import io.agora.karaoke_view_ex.internal.model.PitchTrack;
 
 /**
  * Model class representing lyrics data for a song.
@@ -56,9 +58,17 @@ public class LyricModel {
 
     /**
      * List of pitch data points for karaoke scoring
+     * The frozen state holds them in a {@link PitchTrack} sorted by start time, see {@link #getPitchTrack()}.
+     * Parsed models hold a list view of that track, see {@link PitchTrack#asPitchDataList()}, whose PitchData are only created when read.
+     * Like the tones of the lines, call {@link #invalidate()} after changing a PitchData in place.
      */
     public List<PitchData> pitchDataList;
 
+    /**
+     * Frozen state of the model, null until {@link #freeze()} is called
+     */
+    private volatile Frozen mFrozen;
+
     /**
      * Constructor for LyricModel
      *
@@ -85,11 +95,59 @@ public class LyricModel {
         lyricModel.duration = duration;
         lyricModel.hasPitch = hasPitch;
         if (null != pitchDataList) {
-            lyricModel.pitchDataList = new ArrayList<>(pitchDataList);
+            lyricModel.pitchDataList = PitchTrack.copyOf(pitchDataList);
         }
         return lyricModel;
     }
 
+    /**
+     * Gets the pitch data as a PitchTrack, sorted by start time
+     *
+     * @return The pitch track of the frozen state, or null if the model has no pitch data list
+     */
+    public PitchTrack getPitchTrack() {
+        return pitchDataList != null ? freeze().getPitchTrack() : null;
+    }
+
+    /**
+     * Freezes the model, caching its line start/end/duration and its pitch range
+     * <p>
+     * The frozen state is an immutable {@link CompactLyricModel} shared by all readers of the model.
+     * It is kept until the model is changed: replacing the lines, the pitch data or any other field,
+     * or adding or removing lines, is detected and the next call freezes the model again.
+     * Changes made in place to the tones of a line can not be detected, call {@link #invalidate()} after them.
+     * Parsed models are frozen by the parser.
+     *
+     * @return The frozen state of the model
+     */
+    @NonNull
+    public CompactLyricModel freeze() {
+        Frozen frozen = mFrozen;
+        if (frozen == null || !frozen.matches(this)) {
+            // Concurrent callers may both build it, either result is valid
+            frozen = new Frozen(this);
+            mFrozen = frozen;
+        }
+        return frozen.lyrics;
+    }
+
+    /**
+     * Checks if the model is frozen and has not been changed since
+     *
+     * @return true if {@link #freeze()} returns the cached state without building it
+     */
+    public boolean isFrozen() {
+        Frozen frozen = mFrozen;
+        return frozen != null && frozen.matches(this);
+    }
+
+    /**
+     * Drops the frozen state, to be called after changing the tones of a line in place
+     */
+    public void invalidate() {
+        mFrozen = null;
+    }
+
     /**
      * Convert the LyricModel to a string representation
      *
@@ -109,4 +167,51 @@ public class LyricModel {
                 ", pitchDataList=" + pitchDataList +
                 '}';
     }
+
+    /**
+     * Frozen state and the values of the model it was built from
+     */
+    private static final class Frozen {
+        final CompactLyricModel lyrics;
+        final LyricType type;
+        final String name;
+        final String singer;
+        final List<LyricsLineModel> lines;
+        final int numberOfLines;
+        final long preludeEndPosition;
+        final long duration;
+        final boolean hasPitch;
+        final int copyrightSentenceLineCount;
+        final List<PitchData> pitchDataList;
+        final int numberOfPitches;
+
+        Frozen(LyricModel model) {
+            lyrics = CompactLyricModel.of(model);
+            type = model.type;
+            name = model.name;
+            singer = model.singer;
+            lines = model.lines;
+            numberOfLines = model.lines != null ? model.lines.size() : 0;
+            preludeEndPosition = model.preludeEndPosition;
+            duration = model.duration;
+            hasPitch = model.hasPitch;
+            copyrightSentenceLineCount = model.copyrightSentenceLineCount;
+            pitchDataList = model.pitchDataList;
+            numberOfPitches = model.pitchDataList != null ? model.pitchDataList.size() : 0;
+        }
+
+        boolean matches(LyricModel model) {
+            return lines == model.lines
+                    && numberOfLines == (model.lines != null ? model.lines.size() : 0)
+                    && pitchDataList == model.pitchDataList
+                    && numberOfPitches == (model.pitchDataList != null ? model.pitchDataList.size() : 0)
+                    && type == model.type
+                    && name == model.name
+                    && singer == model.singer
+                    && preludeEndPosition == model.preludeEndPosition
+                    && duration == model.duration
+                    && hasPitch == model.hasPitch
+                    && copyrightSentenceLineCount == model.copyrightSentenceLineCount;
+        }
+    }
 }
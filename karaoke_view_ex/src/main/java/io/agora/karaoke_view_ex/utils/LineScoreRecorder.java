@@ -2,10 +2,9 @@ package io.agora.karaoke_view_ex.utils;
 
 import androidx.annotation.NonNull;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
+import io.agora.karaoke_view_ex.internal.model.CompactLyricModel;
+import io.agora.karaoke_view_ex.internal.model.LineScoreTree;
+import io.agora.karaoke_view_ex.internal.model.LyricsTimeIndex;
 import io.agora.karaoke_view_ex.internal.utils.LogUtils;
 import io.agora.karaoke_view_ex.model.LyricModel;
 
@@ -16,9 +15,15 @@ import io.agora.karaoke_view_ex.model.LyricModel;
  */
 public class LineScoreRecorder {
     /**
-     * List of score information for each line in the lyrics
+     * Scores of the lines, the copyright lines first
+     */
+    private LineScoreTree mLineScores;
+
+    /**
+     * Lyrics the lines were taken from, after the copyright lines
      */
-    private List<LineScoreInfo> mLineScoreList;
+    private CompactLyricModel mLyrics;
+    private int mCopyrightSentenceLineCount;
 
     /**
      * Sets the lyric data for score recording
@@ -29,20 +34,13 @@ public class LineScoreRecorder {
         if (model == null || model.lines == null || model.lines.isEmpty()) {
             return;
         }
-        mLineScoreList = new ArrayList<>(model.lines.size());
+        // Same line bounds as the scoring machine
+        CompactLyricModel lyrics = model.freeze().normalized();
+        mLyrics = lyrics;
+        mCopyrightSentenceLineCount = model.copyrightSentenceLineCount;
+        mLineScores = new LineScoreTree(model.copyrightSentenceLineCount + lyrics.getLineCount());
 
-        for (int i = 0; i < model.copyrightSentenceLineCount; i++) {
-            LineScoreInfo info = new LineScoreInfo(0, 0, 0);
-            mLineScoreList.add(info);
-        }
-        LineScoreInfo info;
-        for (int line = 0; line < model.lines.size(); line++) {
-            LyricsLineModel lineModel = model.lines.get(line);
-            info = new LineScoreInfo(lineModel.getStartTime(), lineModel.getEndTime(), 0);
-            mLineScoreList.add(info);
-        }
-
-        LogUtils.i("LineScoreRecorder setLyricData: " + mLineScoreList);
+        LogUtils.i("LineScoreRecorder setLyricData: " + mLineScores);
     }
 
     /**
@@ -53,16 +51,11 @@ public class LineScoreRecorder {
      * @return The cumulative score after setting this line's score, or -1 if index is invalid
      */
     public float setLineScore(int index, float score) {
-        if (index <= 0 || index > mLineScoreList.size()) {
+        if (mLineScores == null || index <= 0 || index > mLineScores.getLineCount()) {
             return -1;
         }
-        LineScoreInfo info = mLineScoreList.get(index - 1);
-        if (info == null) {
-            LogUtils.e("setLineScore error, index: " + index);
-            return calculateCumulativeScore();
-        }
-        info.setScore(score);
-        return calculateCumulativeScore();
+        mLineScores.setScore(index - 1, score);
+        return mLineScores.getSum();
     }
 
     /**
@@ -72,85 +65,31 @@ public class LineScoreRecorder {
      * @return The cumulative score after seeking
      */
     public float seek(long position) {
-        for (int index = 0; index < mLineScoreList.size(); index++) {
-            LineScoreInfo info = mLineScoreList.get(index);
-            if (info.getBegin() >= position) {
-                info.updateScore(0);
+        // Copyright lines begin at 0
+        LyricsTimeIndex timeIndex = mLyrics.getTimeIndex();
+        if (position <= 0) {
+            mLineScores.clear();
+        } else if (timeIndex.isSorted()) {
+            // The lines from the first one starting at the position all begin at or after it
+            mLineScores.removeScoresFrom(mCopyrightSentenceLineCount + timeIndex.firstLineStartingAtOrAfter(position));
+        } else {
+            for (int line = 0; line < mLyrics.getLineCount(); line++) {
+                if (mLyrics.getLineStartTime(line) >= position) {
+                    mLineScores.removeScore(mCopyrightSentenceLineCount + line);
+                }
             }
         }
-        LogUtils.d("LineScoreRecorder seek: " + position + ", " + mLineScoreList);
-        return calculateCumulativeScore();
+        LogUtils.d("LineScoreRecorder seek: " + position + ", " + mLineScores);
+        return mLineScores.getSum();
     }
 
     /**
-     * Calculates the total cumulative score across all lines
+     * Gets a snapshot of the scores of the lines
      *
-     * @return The total cumulative score
+     * @return A new array holding the score of each line, the copyright lines first, or an empty array without lyric data
      */
-    private float calculateCumulativeScore() {
-        float score = 0;
-        for (LineScoreInfo lineScore : mLineScoreList) {
-            score += lineScore.getScore();
-        }
-        return score;
-    }
-
-    /**
-     * Inner class representing score information for a single line of lyrics
-     */
-    private static class LineScoreInfo {
-        private final long mBegin;
-        private final long mEnd;
-        private final long mDuration;
-        private float mScore;
-
-        /**
-         * Constructor for LineScoreInfo
-         *
-         * @param begin    The start time of the line
-         * @param duration The duration of the line
-         * @param score    The initial score for the line
-         */
-        public LineScoreInfo(long begin, long duration, float score) {
-            this.mBegin = begin;
-            this.mEnd = begin + duration;
-            this.mDuration = duration;
-            this.mScore = score;
-        }
-
-        public long getBegin() {
-            return mBegin;
-        }
-
-        public long getEnd() {
-            return mEnd;
-        }
-
-        public long getDuration() {
-            return mDuration;
-        }
-
-        public float getScore() {
-            return mScore;
-        }
-
-        public void setScore(float score) {
-            this.mScore = score;
-        }
-
-        public void updateScore(long score) {
-            this.mScore = score;
-        }
-
-        @NonNull
-        @Override
-        public String toString() {
-            return "LineScoreInfo{" +
-                    "begin=" + mBegin +
-                    ", end=" + mEnd +
-                    ", duration=" + mDuration +
-                    ", score=" + mScore +
-                    '}';
-        }
+    @NonNull
+    public float[] getLineScores() {
+        return mLineScores != null ? mLineScores.toArray() : new float[0];
     }
-}
\ No newline at end of file
+}
@@ -5,7 +5,9 @@ import android.util.Pair;
 import java.util.ArrayList;
 import java.util.List;
 
+import io.agora.karaoke_view_ex.internal.model.CompactLyricModel;
 import io.agora.karaoke_view_ex.internal.model.LyricsLineModel;
+import io.agora.karaoke_view_ex.internal.model.LyricsTimeIndex;
 import io.agora.karaoke_view_ex.internal.utils.LogUtils;
 import io.agora.karaoke_view_ex.model.LyricModel;
 
@@ -51,57 +53,42 @@ public class LyricsCutter {
      *
      * @param startTime The requested start time in milliseconds
      * @param endTime   The requested end time in milliseconds
-     * @param lines     List of lyrics lines to process
+     * @param lyrics    Frozen state of the lyrics to process
      * @return A Pair containing the adjusted start and end times, or null if invalid
      */
-    private static Pair<Integer, Integer> handleFixTime(int startTime, int endTime, List<LyricsLineModel> lines) {
-        if (startTime >= endTime || lines.isEmpty()) {
+    private static Pair<Integer, Integer> handleFixTime(int startTime, int endTime, CompactLyricModel lyrics) {
+        int numberOfLines = lyrics.getLineCount();
+        if (startTime >= endTime || numberOfLines == 0) {
             return null;
         }
 
         long start = startTime;
         long end = endTime;
 
-        LyricsLineModel firstLine = lines.get(0);
-        LyricsLineModel lastLine = lines.get(lines.size() - 1);
+        long firstLineStartTime = lyrics.getLineStartTime(0);
+        long lastLineEndTime = lyrics.getLineEndTime(numberOfLines - 1);
 
-        if ((start < firstLine.getStartTime() && end < firstLine.getStartTime()) ||
-                (start > lastLine.getEndTime() && end > lastLine.getEndTime())) {
+        if ((start < firstLineStartTime && end < firstLineStartTime) ||
+                (start > lastLineEndTime && end > lastLineEndTime)) {
             return null;
         }
 
         // Adjust boundaries if they cross first or last line
-        if (start < firstLine.getStartTime()) {
-            start = firstLine.getStartTime();
+        if (start < firstLineStartTime) {
+            start = firstLineStartTime;
         }
-        if (end > lastLine.getEndTime()) {
-            end = lastLine.getEndTime();
+        if (end > lastLineEndTime) {
+            end = lastLineEndTime;
         }
 
-        int startIndex = 0;
-        long startGap = Long.MAX_VALUE;
-        int endIndex = 0;
-        long endGap = Long.MAX_VALUE;
+        LyricsTimeIndex timeIndex = lyrics.getTimeIndex();
+        int startIndex = timeIndex.nearestLineStart(start);
+        int endIndex = timeIndex.nearestLineEnd(end);
 
-        for (int i = 0; i < lines.size(); i++) {
-            LyricsLineModel line = lines.get(i);
-            long currentStartGap = Math.abs(line.getStartTime() - start);
-            long currentEndGap = Math.abs(line.getEndTime() - end);
-
-            if (currentStartGap < startGap) {
-                startGap = currentStartGap;
-                startIndex = i;
-            }
-            if (currentEndGap < endGap) {
-                endGap = currentEndGap;
-                endIndex = i;
-            }
-        }
-
-        LyricsLineModel startLine = lines.get(startIndex);
-        LyricsLineModel endLine = lines.get(endIndex);
-        if (startLine.getStartTime() < endLine.getEndTime()) {
-            return new Pair<>((int) startLine.getStartTime(), (int) endLine.getEndTime());
+        long startLineStartTime = lyrics.getLineStartTime(startIndex);
+        long endLineEndTime = lyrics.getLineEndTime(endIndex);
+        if (startLineStartTime < endLineEndTime) {
+            return new Pair<>((int) startLineStartTime, (int) endLineEndTime);
         }
         return null;
     }
@@ -120,7 +107,8 @@ public class LyricsCutter {
         if (model == null || model.lines == null || model.lines.isEmpty()) {
             return model;
         }
-        Pair<Integer, Integer> pair = handleFixTime(startTime, endTime, model.lines);
+        CompactLyricModel lyrics = model.freeze();
+        Pair<Integer, Integer> pair = handleFixTime(startTime, endTime, lyrics);
         if (pair == null) {
             return model;
         }
@@ -128,24 +116,34 @@ public class LyricsCutter {
         int lowEndTime = pair.second;
         LogUtils.d("cut LyricModel highStartTime: " + highStartTime + " lowEndTime: " + lowEndTime);
         List<LyricsLineModel> lines = new ArrayList<>();
+        long firstStartTime = 0;
+        long lastStartTime = 0;
+        long lastEndTime = 0;
         boolean flag = false;
 
-        for (LyricsLineModel line : model.lines) {
-            if (line.getStartTime() == highStartTime) {
+        for (int i = 0; i < lyrics.getLineCount(); i++) {
+            long lineStartTime = lyrics.getLineStartTime(i);
+            long lineEndTime = lyrics.getLineEndTime(i);
+            if (lineStartTime == highStartTime) {
                 flag = true;
             }
-            if (line.getEndTime() == lowEndTime) {
-                lines.add(line);
-                break;
+            if (flag || lineEndTime == lowEndTime) {
+                if (lines.isEmpty()) {
+                    firstStartTime = lineStartTime;
+                }
+                lines.add(model.lines.get(i));
+                lastStartTime = lineStartTime;
+                lastEndTime = lineEndTime;
             }
-            if (flag) {
-                lines.add(line);
+            if (lineEndTime == lowEndTime) {
+                break;
             }
         }
 
+        // Replacing the lines and times also drops the frozen state of the model
         model.lines = lines;
-        model.preludeEndPosition = lines.isEmpty() ? 0 : lines.get(0).getStartTime();
-        model.duration = lines.isEmpty() ? 0 : lines.get(lines.size() - 1).getEndTime() - lines.get(lines.size() - 1).getStartTime();
+        model.preludeEndPosition = lines.isEmpty() ? 0 : firstStartTime;
+        model.duration = lines.isEmpty() ? 0 : lastEndTime - lastStartTime;
 
         return model;
     }